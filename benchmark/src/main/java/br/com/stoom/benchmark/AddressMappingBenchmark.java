@@ -0,0 +1,37 @@
+package br.com.stoom.benchmark;
+
+import br.com.stoom.entity.Address;
+import br.com.stoom.model.api.AddressApi;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AddressMappingBenchmark {
+
+    private final Address address = Fixtures.address();
+    private final AddressApi addressApi = Fixtures.addressApi();
+
+    @Benchmark
+    public Address fromModel() {
+        return Address.fromModel(addressApi);
+    }
+
+    @Benchmark
+    public AddressApi toModel() {
+        return address.toModel();
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.stoom.benchmark;
+
+import br.com.stoom.entity.Address;
+import br.com.stoom.model.api.AddressApi;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+public final class Fixtures {
+
+    public static final String GEOCODE_RESPONSE_JSON = "{\"results\":[{\"address_components\":["
+            + "{\"long_name\":\"43\",\"short_name\":\"43\",\"types\":[\"street_number\"]},"
+            + "{\"long_name\":\"Rua Zuneide Aparecida Marin\",\"short_name\":\"R. Zuneide Aparecida Marin\",\"types\":[\"route\"]},"
+            + "{\"long_name\":\"Campinas\",\"short_name\":\"Campinas\",\"types\":[\"administrative_area_level_2\",\"political\"]},"
+            + "{\"long_name\":\"13084-780\",\"short_name\":\"13084-780\",\"types\":[\"postal_code\"]}],"
+            + "\"formatted_address\":\"R. Zuneide Aparecida Marin, 43 - Jardim Santa Genebra II (Barao Geraldo), Campinas - SP, 13084-780, Brazil\","
+            + "\"geometry\":{\"location\":{\"lat\":-22.8354045,\"lng\":-47.0787762},\"location_type\":\"ROOFTOP\","
+            + "\"viewport\":{\"northeast\":{\"lat\":-22.8340555,\"lng\":-47.0774272},\"southwest\":{\"lat\":-22.8367535,\"lng\":-47.0801252}}},"
+            + "\"place_id\":\"ChIJ\",\"types\":[\"street_address\"]}],\"status\":\"OK\"}";
+
+    private Fixtures() {
+    }
+
+    /**
+     * Same settings as the application's Spring Boot managed mapper.
+     */
+    public static ObjectMapper objectMapper() {
+        return Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .build();
+    }
+
+    public static Address address() {
+        return Address.builder()
+                .id(UUID.randomUUID())
+                .streetName("R. Zuneide Aparecida Marin")
+                .number(43)
+                .neighbourhood("Jardim Santa Genebra II (Barao Geraldo)")
+                .city("Campinas")
+                .state("SP")
+                .country("BR")
+                .zipcode("13084-780")
+                .latitude(new BigDecimal("-22.8354045"))
+                .longitude(new BigDecimal("-47.0787762"))
+                .build();
+    }
+
+    public static AddressApi addressApi() {
+        return address().toModel();
+    }
+}
@@ -0,0 +1,88 @@
+package br.com.stoom.benchmark;
+
+import br.com.stoom.geocoder.Gazetteer;
+import br.com.stoom.geocoder.GazetteerWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Zipcode and city lookups in a memory-mapped gazetteer of synthetic Brazilian zipcodes. Each invocation looks up
+ * the next key of a shuffled list, so the binary search does not keep hitting the same cache lines.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GazetteerBenchmark {
+
+    private static final String[] CITIES = {"São Paulo", "Campinas", "Santos", "Sorocaba", "Ribeirão Preto",
+            "Rio de Janeiro", "Belo Horizonte", "Curitiba", "Porto Alegre", "Salvador"};
+    private static final int LOOKUPS = 4096;
+
+    @Param({"500000"})
+    private int zipcodes;
+
+    private Path file;
+    private Gazetteer gazetteer;
+    private final String[] lookupZipcodes = new String[LOOKUPS];
+    private final String[] lookupCities = new String[LOOKUPS];
+    private int next;
+
+    @Setup
+    public void setUp() throws IOException {
+        Random random = new Random(42);
+        GazetteerWriter writer = new GazetteerWriter();
+        for (int i = 0; i < zipcodes; i++) {
+            writer.add(zipcode(i), CITIES[i % CITIES.length], "SP", "BR",
+                    -23.5 + random.nextDouble(), -46.6 + random.nextDouble());
+        }
+        file = Files.createTempFile("gazetteer", ".bin");
+        writer.write(file);
+        gazetteer = Gazetteer.open(file);
+        for (int i = 0; i < LOOKUPS; i++) {
+            int zipcode = random.nextInt(zipcodes);
+            lookupZipcodes[i] = zipcode(zipcode);
+            lookupCities[i] = CITIES[zipcode % CITIES.length].toUpperCase();
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public int zipcode() {
+        int offset = gazetteer.findZipcode("BR", lookupZipcodes[next++ & (LOOKUPS - 1)]);
+        return gazetteer.latitudeE7(offset);
+    }
+
+    @Benchmark
+    public int city() {
+        int offset = gazetteer.findCity("BR", "SP", lookupCities[next++ & (LOOKUPS - 1)]);
+        return gazetteer.latitudeE7(offset);
+    }
+
+    private static String zipcode(int i) {
+        String digits = String.format("%08d", 1_000_000 + i * 97 % 90_000_000);
+        return digits.substring(0, 5) + '-' + digits.substring(5);
+    }
+}
@@ -0,0 +1,115 @@
+package br.com.stoom.benchmark;
+
+import br.com.stoom.model.api.AddressApi;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.runner.IterationType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding of a page of addresses in each media type the address API negotiates, with the payload
+ * size of each reported next to the timings as the {@code payloadBytes} secondary result.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PayloadFormatBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"json", "cbor", "smile"})
+    private String format;
+
+    private ObjectWriter pageWriter;
+    private ObjectReader pageReader;
+    private List<AddressApi> page;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = builder().featuresToDisable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES).build();
+        TypeReference<List<AddressApi>> pageType = new TypeReference<List<AddressApi>>() {
+        };
+        pageWriter = objectMapper.writerFor(pageType);
+        pageReader = objectMapper.readerFor(pageType);
+        page = new ArrayList<>(PAGE_SIZE);
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            page.add(Fixtures.addressApi().toBuilder()
+                    .id(UUID.randomUUID())
+                    .number(i + 1)
+                    .build());
+        }
+        payload = pageWriter.writeValueAsBytes(page);
+    }
+
+    private Jackson2ObjectMapperBuilder builder() {
+        switch (format) {
+            case "cbor":
+                return Jackson2ObjectMapperBuilder.cbor();
+            case "smile":
+                return Jackson2ObjectMapperBuilder.smile();
+            default:
+                return Jackson2ObjectMapperBuilder.json();
+        }
+    }
+
+    @Benchmark
+    public byte[] encode(PayloadSize payloadSize) throws IOException {
+        return pageWriter.writeValueAsBytes(page);
+    }
+
+    @Benchmark
+    public List<AddressApi> decode(PayloadSize payloadSize) throws IOException {
+        return pageReader.readValue(payload);
+    }
+
+    /**
+     * Size in bytes of the encoded page. JMH adds event counters up over the measurement iterations, so the size
+     * is reported by the first one only and the sum is the size of one page.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class PayloadSize {
+
+        private long size;
+        private boolean reported;
+        private boolean reporting;
+
+        @Setup(Level.Iteration)
+        public void setUp(PayloadFormatBenchmark benchmark, IterationParams iteration) {
+            size = benchmark.payload.length;
+            reporting = iteration.getType() == IterationType.MEASUREMENT && !reported;
+            reported |= reporting;
+        }
+
+        public long payloadBytes() {
+            return reporting ? size : 0;
+        }
+    }
+}
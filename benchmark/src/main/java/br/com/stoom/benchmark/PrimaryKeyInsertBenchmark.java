@@ -0,0 +1,97 @@
+package br.com.stoom.benchmark;
+
+import br.com.stoom.entity.TimeOrderedUuidGenerator;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Inserts {@code rows} rows into an address-like table on a file-backed H2 database, once with random
+ * ({@link UUID#randomUUID()}) primary keys and once with {@link TimeOrderedUuidGenerator} keys.
+ * Each measurement starts from an empty table, so the score is the time to load the whole table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class PrimaryKeyInsertBenchmark {
+
+    private static final int BATCH_SIZE = 1_000;
+
+    @Param({"RANDOM", "TIME_ORDERED"})
+    public String scheme;
+
+    @Param({"1000000"})
+    public int rows;
+
+    private Path directory;
+    private Connection connection;
+
+    @Setup(Level.Iteration)
+    public void createTable() throws IOException, SQLException {
+        directory = Files.createTempDirectory("stoom-pk-benchmark");
+        connection = DriverManager.getConnection("jdbc:h2:file:" + directory.resolve("benchmark"), "sa", "");
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table address (id uuid primary key, street_name varchar(1500) not null, "
+                    + "number int not null, city varchar(100) not null, latitude numeric(10,7), longitude numeric(10,7))");
+        }
+        connection.commit();
+    }
+
+    @TearDown(Level.Iteration)
+    public void dropDatabase() throws IOException, SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("drop all objects delete files");
+        }
+        connection.close();
+        Files.deleteIfExists(directory);
+    }
+
+    @Benchmark
+    public int insert() throws SQLException {
+        boolean timeOrdered = "TIME_ORDERED".equals(scheme);
+        try (PreparedStatement insert = connection.prepareStatement(
+                "insert into address (id, street_name, number, city, latitude, longitude) values (?, ?, ?, ?, ?, ?)")) {
+            for (int i = 1; i <= rows; i++) {
+                insert.setObject(1, timeOrdered ? TimeOrderedUuidGenerator.next() : UUID.randomUUID());
+                insert.setString(2, "R. Zuneide Aparecida Marin");
+                insert.setInt(3, i);
+                insert.setString(4, "Campinas");
+                insert.setDouble(5, -22.8354045);
+                insert.setDouble(6, -47.0787762);
+                insert.addBatch();
+                if (i % BATCH_SIZE == 0) {
+                    insert.executeBatch();
+                    connection.commit();
+                }
+            }
+            insert.executeBatch();
+            connection.commit();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,76 @@
+package br.com.stoom.benchmark;
+
+import br.com.stoom.model.api.AddressApi;
+import br.com.stoom.model.google.GeocodeResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson encoding and decoding of the API model and of the Google geocoding response, through the same
+ * builder-based deserializers the application uses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    private ObjectWriter addressApiWriter;
+    private ObjectReader addressApiReader;
+    private ObjectWriter geocodeResponseWriter;
+    private ObjectReader geocodeResponseReader;
+    private AddressApi addressApi;
+    private byte[] addressApiJson;
+    private GeocodeResponse geocodeResponse;
+    private byte[] geocodeResponseJson;
+
+    @Setup
+    public void setUp() throws IOException {
+        ObjectMapper objectMapper = Fixtures.objectMapper();
+        addressApiWriter = objectMapper.writerFor(AddressApi.class);
+        addressApiReader = objectMapper.readerFor(AddressApi.class);
+        geocodeResponseWriter = objectMapper.writerFor(GeocodeResponse.class);
+        geocodeResponseReader = objectMapper.readerFor(GeocodeResponse.class);
+        addressApi = Fixtures.addressApi();
+        addressApiJson = addressApiWriter.writeValueAsBytes(addressApi);
+        geocodeResponseJson = Fixtures.GEOCODE_RESPONSE_JSON.getBytes(StandardCharsets.UTF_8);
+        geocodeResponse = geocodeResponseReader.readValue(geocodeResponseJson);
+    }
+
+    @Benchmark
+    public byte[] serializeAddressApi() throws IOException {
+        return addressApiWriter.writeValueAsBytes(addressApi);
+    }
+
+    @Benchmark
+    public AddressApi deserializeAddressApi() throws IOException {
+        return addressApiReader.readValue(addressApiJson);
+    }
+
+    @Benchmark
+    public byte[] serializeGeocodeResponse() throws IOException {
+        return geocodeResponseWriter.writeValueAsBytes(geocodeResponse);
+    }
+
+    @Benchmark
+    public GeocodeResponse deserializeGeocodeResponse() throws IOException {
+        return geocodeResponseReader.readValue(geocodeResponseJson);
+    }
+}
@@ -0,0 +1,64 @@
+package br.com.stoom.benchmark;
+
+import br.com.stoom.index.TrigramIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Autocomplete latency over synthetic street, neighbourhood and city names built from a small vocabulary, so
+ * common trigrams such as the ones of "rua" or "avenida" have long posting lists as in real data.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TrigramIndexBenchmark {
+
+    private static final String[] TYPES = {"Rua", "Avenida", "Travessa", "Alameda", "Praca"};
+    private static final String[] NAMES = {"Paulista", "Brigadeiro Faria Lima", "Rebouças", "Consolação", "Augusta",
+            "Zuneide Aparecida Marin", "Barão Geraldo", "Santos Dumont", "Tiradentes", "Dom Pedro II", "Ipiranga",
+            "Sete de Setembro", "Quinze de Novembro", "Marechal Deodoro", "Getúlio Vargas", "Presidente Vargas"};
+    private static final String[] CITIES = {"São Paulo", "Campinas", "Santos", "Sorocaba", "Ribeirão Preto",
+            "Rio de Janeiro", "Belo Horizonte", "Curitiba", "Porto Alegre", "Salvador"};
+
+    @Param({"100000"})
+    private int addresses;
+
+    private final TrigramIndex index = new TrigramIndex();
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        for (int i = 0; i < addresses; i++) {
+            String street = TYPES[random.nextInt(TYPES.length)] + " " + NAMES[random.nextInt(NAMES.length)] + " " + i;
+            index.put(new UUID(random.nextLong(), random.nextLong()),
+                    street + " Jardim " + NAMES[random.nextInt(NAMES.length)] + " " + CITIES[random.nextInt(CITIES.length)]);
+        }
+    }
+
+    @Benchmark
+    public List<UUID> rareWord() {
+        return index.suggest("zunide apar", 10);
+    }
+
+    @Benchmark
+    public List<UUID> commonWords() {
+        return index.suggest("avenida paulis", 10);
+    }
+}
@@ -0,0 +1,100 @@
+package br.com.stoom.loadtest;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * In-process stand-in for the Google Geocoding API. Every request waits for a latency drawn from a log-normal
+ * distribution defined by its median and 99th percentile, then answers with an HTTP 500, an
+ * {@code OVER_QUERY_LIMIT} status, a {@code ZERO_RESULTS} status or a regular result, at the configured rates.
+ */
+public class GeocodeStub implements AutoCloseable {
+
+    static final String PATH = "/maps/api/geocode/json";
+
+    private static final double Z_99 = 2.326;
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final double mu;
+    private final double sigma;
+    private final double errorRate;
+    private final double quotaExceededRate;
+    private final double zeroResultsRate;
+    private final AtomicLong requests = new AtomicLong();
+
+    public GeocodeStub(double medianMillis, double p99Millis, double errorRate, double quotaExceededRate,
+                       double zeroResultsRate) throws IOException {
+        this.mu = Math.log(medianMillis);
+        this.sigma = Math.max(0, Math.log(p99Millis / medianMillis) / Z_99);
+        this.errorRate = errorRate;
+        this.quotaExceededRate = quotaExceededRate;
+        this.zeroResultsRate = zeroResultsRate;
+        this.server = HttpServer.create(new InetSocketAddress("localhost", 0), 1024);
+        this.server.createContext(PATH, this::handle);
+        this.server.setExecutor(executor);
+        this.server.start();
+    }
+
+    public String baseUrl() {
+        return "http://localhost:" + server.getAddress().getPort() + PATH;
+    }
+
+    public long requests() {
+        return requests.get();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        sleep((long) Math.exp(mu + sigma * random.nextGaussian()));
+        double outcome = random.nextDouble();
+        if (outcome < errorRate) {
+            respond(exchange, 500, "{\"error_message\":\"stub failure\"}");
+        } else if (outcome < errorRate + quotaExceededRate) {
+            respond(exchange, 200, "{\"results\":[],\"status\":\"OVER_QUERY_LIMIT\"}");
+        } else if (outcome < errorRate + quotaExceededRate + zeroResultsRate) {
+            respond(exchange, 200, "{\"results\":[],\"status\":\"ZERO_RESULTS\"}");
+        } else {
+            double latitude = -23 + random.nextDouble();
+            double longitude = -47 + random.nextDouble();
+            respond(exchange, 200, String.format(Locale.ROOT,
+                    "{\"results\":[{\"geometry\":{\"location\":{\"lat\":%.7f,\"lng\":%.7f}}}],\"status\":\"OK\"}",
+                    latitude, longitude));
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json; charset=UTF-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream output = exchange.getResponseBody()) {
+            output.write(bytes);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            TimeUnit.MILLISECONDS.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,52 @@
+package br.com.stoom.loadtest;
+
+import java.util.Arrays;
+import java.util.Locale;
+
+/**
+ * Latencies and outcomes of one endpoint. Samples are kept in a growable array, which is fine for the
+ * few million requests of a load test run.
+ */
+class LatencyRecorder {
+
+    private final String endpoint;
+    private long[] latenciesMicros = new long[1024];
+    private int count;
+    private int errors;
+
+    LatencyRecorder(String endpoint) {
+        this.endpoint = endpoint;
+    }
+
+    synchronized void record(long latencyMicros, boolean error) {
+        if (count == latenciesMicros.length) {
+            latenciesMicros = Arrays.copyOf(latenciesMicros, count * 2);
+        }
+        latenciesMicros[count++] = latencyMicros;
+        if (error) {
+            errors++;
+        }
+    }
+
+    static String header() {
+        return String.format(Locale.ROOT, "%-28s %9s %8s %9s %9s %9s %9s %9s %9s",
+                "endpoint", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+    }
+
+    synchronized String report(double elapsedSeconds) {
+        long[] sorted = Arrays.copyOf(latenciesMicros, count);
+        Arrays.sort(sorted);
+        return String.format(Locale.ROOT, "%-28s %9d %8d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f",
+                endpoint, count, errors, count / elapsedSeconds,
+                percentile(sorted, 50), percentile(sorted, 90), percentile(sorted, 99), percentile(sorted, 99.9),
+                count == 0 ? 0 : sorted[count - 1] / 1000.0);
+    }
+
+    private static double percentile(long[] sorted, double percentile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(index, sorted.length - 1))] / 1000.0;
+    }
+}
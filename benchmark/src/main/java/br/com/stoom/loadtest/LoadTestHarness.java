@@ -0,0 +1,309 @@
+package br.com.stoom.loadtest;
+
+import br.com.stoom.StoomApplication;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Offline end-to-end load test. Starts the application against a {@link GeocodeStub} and drives an open-loop,
+ * mixed create/read/update/delete workload through {@code /api/address} at a fixed request rate.
+ * <p>
+ * Latency is measured from the moment a request was scheduled, not from when a worker picked it up, so a
+ * saturated server shows up as growing latency instead of a silently lower request rate.
+ * <p>
+ * Options are {@code key=value} arguments, see {@link #DEFAULTS}. Example:
+ * {@code java -cp benchmarks.jar br.com.stoom.loadtest.LoadTestHarness rps=500 duration=60 stubMedianMs=120}
+ */
+public class LoadTestHarness {
+
+    private static final Map<String, String> DEFAULTS = new LinkedHashMap<>();
+
+    static {
+        DEFAULTS.put("rps", "100");
+        DEFAULTS.put("duration", "30");
+        DEFAULTS.put("warmup", "5");
+        DEFAULTS.put("workers", "64");
+        DEFAULTS.put("seed", "200");
+        DEFAULTS.put("mix", "create=20,read=55,update=10,delete=5,page=10");
+        DEFAULTS.put("stubMedianMs", "80");
+        DEFAULTS.put("stubP99Ms", "400");
+        DEFAULTS.put("stubErrorRate", "0.01");
+        DEFAULTS.put("stubQuotaRate", "0.01");
+        DEFAULTS.put("stubZeroResultsRate", "0.01");
+        DEFAULTS.put("geocodeQps", "50");
+    }
+
+    private static final Map<String, String> ENDPOINTS = new LinkedHashMap<>();
+
+    static {
+        ENDPOINTS.put("create", "POST /api/address");
+        ENDPOINTS.put("read", "GET /api/address/{id}");
+        ENDPOINTS.put("update", "PUT /api/address/{id}");
+        ENDPOINTS.put("delete", "DELETE /api/address/{id}");
+        ENDPOINTS.put("page", "GET /api/address/page");
+    }
+
+    private static final Pattern ID = Pattern.compile("\"id\"\\s*:\\s*\"([0-9a-f-]{36})\"");
+
+    private final String baseUrl;
+    private final AddressIds ids = new AddressIds();
+    private final Map<String, LatencyRecorder> recorders = new LinkedHashMap<>();
+    private final List<String> operations = new ArrayList<>();
+
+    LoadTestHarness(String baseUrl, String mix) {
+        this.baseUrl = baseUrl;
+        for (String entry : mix.split(",")) {
+            String[] weight = entry.split("=");
+            if (!ENDPOINTS.containsKey(weight[0].trim())) {
+                throw new IllegalArgumentException("Unknown operation " + weight[0]);
+            }
+            for (int i = 0; i < Integer.parseInt(weight[1].trim()); i++) {
+                operations.add(weight[0].trim());
+            }
+        }
+        ENDPOINTS.values().forEach(endpoint -> recorders.put(endpoint, new LatencyRecorder(endpoint)));
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        for (String arg : args) {
+            int separator = arg.indexOf('=');
+            options.put(arg.substring(0, separator), arg.substring(separator + 1));
+        }
+        int workers = Integer.parseInt(options.get("workers"));
+        System.setProperty("http.maxConnections", String.valueOf(workers));
+
+        try (GeocodeStub stub = new GeocodeStub(
+                Double.parseDouble(options.get("stubMedianMs")), Double.parseDouble(options.get("stubP99Ms")),
+                Double.parseDouble(options.get("stubErrorRate")), Double.parseDouble(options.get("stubQuotaRate")),
+                Double.parseDouble(options.get("stubZeroResultsRate")));
+             ConfigurableApplicationContext context = startApplication(stub.baseUrl(), options.get("geocodeQps"))) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            LoadTestHarness harness = new LoadTestHarness("http://localhost:" + port + "/api/address", options.get("mix"));
+            harness.seed(Integer.parseInt(options.get("seed")));
+
+            ExecutorService pool = Executors.newFixedThreadPool(workers);
+            try {
+                int rps = Integer.parseInt(options.get("rps"));
+                System.out.printf("Warming up for %ss at %d req/s%n", options.get("warmup"), rps);
+                harness.run(pool, rps, Integer.parseInt(options.get("warmup")));
+                harness.reset();
+                System.out.printf("Measuring for %ss at %d req/s%n", options.get("duration"), rps);
+                long geocodesBefore = stub.requests();
+                double elapsed = harness.run(pool, rps, Integer.parseInt(options.get("duration")));
+                harness.report(elapsed);
+                System.out.printf(Locale.ROOT, "geocoding stub: %d requests (%.1f/s)%n",
+                        stub.requests() - geocodesBefore, (stub.requests() - geocodesBefore) / elapsed);
+            } finally {
+                pool.shutdownNow();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(String geocodeBaseUrl, String geocodeQps) {
+        return SpringApplication.run(StoomApplication.class,
+                "--server.port=0",
+                "--spring.jpa.show-sql=false",
+                "--spring.datasource.url=jdbc:h2:mem:loadtest",
+                "--stoom.google.api.base-url=" + geocodeBaseUrl,
+                "--stoom.google.api.rate-limit.qps=" + geocodeQps,
+                "--logging.level.root=WARN",
+                // injected geocoding failures surface as 500s; their stack traces would drown the report
+                "--logging.level.org.apache.catalina.core=OFF");
+    }
+
+    private void seed(int count) throws IOException {
+        for (int i = 0; i < count; i++) {
+            String id = extractId(call("POST", baseUrl, addressJson(true)).body);
+            if (id != null) {
+                ids.add(id);
+            }
+        }
+    }
+
+    /**
+     * Dispatches requests at evenly spaced intended start times for the given duration and waits for the ones
+     * still in flight. Returns the elapsed wall-clock time in seconds.
+     */
+    private double run(ExecutorService pool, int rps, int seconds) throws InterruptedException {
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / rps;
+        long start = System.nanoTime();
+        long total = (long) rps * seconds;
+        List<Future<?>> pending = new ArrayList<>();
+        for (long i = 0; i < total; i++) {
+            long intended = start + i * intervalNanos;
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            String operation = operations.get(ThreadLocalRandom.current().nextInt(operations.size()));
+            pending.add(pool.submit(() -> execute(operation, intended)));
+        }
+        for (Future<?> future : pending) {
+            try {
+                future.get();
+            } catch (ExecutionException ignored) {
+                // failures are already recorded by execute
+            }
+        }
+        return (System.nanoTime() - start) / 1e9;
+    }
+
+    private void execute(String operation, long intendedStart) {
+        Response response;
+        try {
+            switch (operation) {
+                case "create":
+                    response = call("POST", baseUrl, addressJson(false));
+                    String created = extractId(response.body);
+                    if (created != null) {
+                        ids.add(created);
+                    }
+                    break;
+                case "read":
+                    response = call("GET", baseUrl + "/" + ids.random(), null);
+                    break;
+                case "update":
+                    response = call("PUT", baseUrl + "/" + ids.random(), addressJson(ThreadLocalRandom.current().nextBoolean()));
+                    break;
+                case "delete":
+                    response = call("DELETE", baseUrl + "/" + ids.take(), null);
+                    break;
+                default:
+                    response = call("GET", baseUrl + "/page?size=50", null);
+                    break;
+            }
+        } catch (IOException e) {
+            response = new Response(-1, null);
+        }
+        long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - intendedStart);
+        // 404s come from reads and updates racing deletes of the same random id, not from the server
+        boolean error = response.status < 0 || (response.status >= 400 && response.status != 404);
+        recorders.get(ENDPOINTS.get(operation)).record(latencyMicros, error);
+    }
+
+    private void reset() {
+        recorders.replaceAll((endpoint, recorder) -> new LatencyRecorder(endpoint));
+    }
+
+    private void report(double elapsedSeconds) {
+        System.out.println(LatencyRecorder.header());
+        recorders.values().forEach(recorder -> System.out.println(recorder.report(elapsedSeconds)));
+    }
+
+    /**
+     * Addresses with a random street number so that the geocode cache does not absorb the load; with
+     * coordinates the request never reaches the geocoding stub.
+     */
+    private static String addressJson(boolean withCoordinates) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        StringBuilder json = new StringBuilder()
+                .append("{\"streetName\":\"Avenida Paulista\",\"number\":").append(random.nextInt(1, 1_000_000))
+                .append(",\"neighbourhood\":\"Bela Vista\",\"city\":\"Sao Paulo\",\"state\":\"SP\"")
+                .append(",\"country\":\"Brasil\",\"zipcode\":\"01310-100\"");
+        if (withCoordinates) {
+            json.append(String.format(Locale.ROOT, ",\"latitude\":\"%.7f\",\"longitude\":\"%.7f\"",
+                    -23 + random.nextDouble(), -47 + random.nextDouble()));
+        }
+        return json.append('}').toString();
+    }
+
+    private static String extractId(String body) {
+        if (body == null) {
+            return null;
+        }
+        Matcher matcher = ID.matcher(body);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static Response call(String method, String url, String body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(url).openConnection();
+        connection.setRequestMethod(method);
+        connection.setConnectTimeout(5_000);
+        connection.setReadTimeout(30_000);
+        if (body != null) {
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            try (OutputStream output = connection.getOutputStream()) {
+                output.write(body.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        int status = connection.getResponseCode();
+        InputStream input = status >= 400 ? connection.getErrorStream() : connection.getInputStream();
+        return new Response(status, input == null ? null : read(input));
+    }
+
+    private static String read(InputStream input) throws IOException {
+        try (InputStream in = input) {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            byte[] chunk = new byte[4096];
+            for (int read; (read = in.read(chunk)) != -1; ) {
+                buffer.write(chunk, 0, read);
+            }
+            return new String(buffer.toByteArray(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static final class Response {
+
+        private final int status;
+        private final String body;
+
+        private Response(int status, String body) {
+            this.status = status;
+            this.body = body;
+        }
+    }
+
+    /**
+     * Ids of the addresses created so far, sampled at random by reads, updates and deletes.
+     */
+    private static final class AddressIds {
+
+        private final List<String> ids = new ArrayList<>();
+
+        synchronized void add(String id) {
+            ids.add(id);
+        }
+
+        synchronized String random() {
+            return ids.isEmpty() ? "00000000-0000-0000-0000-000000000000"
+                    : ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+        }
+
+        synchronized String take() {
+            if (ids.isEmpty()) {
+                return "00000000-0000-0000-0000-000000000000";
+            }
+            int index = ThreadLocalRandom.current().nextInt(ids.size());
+            String id = ids.get(index);
+            ids.set(index, ids.get(ids.size() - 1));
+            ids.remove(ids.size() - 1);
+            return id;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package br.com.stoom.service;
+
+import br.com.stoom.benchmark.Fixtures;
+import br.com.stoom.entity.Address;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of turning an address into the Google request URI. Lives in the service package to reach the
+ * package-private helpers of {@link LatitudeLongitudeService}. {@link #fullAddressWithCharReplace()} is the
+ * baseline for the {@code replaceAll(" ", "+")} regex in {@code getFullAddress}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GeocodeRequestBenchmark {
+
+    private static final String BASE_URL = "https://maps.googleapis.com/maps/api/geocode/json";
+
+    private final Address address = Fixtures.address();
+
+    @Benchmark
+    public String fullAddress() {
+        return LatitudeLongitudeService.getFullAddress(address);
+    }
+
+    @Benchmark
+    public String fullAddressWithCharReplace() {
+        return (address.getStreetName() + ", " + address.getNumber() + ". " + address.getCity() + " - "
+                + address.getState() + ", " + address.getCountry() + ". " + address.getZipcode()).replace(' ', '+');
+    }
+
+    @Benchmark
+    public String uri() {
+        return LatitudeLongitudeService.buildUri(BASE_URL, address).toUriString();
+    }
+
+    @Benchmark
+    public String uriWithKey() {
+        return LatitudeLongitudeService.buildUri(BASE_URL, address).queryParam("key", "benchmark-key").toUriString();
+    }
+}
@@ -0,0 +1,52 @@
+package br.com.stoom.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stoom.address")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class AddressProperties {
+
+    private Page page = new Page();
+    private SpatialIndex spatialIndex = new SpatialIndex();
+    private Cache cache = new Cache();
+    private Export export = new Export();
+
+    @Data
+    public static class Page {
+
+        private int defaultSize = 100;
+        private int maxSize = 1_000;
+    }
+
+    @Data
+    public static class SpatialIndex {
+
+        private double cellSizeDegrees = 0.05;
+    }
+
+    @Data
+    public static class Cache {
+
+        private long maximumSize = 10_000;
+        private Duration ttl = Duration.ofMinutes(10);
+    }
+
+    @Data
+    public static class Export {
+
+        /**
+         * How long {@code /stream} and {@code /export} may take to write the whole table; every other asynchronous
+         * request keeps {@code spring.mvc.async.request-timeout}.
+         */
+        private Duration timeout = Duration.ofHours(1);
+    }
+}
@@ -0,0 +1,60 @@
+package br.com.stoom.configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+@Configuration
+public class GeocodingExecutorConfiguration {
+
+    @Bean
+    public ThreadPoolTaskExecutor geocodingEnrichmentExecutor(GeocodingProperties geocodingProperties) {
+        GeocodingProperties.Enrichment enrichment = geocodingProperties.getEnrichment();
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(enrichment.getCorePoolSize());
+        executor.setMaxPoolSize(enrichment.getMaxPoolSize());
+        executor.setQueueCapacity(enrichment.getQueueCapacity());
+        executor.setThreadNamePrefix("geocoding-enrichment-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        return executor;
+    }
+
+    /**
+     * Persists addresses whose geocode completed on the HTTP client's I/O threads, which must never block on
+     * the database. The queue is bounded: once it is full the write is rejected with a
+     * {@link org.springframework.core.task.TaskRejectedException}, answered with {@code 503}, instead of piling up
+     * geocoded addresses in memory.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor geocodedAddressWriteExecutor(GeocodingProperties geocodingProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(geocodingProperties.getAsync().getWriteConcurrency());
+        executor.setMaxPoolSize(geocodingProperties.getAsync().getWriteConcurrency());
+        executor.setQueueCapacity(geocodingProperties.getAsync().getWriteQueueCapacity());
+        executor.setThreadNamePrefix("geocoded-write-");
+        return executor;
+    }
+
+    /**
+     * Only fires the delayed hedge requests; the requests themselves are non-blocking.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler geocodingHedgeScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("geocoding-hedge-");
+        return scheduler;
+    }
+
+    /**
+     * Hands rate limit tokens to the waiting geocoding calls as the bucket refills.
+     */
+    @Bean
+    public ThreadPoolTaskScheduler geocodingRateLimitScheduler() {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(1);
+        scheduler.setThreadNamePrefix("geocoding-rate-limit-");
+        return scheduler;
+    }
+}
@@ -0,0 +1,49 @@
+package br.com.stoom.configuration;
+
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.apache.http.impl.nio.conn.PoolingNHttpClientConnectionManager;
+import org.apache.http.impl.nio.reactor.DefaultConnectingIOReactor;
+import org.apache.http.impl.nio.reactor.IOReactorConfig;
+import org.apache.http.nio.reactor.IOReactorException;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class GeocodingHttpClientConfiguration {
+
+    /**
+     * Non-blocking client for the Google Geocoding API: {@code ioThreads} selector threads multiplex every pooled
+     * connection, so no thread waits on a response. Expired keep-alive connections are dropped when leased.
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpAsyncClient geocodingHttpClient(GoogleGeocodeApiProperties apiProperties) throws IOReactorException {
+        IOReactorConfig ioReactorConfig = IOReactorConfig.custom()
+                .setIoThreadCount(apiProperties.getIoThreads())
+                .setConnectTimeout((int) apiProperties.getConnectTimeout().toMillis())
+                .setSoTimeout((int) apiProperties.getReadTimeout().toMillis())
+                .build();
+        PoolingNHttpClientConnectionManager connectionManager =
+                new PoolingNHttpClientConnectionManager(new DefaultConnectingIOReactor(ioReactorConfig));
+        connectionManager.setMaxTotal(apiProperties.getMaxConnections());
+        connectionManager.setDefaultMaxPerRoute(apiProperties.getMaxConnections());
+        RequestConfig requestConfig = RequestConfig.custom()
+                .setConnectTimeout((int) apiProperties.getConnectTimeout().toMillis())
+                .setSocketTimeout((int) apiProperties.getReadTimeout().toMillis())
+                .setConnectionRequestTimeout((int) apiProperties.getConnectionRequestTimeout().toMillis())
+                .build();
+        long keepAlive = apiProperties.getKeepAlive().toMillis();
+        CloseableHttpAsyncClient httpClient = HttpAsyncClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(requestConfig)
+                .setKeepAliveStrategy((response, context) -> {
+                    long serverKeepAlive = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+                    return serverKeepAlive > 0 ? Math.min(serverKeepAlive, keepAlive) : keepAlive;
+                })
+                .build();
+        httpClient.start();
+        return httpClient;
+    }
+}
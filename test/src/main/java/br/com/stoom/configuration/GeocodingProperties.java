@@ -0,0 +1,90 @@
+package br.com.stoom.configuration;
+
+import br.com.stoom.geocoder.GeocodePrecision;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stoom.geocoding")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class GeocodingProperties {
+
+    private GeocodePrecision defaultPrecision = GeocodePrecision.APPROXIMATE;
+    private Gazetteer gazetteer = new Gazetteer();
+    private Enrichment enrichment = new Enrichment();
+    private Batch batch = new Batch();
+    private Async async = new Async();
+    private Refresh refresh = new Refresh();
+
+    @Data
+    public static class Gazetteer {
+
+        private String path;
+    }
+
+    @Data
+    public static class Enrichment {
+
+        private int corePoolSize = 2;
+        private int maxPoolSize = 4;
+        private int queueCapacity = 1_000;
+    }
+
+    @Data
+    public static class Batch {
+
+        /**
+         * Geocodes of one batch in flight at a time; the next one starts when one completes.
+         */
+        private int concurrency = 8;
+        /**
+         * Largest batch accepted; must not exceed {@code stoom.google.api.rate-limit.background-queue-capacity}.
+         */
+        private int maxSize = 1_000;
+    }
+
+    @Data
+    public static class Async {
+
+        /**
+         * Threads that write addresses once their non-blocking geocode completes.
+         */
+        private int writeConcurrency = 8;
+        /**
+         * Geocoded addresses waiting for a write thread; further ones are rejected with {@code 503}.
+         */
+        private int writeQueueCapacity = 1_000;
+    }
+
+    @Data
+    public static class Refresh {
+
+        private boolean enabled = true;
+        /**
+         * Delay between the end of a sweeper run and the start of the next one. Bound through
+         * {@code @Scheduled}, so it has to be an ISO-8601 duration.
+         */
+        private Duration interval = Duration.ofMinutes(1);
+        private Duration maxAge = Duration.ofDays(30);
+        private Duration passInterval = Duration.ofDays(1);
+        private int batchSize = 100;
+        private int maxPerRun = 500;
+        /**
+         * Wait before retrying an address whose refresh failed, doubled on every further failure up to
+         * {@code max-failure-backoff}.
+         */
+        private Duration failureBackoff = Duration.ofDays(1);
+        private Duration maxFailureBackoff = Duration.ofDays(30);
+        /**
+         * How long a run holds the sweeper lease without writing a page; a crashed instance releases it after this.
+         */
+        private Duration lease = Duration.ofMinutes(10);
+    }
+}
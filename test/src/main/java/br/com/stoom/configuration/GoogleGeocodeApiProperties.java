@@ -6,6 +6,8 @@ import lombok.NoArgsConstructor;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 @ConfigurationProperties(prefix = "stoom.google.api")
 @Data
@@ -15,4 +17,42 @@ public class GoogleGeocodeApiProperties {
 
     private String apiKey;
     private String baseUrl;
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration readTimeout = Duration.ofSeconds(5);
+    private Duration connectionRequestTimeout = Duration.ofSeconds(1);
+    private int maxConnections = 50;
+    private int ioThreads = 2;
+    private Duration keepAlive = Duration.ofSeconds(30);
+    private Cache cache = new Cache();
+    private Hedge hedge = new Hedge();
+    private RateLimit rateLimit = new RateLimit();
+
+    @Data
+    public static class Cache {
+
+        private long maximumSize = 10_000;
+        private Duration ttl = Duration.ofHours(24);
+        private long negativeMaximumSize = 1_000;
+        private Duration negativeTtl = Duration.ofMinutes(5);
+    }
+
+    @Data
+    public static class Hedge {
+
+        private boolean enabled = false;
+        private double percentile = 95;
+        private Duration minDelay = Duration.ofMillis(50);
+        private Duration warmupDelay;
+        private int sampleSize = 512;
+    }
+
+    @Data
+    public static class RateLimit {
+
+        private boolean enabled = true;
+        private double qps = 50;
+        private int burst = 50;
+        private int interactiveQueueCapacity = 200;
+        private int backgroundQueueCapacity = 1_000;
+    }
 }
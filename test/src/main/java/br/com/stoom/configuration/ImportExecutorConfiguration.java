@@ -0,0 +1,22 @@
+package br.com.stoom.configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class ImportExecutorConfiguration {
+
+    /**
+     * Runs at most {@code concurrentJobs} imports at a time; the others wait in the queue. On shutdown running
+     * imports are interrupted and stay {@code RUNNING}, so they resume from their last checkpoint on the next start.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor importExecutor(ImportProperties importProperties) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(importProperties.getConcurrentJobs());
+        executor.setMaxPoolSize(importProperties.getConcurrentJobs());
+        executor.setThreadNamePrefix("address-import-");
+        return executor;
+    }
+}
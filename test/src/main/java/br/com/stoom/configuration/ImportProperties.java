@@ -0,0 +1,33 @@
+package br.com.stoom.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stoom.import")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class ImportProperties {
+
+    /**
+     * Only files under this directory can be imported.
+     */
+    private String directory = "./import";
+    private int chunkSize = 500;
+    private int concurrentJobs = 2;
+    /**
+     * How long an instance holds the lease on a job without checkpointing a chunk; the job of a crashed instance
+     * is resumed elsewhere after this.
+     */
+    private Duration lease = Duration.ofMinutes(10);
+    /**
+     * How often running jobs whose lease expired are looked for and resumed.
+     */
+    private Duration resumeInterval = Duration.ofMinutes(1);
+}
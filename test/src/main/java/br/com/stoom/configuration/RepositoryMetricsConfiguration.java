@@ -0,0 +1,59 @@
+package br.com.stoom.configuration;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aopalliance.intercept.MethodInterceptor;
+import org.springframework.aop.framework.Advised;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.repository.Repository;
+
+/**
+ * Times every Spring Data repository call as {@code spring.data.repository.invocations}, tagged by repository,
+ * method and outcome. The advice is added in front of the repository proxy chain, so the timing includes the
+ * transaction and the query. Methods returning a {@link java.util.stream.Stream} are timed until the stream is
+ * opened, not until it is consumed.
+ */
+@Configuration
+public class RepositoryMetricsConfiguration {
+
+    @Bean
+    public static BeanPostProcessor repositoryMetricsPostProcessor(ObjectProvider<MeterRegistry> meterRegistry) {
+        return new BeanPostProcessor() {
+
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof Repository && bean instanceof Advised && !((Advised) bean).isFrozen()) {
+                    Class<?>[] interfaces = ((Advised) bean).getProxiedInterfaces();
+                    String repository = interfaces.length == 0 ? beanName : interfaces[0].getSimpleName();
+                    ((Advised) bean).addAdvice(0, timing(meterRegistry, repository));
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static MethodInterceptor timing(ObjectProvider<MeterRegistry> meterRegistry, String repository) {
+        return invocation -> {
+            MeterRegistry registry = meterRegistry.getIfAvailable();
+            if (registry == null) {
+                return invocation.proceed();
+            }
+            Timer.Sample sample = Timer.start(registry);
+            String state = "SUCCESS";
+            try {
+                return invocation.proceed();
+            } catch (Throwable e) {
+                state = "ERROR";
+                throw e;
+            } finally {
+                sample.stop(registry.timer("spring.data.repository.invocations",
+                        "repository", repository,
+                        "method", invocation.getMethod().getName(),
+                        "state", state));
+            }
+        };
+    }
+}
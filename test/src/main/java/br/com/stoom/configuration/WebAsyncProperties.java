@@ -0,0 +1,25 @@
+package br.com.stoom.configuration;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+@Configuration
+@ConfigurationProperties(prefix = "stoom.web.async")
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class WebAsyncProperties {
+
+    /**
+     * Timeout of every asynchronous request but the whole-table ones, see {@code stoom.address.export.timeout}.
+     */
+    private Duration requestTimeout = Duration.ofSeconds(30);
+    private int corePoolSize = 8;
+    private int maxPoolSize = 16;
+    private int queueCapacity = 100;
+}
@@ -0,0 +1,39 @@
+package br.com.stoom.configuration;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Runs the {@code Callable}, {@code WebAsyncTask} and {@code StreamingResponseBody} handlers. Spring Boot only
+ * provides its {@code applicationTaskExecutor} when no other executor is defined, which the geocoding and import
+ * executors prevent, so without this MVC falls back to a thread per request. A request that does not fit in the
+ * queue is rejected with {@code 503}.
+ */
+@Configuration
+public class WebMvcAsyncConfiguration implements WebMvcConfigurer {
+
+    private final WebAsyncProperties webAsyncProperties;
+
+    public WebMvcAsyncConfiguration(WebAsyncProperties webAsyncProperties) {
+        this.webAsyncProperties = webAsyncProperties;
+    }
+
+    @Bean
+    public ThreadPoolTaskExecutor mvcAsyncExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(webAsyncProperties.getCorePoolSize());
+        executor.setMaxPoolSize(webAsyncProperties.getMaxPoolSize());
+        executor.setQueueCapacity(webAsyncProperties.getQueueCapacity());
+        executor.setThreadNamePrefix("mvc-async-");
+        return executor;
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setDefaultTimeout(webAsyncProperties.getRequestTimeout().toMillis());
+        configurer.setTaskExecutor(mvcAsyncExecutor());
+    }
+}
@@ -1,16 +1,60 @@
 package br.com.stoom.controller;
 
+import br.com.stoom.configuration.AddressProperties;
+import br.com.stoom.configuration.GeocodingProperties;
 import br.com.stoom.entity.Address;
+import br.com.stoom.entity.AddressChange;
+import br.com.stoom.entity.AddressChangeType;
+import br.com.stoom.exception.BatchTooLargeException;
+import br.com.stoom.exception.InvalidPatchException;
+import br.com.stoom.exception.InvalidSortException;
+import br.com.stoom.exporter.AddressExportWriter;
+import br.com.stoom.exporter.ExportFormat;
+import br.com.stoom.geocoder.GeocodePrecision;
 import br.com.stoom.model.api.AddressApi;
+import br.com.stoom.model.api.AddressBatchItemApi;
+import br.com.stoom.model.api.AddressChangePageApi;
+import br.com.stoom.model.api.AddressPageApi;
+import br.com.stoom.repository.AddressFilter;
 import br.com.stoom.service.AddressService;
+import br.com.stoom.service.BatchSaveResult;
+import br.com.stoom.service.UpsertResult;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.node.ObjectNode;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.context.request.async.WebAsyncTask;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import javax.servlet.http.HttpServletResponse;
+import javax.validation.ConstraintViolation;
+import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
+import javax.validation.Validator;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 import static br.com.stoom.entity.Address.fromModel;
@@ -19,29 +63,234 @@ import static br.com.stoom.entity.Address.fromModel;
 @RequestMapping("/api/address")
 public class AddressController {
 
+    private static final MediaType APPLICATION_NDJSON = MediaType.parseMediaType("application/x-ndjson");
+    private static final MediaType APPLICATION_GZIP = MediaType.parseMediaType("application/gzip");
+    private static final Set<String> PATCHABLE_FIELDS = new LinkedHashSet<>(Arrays.asList(
+            "streetName", "number", "complement", "neighbourhood", "city", "state", "country", "zipcode", "latitude", "longitude"));
+    private static final Set<String> SORTABLE_FIELDS = new LinkedHashSet<>(Arrays.asList(
+            "id", "streetName", "number", "complement", "neighbourhood", "city", "state", "country", "zipcode", "latitude", "longitude"));
+
     @Autowired
     private AddressService addressService;
 
+    @Autowired
+    private GeocodingProperties geocodingProperties;
+
+    @Autowired
+    private AddressProperties addressProperties;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    /**
+     * With {@code upsert=true} an address that is already stored is returned with {@code 200 OK} instead of being
+     * rejected with {@code 409 Conflict}; neither case calls the geocoder. Otherwise the request thread is released
+     * while the address is geocoded and the response is written once it is stored.
+     */
     @PostMapping
-    public ResponseEntity<AddressApi> create(@Valid @RequestBody AddressApi addressApi) {
-        Address persisted = addressService.save(fromModel(addressApi));
-        return ResponseEntity.created(URI.create("/api/address/" + persisted.getId().toString())).body(persisted.toModel());
+    public CompletableFuture<ResponseEntity<AddressApi>> create(@Valid @RequestBody AddressApi addressApi,
+                                                                @RequestParam(name = "deferGeocoding", defaultValue = "false") boolean deferGeocoding,
+                                                                @RequestParam(name = "precision", required = false) GeocodePrecision precision,
+                                                                @RequestParam(name = "upsert", defaultValue = "false") boolean upsert) {
+        if (upsert) {
+            return addressService.saveOrGetExistingAsync(fromModel(addressApi), deferGeocoding, precision).thenApply(result -> {
+                Address address = result.getAddress();
+                URI location = URI.create("/api/address/" + address.getId().toString());
+                return (result.isCreated() ? ResponseEntity.created(location) : ResponseEntity.ok().location(location))
+                        .eTag(eTag(address))
+                        .body(address.toModel());
+            });
+        }
+        CompletableFuture<Address> persisted = deferGeocoding
+                ? CompletableFuture.completedFuture(addressService.saveWithDeferredGeocoding(fromModel(addressApi)))
+                : addressService.saveAsync(fromModel(addressApi), precision);
+        return persisted.thenApply(address -> ResponseEntity.created(URI.create("/api/address/" + address.getId().toString()))
+                .eTag(eTag(address))
+                .body(address.toModel()));
     }
 
+    @PostMapping("/batch")
+    public CompletableFuture<ResponseEntity<List<AddressBatchItemApi>>> createBatch(@RequestBody List<AddressApi> addressApis,
+                                                                                    @RequestParam(name = "precision", required = false) GeocodePrecision precision) {
+        if (addressApis.size() > geocodingProperties.getBatch().getMaxSize()) {
+            throw new BatchTooLargeException(geocodingProperties.getBatch().getMaxSize());
+        }
+        List<AddressBatchItemApi> items = new ArrayList<>(addressApis.size());
+        List<Integer> validPositions = new ArrayList<>();
+        List<Address> validAddresses = new ArrayList<>();
+        for (int i = 0; i < addressApis.size(); i++) {
+            Set<ConstraintViolation<AddressApi>> violations = validator.validate(addressApis.get(i));
+            if (violations.isEmpty()) {
+                validPositions.add(i);
+                validAddresses.add(fromModel(addressApis.get(i)));
+                items.add(null);
+            } else {
+                items.add(AddressBatchItemApi.builder().index(i).error(describe(violations)).build());
+            }
+        }
+        return addressService.saveBatchAsync(validAddresses, precision).thenApply(results -> {
+            for (int i = 0; i < results.size(); i++) {
+                int index = validPositions.get(i);
+                BatchSaveResult result = results.get(i);
+                items.set(index, result.isSaved()
+                        ? AddressBatchItemApi.builder()
+                                .index(index)
+                                .created(true)
+                                .id(result.getAddress().getId())
+                                .address(result.getAddress().toModel())
+                                .build()
+                        : AddressBatchItemApi.builder().index(index).error(result.getError()).build());
+            }
+            return ResponseEntity.ok(items);
+        });
+    }
+
+    /**
+     * Answers {@code 304 Not Modified} without building the body when {@code If-None-Match} carries the current ETag.
+     */
     @GetMapping("/{id}")
-    public ResponseEntity<AddressApi> getById(@PathVariable("id") String id) {
-        return ResponseEntity.ok(addressService.findById(UUID.fromString(id)).toModel());
+    public ResponseEntity<AddressApi> getById(@PathVariable("id") String id, WebRequest request) {
+        Address address = addressService.findById(UUID.fromString(id));
+        String eTag = eTag(address);
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).build();
+        }
+        return ResponseEntity.ok().eTag(eTag).body(address.toModel());
     }
 
+    /**
+     * Addresses matching every given field exactly. {@code sort} is a field name optionally followed by {@code ,asc}
+     * or {@code ,desc}; ties are broken by id. Without {@code page} and {@code size} every match is returned, as
+     * before paging existed; with either, one page is returned and, when there is a next one, its URI is sent in a
+     * {@code Link} header with {@code rel="next"}.
+     */
     @GetMapping
-    public ResponseEntity<List<Address>> getAll() {
-        return ResponseEntity.ok(addressService.findAll());
+    public ResponseEntity<List<AddressApi>> getAll(AddressFilter filter,
+                                                   @RequestParam(name = "page", required = false) Integer page,
+                                                   @RequestParam(name = "size", required = false) Integer size,
+                                                   @RequestParam(name = "sort", required = false) String sort) {
+        if (page == null && size == null) {
+            return ResponseEntity.ok(toModels(addressService.search(filter, toSort(sort))));
+        }
+        Slice<Address> slice = addressService.search(filter, PageRequest.of(page == null ? 0 : Math.max(page, 0), pageSize(size), toSort(sort)));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (slice.hasNext()) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("page", slice.getNumber() + 1)
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(toModels(slice.getContent()));
+    }
+
+    @GetMapping("/page")
+    public ResponseEntity<AddressPageApi> getPage(@RequestParam(name = "after", required = false) String after,
+                                                  @RequestParam(name = "size", required = false) Integer size) {
+        int pageSize = pageSize(size);
+        List<Address> addresses = addressService.findPage(after == null ? null : UUID.fromString(after), pageSize + 1);
+        boolean hasNext = addresses.size() > pageSize;
+        List<AddressApi> items = addresses.stream()
+                .limit(pageSize)
+                .map(Address::toModel)
+                .collect(Collectors.toList());
+        return ResponseEntity.ok(AddressPageApi.builder()
+                .items(items)
+                .nextCursor(hasNext ? items.get(items.size() - 1).getId().toString() : null)
+                .build());
+    }
+
+    /**
+     * Changes committed after the {@code since} cursor, oldest first, so a mirror only pulls what changed. Deletes
+     * come as {@code DELETED} tombstones; other changes carry the current state of the address.
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<AddressChangePageApi> getChanges(@RequestParam(name = "since", defaultValue = "0") long since,
+                                                           @RequestParam(name = "limit", required = false) Integer limit) {
+        int pageSize = pageSize(limit);
+        List<AddressChange> changes = addressService.findChangesSince(since, pageSize + 1);
+        boolean hasMore = changes.size() > pageSize;
+        List<AddressChange> page = hasMore ? changes.subList(0, pageSize) : changes;
+        Map<UUID, Address> addresses = addressService.findAllById(page.stream()
+                .filter(change -> change.getType() != AddressChangeType.DELETED)
+                .map(AddressChange::getAddressId)
+                .collect(Collectors.toSet()));
+        return ResponseEntity.ok(AddressChangePageApi.builder()
+                .items(page.stream()
+                        .map(change -> change.toModel(change.getType() == AddressChangeType.DELETED ? null : addresses.get(change.getAddressId())))
+                        .collect(Collectors.toList()))
+                .nextCursor(String.valueOf(page.isEmpty() ? since : page.get(page.size() - 1).getSeq()))
+                .hasMore(hasMore)
+                .build());
+    }
+
+    @GetMapping("/near")
+    public ResponseEntity<List<AddressApi>> getNear(@RequestParam("latitude") double latitude,
+                                                    @RequestParam("longitude") double longitude,
+                                                    @RequestParam("radiusKm") double radiusKm,
+                                                    @RequestParam(name = "limit", required = false) Integer limit) {
+        return ResponseEntity.ok(toModels(addressService.findWithinRadius(latitude, longitude, radiusKm, pageSize(limit))));
+    }
+
+    @GetMapping("/nearest")
+    public ResponseEntity<List<AddressApi>> getNearest(@RequestParam("latitude") double latitude,
+                                                       @RequestParam("longitude") double longitude,
+                                                       @RequestParam(name = "k", required = false) Integer k) {
+        return ResponseEntity.ok(toModels(addressService.findNearest(latitude, longitude, pageSize(k))));
+    }
+
+    @GetMapping("/suggest")
+    public ResponseEntity<List<AddressApi>> getSuggestions(@RequestParam("q") String query,
+                                                           @RequestParam(name = "limit", required = false) Integer limit) {
+        return ResponseEntity.ok(toModels(addressService.findSuggestions(query, limit == null ? 10 : pageSize(limit))));
+    }
+
+    @GetMapping("/stream")
+    public WebAsyncTask<Void> stream(HttpServletResponse response) {
+        ObjectWriter writer = objectMapper.writerFor(AddressApi.class);
+        response.setContentType(APPLICATION_NDJSON.toString());
+        return streamingTask(response, outputStream -> addressService.streamAll(address -> writeLine(writer, address, outputStream)));
+    }
+
+    /**
+     * The whole table as a gzip-compressed CSV or NDJSON download, read from one snapshot in fetch-size batches.
+     * The response is written as the rows are read, so memory use does not grow with the table and a slow client
+     * slows the read down.
+     */
+    @GetMapping("/export")
+    public WebAsyncTask<Void> export(@RequestParam(name = "format", defaultValue = "NDJSON") ExportFormat format,
+                                     HttpServletResponse response) {
+        ObjectWriter jsonWriter = objectMapper.writerFor(AddressApi.class);
+        response.setContentType(APPLICATION_GZIP.toString());
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.builder("attachment")
+                .filename("addresses." + format.getExtension() + ".gz")
+                .build()
+                .toString());
+        return streamingTask(response, outputStream -> {
+            try (AddressExportWriter writer = AddressExportWriter.of(format, outputStream, jsonWriter)) {
+                addressService.streamAll(address -> write(writer, address));
+            }
+        });
     }
 
     @PutMapping("/{id}")
-    public ResponseEntity<AddressApi> update(@PathVariable("id") String id, @Valid @RequestBody AddressApi addressApi) {
-        Address address = fromModel(addressApi).toBuilder().id(UUID.fromString(id)).build();
-        return ResponseEntity.ok(addressService.update(address).toModel());
+    public CompletableFuture<ResponseEntity<AddressApi>> update(@PathVariable("id") String id, @Valid @RequestBody AddressApi addressApi,
+                                                                @RequestParam(name = "precision", required = false) GeocodePrecision precision,
+                                                                @RequestHeader(name = "If-Match", required = false) String ifMatch) {
+        UUID addressId = UUID.fromString(id);
+        Address address = fromModel(addressApi).toBuilder().id(addressId).build();
+        return addressService.updateAsync(addressId, expectedVersion(ifMatch), stored -> address, precision)
+                .thenApply(updated -> ResponseEntity.ok().eTag(eTag(updated)).body(updated.toModel()));
+    }
+
+    @PatchMapping("/{id}")
+    public CompletableFuture<ResponseEntity<AddressApi>> patch(@PathVariable("id") String id, @RequestBody ObjectNode patch,
+                                                               @RequestParam(name = "precision", required = false) GeocodePrecision precision,
+                                                               @RequestHeader(name = "If-Match", required = false) String ifMatch) {
+        return addressService.updateAsync(UUID.fromString(id), expectedVersion(ifMatch), stored -> applyPatch(stored, patch), precision)
+                .thenApply(updated -> ResponseEntity.ok().eTag(eTag(updated)).body(updated.toModel()));
     }
 
     @DeleteMapping("/{id}")
@@ -49,4 +298,131 @@ public class AddressController {
         addressService.delete(UUID.fromString(id));
         return ResponseEntity.noContent().build();
     }
+
+    private static String describe(Set<ConstraintViolation<AddressApi>> violations) {
+        return violations.stream()
+                .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                .sorted()
+                .collect(Collectors.joining(", "));
+    }
+
+    /**
+     * JSON merge patch (RFC 7386): a field absent from the patch keeps its stored value and an explicit null clears
+     * it, which mandatory fields reject through validation. Only the address fields can be patched, anything else is
+     * rejected with 400. Latitude and longitude go together; when the patch sends neither, the stored coordinates are
+     * dropped so the service decides whether they still hold for the patched address.
+     */
+    private Address applyPatch(Address stored, ObjectNode patch) {
+        List<String> unsupported = new ArrayList<>();
+        patch.fieldNames().forEachRemaining(field -> {
+            if (!PATCHABLE_FIELDS.contains(field)) {
+                unsupported.add(field);
+            }
+        });
+        if (!unsupported.isEmpty()) {
+            throw new InvalidPatchException("Fields " + unsupported + " cannot be patched, the possible ones are " + PATCHABLE_FIELDS);
+        }
+        if (patch.has("latitude") != patch.has("longitude")) {
+            throw new InvalidPatchException("latitude and longitude must be patched together");
+        }
+        ObjectNode merged = objectMapper.valueToTree(stored.toModel());
+        merged.remove("latitude");
+        merged.remove("longitude");
+        patch.fields().forEachRemaining(field -> {
+            if (field.getValue().isNull()) {
+                merged.remove(field.getKey());
+            } else {
+                merged.set(field.getKey(), field.getValue());
+            }
+        });
+        AddressApi patched;
+        try {
+            patched = objectMapper.treeToValue(merged, AddressApi.class);
+        } catch (JsonProcessingException e) {
+            throw new InvalidPatchException("Invalid patch: " + e.getOriginalMessage());
+        }
+        Set<ConstraintViolation<AddressApi>> violations = validator.validate(patched);
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+        return fromModel(patched).toBuilder().id(stored.getId()).build();
+    }
+
+    private static String eTag(Address address) {
+        return "\"" + address.getVersion() + "\"";
+    }
+
+    /**
+     * Version required by an {@code If-Match} header: null when absent or {@code *}. Anything but a single strong
+     * ETag of this API can never match, so it maps to a version no address has.
+     */
+    private static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.length() > 2 && tag.startsWith("\"") && tag.endsWith("\"")) {
+            try {
+                return Long.valueOf(tag.substring(1, tag.length() - 1));
+            } catch (NumberFormatException e) {
+                return -1L;
+            }
+        }
+        return -1L;
+    }
+
+    private int pageSize(Integer requested) {
+        AddressProperties.Page page = addressProperties.getPage();
+        return Math.max(1, Math.min(requested == null ? page.getDefaultSize() : requested, page.getMaxSize()));
+    }
+
+    private static Sort toSort(String sort) {
+        Sort byId = Sort.by("id");
+        if (sort == null || sort.trim().isEmpty()) {
+            return byId;
+        }
+        String[] parts = sort.split(",");
+        String field = parts[0].trim();
+        if (!SORTABLE_FIELDS.contains(field)) {
+            throw new InvalidSortException("Invalid sort field '" + field + "'! The possible values are " + SORTABLE_FIELDS + ".");
+        }
+        Sort.Direction direction = parts.length > 1
+                ? Sort.Direction.fromOptionalString(parts[1].trim()).orElse(Sort.Direction.ASC)
+                : Sort.Direction.ASC;
+        return Sort.by(direction, field).and(byId);
+    }
+
+    /**
+     * Writes {@code body} to the response on the MVC async executor. A {@link StreamingResponseBody} would get the
+     * short global async timeout, so the whole-table responses are returned as a task with the export timeout.
+     */
+    private WebAsyncTask<Void> streamingTask(HttpServletResponse response, StreamingResponseBody body) {
+        return new WebAsyncTask<>(addressProperties.getExport().getTimeout().toMillis(), () -> {
+            OutputStream outputStream = response.getOutputStream();
+            body.writeTo(outputStream);
+            outputStream.flush();
+            return null;
+        });
+    }
+
+    private static List<AddressApi> toModels(List<Address> addresses) {
+        return addresses.stream().map(Address::toModel).collect(Collectors.toList());
+    }
+
+    private static void write(AddressExportWriter writer, Address address) {
+        try {
+            writer.write(address);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeLine(ObjectWriter writer, Address address, OutputStream outputStream) {
+        try {
+            outputStream.write(writer.writeValueAsBytes(address.toModel()));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
 }
@@ -1,9 +1,21 @@
 package br.com.stoom.controller;
 
+import br.com.stoom.exception.AddressAlreadyExistsException;
 import br.com.stoom.exception.AddressNotFoundException;
+import br.com.stoom.exception.AddressVersionMismatchException;
+import br.com.stoom.exception.BatchTooLargeException;
+import br.com.stoom.exception.GeocodingRateLimitExceededException;
 import br.com.stoom.exception.GoogleApiInvalidAddressInformationException;
+import br.com.stoom.exception.GoogleApiUnavailableException;
+import br.com.stoom.exception.ImportJobNotFoundException;
+import br.com.stoom.exception.InvalidImportFileException;
+import br.com.stoom.exception.InvalidPatchException;
+import br.com.stoom.exception.InvalidSortException;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.dao.InvalidDataAccessApiUsageException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -12,6 +24,9 @@ import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import javax.validation.ConstraintViolationException;
+import java.net.URI;
+
 @ControllerAdvice
 public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
 
@@ -35,6 +50,128 @@ public class GlobalExceptionHandler extends ResponseEntityExceptionHandler {
                 request);
     }
 
+    @ExceptionHandler(value = {ConstraintViolationException.class})
+    protected ResponseEntity<Object> handleConstraintViolation(RuntimeException ex, WebRequest request) {
+        return handleExceptionInternal(
+                ex,
+                "Invalid Address data!",
+                new HttpHeaders(),
+                HttpStatus.BAD_REQUEST,
+                request);
+    }
+
+    @ExceptionHandler(value = {InvalidPatchException.class, InvalidSortException.class})
+    protected ResponseEntity<Object> handleInvalidPatch(RuntimeException ex, WebRequest request) {
+        return handleExceptionInternal(
+                ex,
+                ex.getMessage(),
+                new HttpHeaders(),
+                HttpStatus.BAD_REQUEST,
+                request);
+    }
+
+    @ExceptionHandler(value = {BatchTooLargeException.class})
+    protected ResponseEntity<Object> handleBatchTooLarge(RuntimeException ex, WebRequest request) {
+        return handleExceptionInternal(
+                ex,
+                ex.getMessage(),
+                new HttpHeaders(),
+                HttpStatus.PAYLOAD_TOO_LARGE,
+                request);
+    }
+
+    @ExceptionHandler(value = {GoogleApiUnavailableException.class})
+    protected ResponseEntity<Object> handleGoogleUnavailable(RuntimeException ex, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return handleExceptionInternal(
+                ex,
+                "Geocoding service unavailable, try again later or send latitude and longitude.",
+                headers,
+                HttpStatus.SERVICE_UNAVAILABLE,
+                request);
+    }
+
+    @ExceptionHandler(value = {GeocodingRateLimitExceededException.class})
+    protected ResponseEntity<Object> handleGeocodingRateLimitExceeded(RuntimeException ex, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return handleExceptionInternal(
+                ex,
+                "Too many addresses waiting for geocoding, try again later or send latitude and longitude.",
+                headers,
+                HttpStatus.SERVICE_UNAVAILABLE,
+                request);
+    }
+
+    @ExceptionHandler(value = {TaskRejectedException.class})
+    protected ResponseEntity<Object> handleTaskRejected(RuntimeException ex, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(HttpHeaders.RETRY_AFTER, "1");
+        return handleExceptionInternal(
+                ex,
+                "Too many requests waiting to be processed, try again later.",
+                headers,
+                HttpStatus.SERVICE_UNAVAILABLE,
+                request);
+    }
+
+    @ExceptionHandler(value = {AddressVersionMismatchException.class, OptimisticLockingFailureException.class})
+    protected ResponseEntity<Object> handleVersionMismatch(RuntimeException ex, WebRequest request) {
+        return handleExceptionInternal(
+                ex,
+                "Address was modified, fetch it again",
+                new HttpHeaders(),
+                HttpStatus.PRECONDITION_FAILED,
+                request);
+    }
+
+    @ExceptionHandler(value = {AddressAlreadyExistsException.class})
+    protected ResponseEntity<Object> handleAlreadyExists(AddressAlreadyExistsException ex, WebRequest request) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setLocation(URI.create("/api/address/" + ex.getExistingId()));
+        return handleExceptionInternal(
+                ex,
+                ex.getMessage(),
+                headers,
+                HttpStatus.CONFLICT,
+                request);
+    }
+
+    /**
+     * Duplicates already surface as {@link AddressAlreadyExistsException}; any other constraint the database rejects,
+     * such as a value longer than its column, is a bad request that got past validation.
+     */
+    @ExceptionHandler(value = {DataIntegrityViolationException.class})
+    protected ResponseEntity<Object> handleDataIntegrityViolation(RuntimeException ex, WebRequest request) {
+        return handleExceptionInternal(
+                ex,
+                "Invalid Address data!",
+                new HttpHeaders(),
+                HttpStatus.BAD_REQUEST,
+                request);
+    }
+
+    @ExceptionHandler(value = {ImportJobNotFoundException.class})
+    protected ResponseEntity<Object> handleImportJobNotFound(RuntimeException ex, WebRequest request) {
+        return handleExceptionInternal(
+                ex,
+                ex.getMessage(),
+                new HttpHeaders(),
+                HttpStatus.NOT_FOUND,
+                request);
+    }
+
+    @ExceptionHandler(value = {InvalidImportFileException.class})
+    protected ResponseEntity<Object> handleInvalidImportFile(RuntimeException ex, WebRequest request) {
+        return handleExceptionInternal(
+                ex,
+                ex.getMessage(),
+                new HttpHeaders(),
+                HttpStatus.BAD_REQUEST,
+                request);
+    }
+
     @ExceptionHandler(value = {InvalidDataAccessApiUsageException.class})
     protected ResponseEntity<Object> invalidQueryStringField(RuntimeException ex, WebRequest request) {
         return handleExceptionInternal(
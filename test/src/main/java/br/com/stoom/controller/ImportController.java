@@ -0,0 +1,55 @@
+package br.com.stoom.controller;
+
+import br.com.stoom.entity.ImportJob;
+import br.com.stoom.importer.AddressImportService;
+import br.com.stoom.model.api.ImportJobApi;
+import br.com.stoom.model.api.ImportRequestApi;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import javax.validation.Valid;
+import java.net.URI;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/import")
+public class ImportController {
+
+    @Autowired
+    private AddressImportService addressImportService;
+
+    /**
+     * Starts importing a file from the import directory and answers {@code 202 Accepted} right away; progress is
+     * read from the job at the {@code Location} header.
+     */
+    @PostMapping
+    public ResponseEntity<ImportJobApi> start(@Valid @RequestBody ImportRequestApi request) {
+        ImportJob job = addressImportService.start(request);
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/import/" + job.getId().toString()))
+                .body(job.toModel());
+    }
+
+    @GetMapping
+    public ResponseEntity<List<ImportJobApi>> getAll() {
+        return ResponseEntity.ok(addressImportService.findAll().stream()
+                .map(ImportJob::toModel)
+                .collect(Collectors.toList()));
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<ImportJobApi> getById(@PathVariable("id") String id) {
+        return ResponseEntity.ok(addressImportService.findById(UUID.fromString(id)).toModel());
+    }
+
+    @PostMapping("/{id}/resume")
+    public ResponseEntity<ImportJobApi> resume(@PathVariable("id") String id) {
+        ImportJob job = addressImportService.resume(UUID.fromString(id));
+        return ResponseEntity.accepted()
+                .location(URI.create("/api/import/" + job.getId().toString()))
+                .body(job.toModel());
+    }
+}
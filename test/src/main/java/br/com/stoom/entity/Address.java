@@ -2,14 +2,25 @@ package br.com.stoom.entity;
 
 import br.com.stoom.model.api.AddressApi;
 import lombok.*;
+import org.hibernate.annotations.GenericGenerator;
 
 import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
 import javax.persistence.GeneratedValue;
-import javax.persistence.GenerationType;
 import javax.persistence.Id;
+import javax.persistence.PrePersist;
+import javax.persistence.PreUpdate;
+import javax.persistence.Version;
 import java.io.Serializable;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.util.Objects;
 import java.util.UUID;
 
+import static org.apache.commons.lang3.StringUtils.isEmpty;
+
 @Entity
 @Data
 @Builder(toBuilder = true)
@@ -17,8 +28,15 @@ import java.util.UUID;
 @NoArgsConstructor(access = AccessLevel.PACKAGE)
 public class Address implements Serializable {
 
+    /**
+     * Decimal places of the numeric(10,7) latitude and longitude columns, about 1 cm. Coordinates are rounded half up
+     * to this scale when set, so the values returned, indexed and compared are the ones the database stores.
+     */
+    public static final int COORDINATE_SCALE = 7;
+
     @Id
-    @GeneratedValue(strategy = GenerationType.AUTO)
+    @GeneratedValue(generator = "time-ordered-uuid")
+    @GenericGenerator(name = "time-ordered-uuid", strategy = "br.com.stoom.entity.TimeOrderedUuidGenerator")
     private UUID id;
     @NonNull
     private String streetName;
@@ -35,8 +53,18 @@ public class Address implements Serializable {
     private String country;
     @NonNull
     private String zipcode;
-    private String latitude;
-    private String longitude;
+    private BigDecimal latitude;
+    private BigDecimal longitude;
+    @Enumerated(EnumType.STRING)
+    private GeocodingStatus geocodingStatus;
+    private Instant geocodedAt;
+    @Enumerated(EnumType.STRING)
+    private GeocodeSource geocodeSource;
+    private int geocodeFailures;
+    private Instant geocodeRetryAt;
+    @Version
+    private Long version;
+    private String fingerprint;
 
     public static Address fromModel(AddressApi addressApi) {
         return Address.builder()
@@ -48,13 +76,14 @@ public class Address implements Serializable {
                 .state(addressApi.getState())
                 .country(addressApi.getCountry())
                 .zipcode(addressApi.getZipcode())
-                .longitude(addressApi.getLongitude())
-                .latitude(addressApi.getLatitude())
+                .longitude(toCoordinate(addressApi.getLongitude()))
+                .latitude(toCoordinate(addressApi.getLatitude()))
                 .build();
     }
 
     public AddressApi toModel() {
         return AddressApi.builder()
+                .id(this.id)
                 .streetName(this.streetName)
                 .number(this.number)
                 .complement(this.complement)
@@ -63,9 +92,144 @@ public class Address implements Serializable {
                 .state(this.state)
                 .country(this.country)
                 .zipcode(this.zipcode)
-                .latitude(this.latitude)
-                .longitude(this.longitude)
+                .latitude(fromCoordinate(this.latitude))
+                .longitude(fromCoordinate(this.longitude))
+                .geocodingStatus(this.geocodingStatus)
                 .build();
     }
-}
 
+    public boolean hasLatitudeAndLongitude() {
+        return latitude != null && longitude != null;
+    }
+
+    /**
+     * Text matched by the autocomplete suggestions.
+     */
+    public String searchableText() {
+        return streetName + " " + neighbourhood + " " + city;
+    }
+
+    /**
+     * Whether both addresses geocode the same: only the fields sent to the geocoder are compared.
+     */
+    public boolean hasSameGeocodingFieldsAs(Address other) {
+        return Objects.equals(streetName, other.streetName)
+                && Objects.equals(number, other.number)
+                && Objects.equals(city, other.city)
+                && Objects.equals(state, other.state)
+                && Objects.equals(country, other.country)
+                && Objects.equals(zipcode, other.zipcode);
+    }
+
+    /**
+     * Copies every field but the id and version from {@code changes}, so a managed entity is flushed through dirty checking.
+     * Coordinates without a source keep the stored source when they did not change, and count as sent by the
+     * client otherwise. New geocoding fields clear the failed refresh attempts, so the sweeper tries them right away.
+     */
+    public void updateFrom(Address changes) {
+        if (!hasSameGeocodingFieldsAs(changes)) {
+            this.geocodeFailures = 0;
+            this.geocodeRetryAt = null;
+        }
+        if (changes.geocodeSource != null || !hasSameCoordinatesAs(changes)) {
+            this.geocodedAt = changes.geocodedAt;
+            this.geocodeSource = changes.geocodeSource;
+        }
+        this.streetName = changes.streetName;
+        this.number = changes.number;
+        this.complement = changes.complement;
+        this.neighbourhood = changes.neighbourhood;
+        this.city = changes.city;
+        this.state = changes.state;
+        this.country = changes.country;
+        this.zipcode = changes.zipcode;
+        this.latitude = changes.latitude;
+        this.longitude = changes.longitude;
+        this.geocodingStatus = changes.geocodingStatus;
+        defaultGeocodingStatus();
+        defaultGeocodeSource();
+        refreshFingerprint();
+    }
+
+    private boolean hasSameCoordinatesAs(Address other) {
+        return sameCoordinate(latitude, other.latitude) && sameCoordinate(longitude, other.longitude);
+    }
+
+    private static boolean sameCoordinate(BigDecimal coordinate, BigDecimal other) {
+        return coordinate == null ? other == null : other != null && coordinate.compareTo(other) == 0;
+    }
+
+    private static BigDecimal toCoordinate(String coordinate) {
+        return isEmpty(coordinate) ? null : new BigDecimal(coordinate);
+    }
+
+    static BigDecimal roundCoordinate(BigDecimal coordinate) {
+        return coordinate == null || coordinate.scale() <= COORDINATE_SCALE
+                ? coordinate : coordinate.setScale(COORDINATE_SCALE, RoundingMode.HALF_UP);
+    }
+
+    public void setLatitude(BigDecimal latitude) {
+        this.latitude = roundCoordinate(latitude);
+    }
+
+    public void setLongitude(BigDecimal longitude) {
+        this.longitude = roundCoordinate(longitude);
+    }
+
+    private static String fromCoordinate(BigDecimal coordinate) {
+        return coordinate == null ? null : coordinate.stripTrailingZeros().toPlainString();
+    }
+
+    @PrePersist
+    void beforeInsert() {
+        defaultGeocodingStatus();
+        defaultGeocodeSource();
+        fingerprint = AddressFingerprint.of(this);
+    }
+
+    @PreUpdate
+    void beforeUpdate() {
+        defaultGeocodingStatus();
+        defaultGeocodeSource();
+        refreshFingerprint();
+    }
+
+    void defaultGeocodingStatus() {
+        if (geocodingStatus == null) {
+            geocodingStatus = hasLatitudeAndLongitude() ? GeocodingStatus.RESOLVED : GeocodingStatus.PENDING;
+        }
+    }
+
+    void defaultGeocodeSource() {
+        if (!hasLatitudeAndLongitude()) {
+            geocodedAt = null;
+            geocodeSource = null;
+        } else if (geocodeSource == null) {
+            geocodedAt = Instant.now();
+            geocodeSource = GeocodeSource.CLIENT;
+        }
+    }
+
+    /**
+     * Only stored addresses that have a fingerprint get a new one: the null fingerprint of a duplicate that predates
+     * the column is kept, since recomputing it would collide with the copy that holds it.
+     */
+    void refreshFingerprint() {
+        if (fingerprint != null) {
+            fingerprint = AddressFingerprint.of(this);
+        }
+    }
+
+    public static class AddressBuilder {
+
+        public AddressBuilder latitude(BigDecimal latitude) {
+            this.latitude = roundCoordinate(latitude);
+            return this;
+        }
+
+        public AddressBuilder longitude(BigDecimal longitude) {
+            this.longitude = roundCoordinate(longitude);
+            return this;
+        }
+    }
+}
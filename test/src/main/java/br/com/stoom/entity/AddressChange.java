@@ -0,0 +1,46 @@
+package br.com.stoom.entity;
+
+import br.com.stoom.model.api.AddressChangeApi;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.Id;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * One entry of the address change feed. {@code seq} is assigned in commit order, so a consumer that has read up to
+ * a sequence number never misses a change committed later with a lower one.
+ */
+@Entity
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+public class AddressChange {
+
+    @Id
+    private Long seq;
+    private UUID addressId;
+    @Enumerated(EnumType.STRING)
+    @Column(name = "change_type")
+    private AddressChangeType type;
+    private Instant changedAt;
+
+    public AddressChangeApi toModel(Address current) {
+        return AddressChangeApi.builder()
+                .seq(this.seq)
+                .addressId(this.addressId)
+                .type(this.type)
+                .changedAt(this.changedAt)
+                .address(current == null ? null : current.toModel())
+                .build();
+    }
+}
@@ -0,0 +1,26 @@
+package br.com.stoom.entity;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+
+/**
+ * Single row holding the last sequence number handed to the change feed. Writers lock it right before
+ * committing, which makes sequence order match commit order.
+ */
+@Entity
+@Data
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+public class AddressChangeHead {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+    private long lastSeq;
+}
@@ -0,0 +1,47 @@
+package br.com.stoom.entity;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.regex.Pattern;
+
+/**
+ * Canonical identity of a physical address: SHA-256, as 64 hex chars, of the street name, number, complement,
+ * city, state, country and zipcode after folding them with {@link AddressNormalizer}. The zipcode keeps
+ * only its digits. The neighbourhood is left out because it follows from the other fields and is often spelled
+ * differently; the complement stays in so that apartments in the same building remain distinct.
+ */
+public final class AddressFingerprint {
+
+    private static final Pattern NON_DIGIT = Pattern.compile("\\D+");
+    private static final char SEPARATOR = '\u001f';
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private AddressFingerprint() {
+    }
+
+    public static String of(Address address) {
+        String canonical = AddressNormalizer.normalize(address.getStreetName()) + SEPARATOR
+                + address.getNumber() + SEPARATOR
+                + AddressNormalizer.normalize(address.getComplement()) + SEPARATOR
+                + AddressNormalizer.normalize(address.getCity()) + SEPARATOR
+                + AddressNormalizer.normalize(address.getState()) + SEPARATOR
+                + AddressNormalizer.normalize(address.getCountry()) + SEPARATOR
+                + (address.getZipcode() == null ? "" : NON_DIGIT.matcher(address.getZipcode()).replaceAll(""));
+        return sha256(canonical);
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            char[] hex = new char[digest.length * 2];
+            for (int i = 0; i < digest.length; i++) {
+                hex[2 * i] = HEX[(digest[i] >> 4) & 0xf];
+                hex[2 * i + 1] = HEX[digest[i] & 0xf];
+            }
+            return new String(hex);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
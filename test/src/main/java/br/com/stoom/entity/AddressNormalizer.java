@@ -0,0 +1,55 @@
+package br.com.stoom.entity;
+
+import java.text.Normalizer;
+
+/**
+ * The one folding applied wherever address text is compared: the geocode cache keys, the fingerprints, the
+ * gazetteer keys and the autocomplete trigrams. Accents are dropped, letters are lowercased and every run of
+ * characters that are neither letters nor digits becomes a single space, so {@code "Rua  São-Paulo,"} and
+ * {@code "rua sao paulo"} are the same text.
+ */
+public final class AddressNormalizer {
+
+    private AddressNormalizer() {
+    }
+
+    /**
+     * @return the folded text, or an empty string for {@code null}
+     */
+    public static String normalize(String value) {
+        if (value == null) {
+            return "";
+        }
+        String decomposed = isAscii(value) ? value : Normalizer.normalize(value, Normalizer.Form.NFD);
+        StringBuilder normalized = new StringBuilder(decomposed.length());
+        boolean pendingSpace = false;
+        for (int i = 0; i < decomposed.length(); ) {
+            int c = decomposed.codePointAt(i);
+            i += Character.charCount(c);
+            int type = Character.getType(c);
+            if (type == Character.NON_SPACING_MARK || type == Character.COMBINING_SPACING_MARK || type == Character.ENCLOSING_MARK) {
+                continue;
+            }
+            if (!Character.isLetter(c) && type != Character.DECIMAL_DIGIT_NUMBER && type != Character.LETTER_NUMBER
+                    && type != Character.OTHER_NUMBER) {
+                pendingSpace = normalized.length() > 0;
+                continue;
+            }
+            if (pendingSpace) {
+                normalized.append(' ');
+                pendingSpace = false;
+            }
+            normalized.appendCodePoint(Character.toLowerCase(c));
+        }
+        return normalized.toString();
+    }
+
+    private static boolean isAscii(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) > 0x7f) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,36 @@
+package br.com.stoom.entity;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Single row holding where the coordinate refresh sweeper stopped: the id of the last address it went past in the
+ * current pass, or none once the pass is completed. It also holds the lease of the instance running the sweeper,
+ * so that only one instance walks the table at a time.
+ */
+@Entity
+@Data
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+public class GeocodeRefreshCheckpoint {
+
+    public static final int ID = 1;
+
+    @Id
+    private Integer id;
+    private UUID lastAddressId;
+    private Instant passStartedAt;
+    private Instant passCompletedAt;
+    private long refreshed;
+    private long failed;
+    private Instant updatedAt;
+    private String lockedBy;
+    private Instant lockedUntil;
+}
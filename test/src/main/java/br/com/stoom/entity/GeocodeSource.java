@@ -0,0 +1,10 @@
+package br.com.stoom.entity;
+
+/**
+ * Where the coordinates of an address came from.
+ */
+public enum GeocodeSource {
+    CLIENT,
+    LOCAL,
+    GOOGLE
+}
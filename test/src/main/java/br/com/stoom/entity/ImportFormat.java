@@ -0,0 +1,6 @@
+package br.com.stoom.entity;
+
+public enum ImportFormat {
+    CSV,
+    NDJSON
+}
@@ -0,0 +1,81 @@
+package br.com.stoom.entity;
+
+import br.com.stoom.model.api.ImportJobApi;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.hibernate.annotations.GenericGenerator;
+
+import javax.persistence.Entity;
+import javax.persistence.EnumType;
+import javax.persistence.Enumerated;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.UUID;
+
+/**
+ * Progress of a bulk address import. {@code byteOffset} is the position in the file right after the last
+ * committed chunk, which is where a resumed import starts reading. {@code lockedBy} is the instance running the
+ * job until {@code lockedUntil}.
+ */
+@Entity
+@Data
+@Builder(toBuilder = true)
+@AllArgsConstructor(access = AccessLevel.PACKAGE)
+@NoArgsConstructor(access = AccessLevel.PACKAGE)
+public class ImportJob {
+
+    @Id
+    @GeneratedValue(generator = "time-ordered-uuid")
+    @GenericGenerator(name = "time-ordered-uuid", strategy = "br.com.stoom.entity.TimeOrderedUuidGenerator")
+    private UUID id;
+    private String path;
+    @Enumerated(EnumType.STRING)
+    private ImportFormat format;
+    @Enumerated(EnumType.STRING)
+    private ImportJobStatus status;
+    private long fileSize;
+    private long byteOffset;
+    private long imported;
+    private long duplicates;
+    private long failed;
+    private Instant createdAt;
+    private Instant runStartedAt;
+    private long runStartRows;
+    private long runStartOffset;
+    private Instant updatedAt;
+    private Instant finishedAt;
+    private String error;
+    private String lockedBy;
+    private Instant lockedUntil;
+
+    public long getProcessed() {
+        return imported + duplicates + failed;
+    }
+
+    public ImportJobApi toModel() {
+        double seconds = runStartedAt == null ? 0
+                : Duration.between(runStartedAt, finishedAt != null ? finishedAt : Instant.now()).toMillis() / 1000.0;
+        return ImportJobApi.builder()
+                .id(this.id)
+                .path(this.path)
+                .format(this.format)
+                .status(this.status)
+                .fileSize(this.fileSize)
+                .byteOffset(this.byteOffset)
+                .imported(this.imported)
+                .duplicates(this.duplicates)
+                .failed(this.failed)
+                .createdAt(this.createdAt)
+                .updatedAt(this.updatedAt)
+                .finishedAt(this.finishedAt)
+                .error(this.error)
+                .rowsPerSecond(seconds > 0 ? (getProcessed() - runStartRows) / seconds : 0)
+                .bytesPerSecond(seconds > 0 ? (byteOffset - runStartOffset) / seconds : 0)
+                .build();
+    }
+}
@@ -0,0 +1,7 @@
+package br.com.stoom.entity;
+
+public enum ImportJobStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,60 @@
+package br.com.stoom.entity;
+
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+
+import java.io.Serializable;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Generates version 7 style UUIDs: a 48-bit Unix millisecond timestamp followed by a 12-bit sequence and 62 random
+ * bits. Consecutive ids sort after each other, so inserts append to the right edge of the primary key B-tree
+ * instead of landing on random pages. They are plain {@link UUID}s, so they share the column with the random ids
+ * generated before.
+ */
+public class TimeOrderedUuidGenerator implements IdentifierGenerator {
+
+    private static final long VERSION = 0x7000L;
+    private static final long VARIANT = 0x8000000000000000L;
+    private static final int MAX_SEQUENCE = 0xFFF;
+
+    private static long lastMillis;
+    private static int sequence;
+
+    @Override
+    public Serializable generate(SharedSessionContractImplementor session, Object object) {
+        return next();
+    }
+
+    public static UUID next() {
+        return next(System.currentTimeMillis());
+    }
+
+    /**
+     * The next id at {@code currentMillis}. When the clock goes back, or the sequence of a millisecond runs out,
+     * the timestamp keeps counting from the last one used, so ids never stop increasing.
+     */
+    static UUID next(long currentMillis) {
+        long millis;
+        int currentSequence;
+        synchronized (TimeOrderedUuidGenerator.class) {
+            millis = Math.max(currentMillis, lastMillis);
+            if (millis == lastMillis) {
+                if (sequence == MAX_SEQUENCE) {
+                    millis++;
+                    sequence = 0;
+                } else {
+                    sequence++;
+                }
+            } else {
+                sequence = 0;
+            }
+            lastMillis = millis;
+            currentSequence = sequence;
+        }
+        long mostSignificantBits = (millis << 16) | VERSION | currentSequence;
+        long leastSignificantBits = VARIANT | (ThreadLocalRandom.current().nextLong() >>> 2);
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+}
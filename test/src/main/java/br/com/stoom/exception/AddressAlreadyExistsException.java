@@ -0,0 +1,17 @@
+package br.com.stoom.exception;
+
+import java.util.UUID;
+
+public class AddressAlreadyExistsException extends IllegalStateException {
+
+    private final UUID existingId;
+
+    public AddressAlreadyExistsException(UUID existingId) {
+        super("Address already exists");
+        this.existingId = existingId;
+    }
+
+    public UUID getExistingId() {
+        return existingId;
+    }
+}
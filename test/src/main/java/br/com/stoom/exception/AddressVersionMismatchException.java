@@ -0,0 +1,7 @@
+package br.com.stoom.exception;
+
+public class AddressVersionMismatchException extends IllegalStateException {
+    public AddressVersionMismatchException() {
+        super("Address was modified, fetch it again");
+    }
+}
@@ -0,0 +1,7 @@
+package br.com.stoom.exception;
+
+public class BatchTooLargeException extends IllegalArgumentException {
+    public BatchTooLargeException(int maxSize) {
+        super("Batch exceeds the maximum of " + maxSize + " addresses");
+    }
+}
@@ -0,0 +1,11 @@
+package br.com.stoom.exception;
+
+import br.com.stoom.service.GeocodingPriority;
+
+import java.util.Locale;
+
+public class GeocodingRateLimitExceededException extends GoogleApiUnavailableException {
+    public GeocodingRateLimitExceededException(GeocodingPriority priority) {
+        super("the queue of " + priority.name().toLowerCase(Locale.ROOT) + " lookups waiting for the rate limit is full");
+    }
+}
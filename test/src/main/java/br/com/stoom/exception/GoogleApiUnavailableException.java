@@ -0,0 +1,11 @@
+package br.com.stoom.exception;
+
+public class GoogleApiUnavailableException extends IllegalStateException {
+    public GoogleApiUnavailableException(String status) {
+        super("Google Geocoding API could not process the request: " + status);
+    }
+
+    public GoogleApiUnavailableException(String status, Throwable cause) {
+        super("Google Geocoding API could not process the request: " + status, cause);
+    }
+}
@@ -0,0 +1,7 @@
+package br.com.stoom.exception;
+
+public class ImportJobLeaseLostException extends IllegalStateException {
+    public ImportJobLeaseLostException() {
+        super("Import job lease was taken over by another instance");
+    }
+}
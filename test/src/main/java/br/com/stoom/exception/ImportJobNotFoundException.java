@@ -0,0 +1,7 @@
+package br.com.stoom.exception;
+
+public class ImportJobNotFoundException extends IllegalArgumentException {
+    public ImportJobNotFoundException() {
+        super("Import job not found");
+    }
+}
@@ -0,0 +1,7 @@
+package br.com.stoom.exception;
+
+public class InvalidImportFileException extends IllegalArgumentException {
+    public InvalidImportFileException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package br.com.stoom.exception;
+
+public class InvalidPatchException extends IllegalArgumentException {
+    public InvalidPatchException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package br.com.stoom.exception;
+
+public class InvalidSortException extends IllegalArgumentException {
+    public InvalidSortException(String message) {
+        super(message);
+    }
+}
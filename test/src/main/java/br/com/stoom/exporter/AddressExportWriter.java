@@ -0,0 +1,107 @@
+package br.com.stoom.exporter;
+
+import br.com.stoom.entity.Address;
+import br.com.stoom.model.api.AddressApi;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes addresses one by one as gzip-compressed CSV or NDJSON. Only the compressor's and the writer's buffers are
+ * held, so a slow reader just blocks {@link #write} until it catches up. The CSV columns are named after the
+ * {@link AddressApi} fields, so an export can be imported again.
+ */
+public abstract class AddressExportWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    protected final Writer writer;
+    private final GZIPOutputStream gzip;
+
+    private AddressExportWriter(OutputStream outputStream) throws IOException {
+        this.gzip = new GZIPOutputStream(outputStream, BUFFER_SIZE);
+        this.writer = new BufferedWriter(new OutputStreamWriter(gzip, StandardCharsets.UTF_8), BUFFER_SIZE);
+    }
+
+    public static AddressExportWriter of(ExportFormat format, OutputStream outputStream, ObjectWriter jsonWriter) throws IOException {
+        return format == ExportFormat.CSV ? new Csv(outputStream) : new Ndjson(outputStream, jsonWriter);
+    }
+
+    public abstract void write(Address address) throws IOException;
+
+    /**
+     * Finishes the gzip stream and flushes it, leaving the underlying output stream open.
+     */
+    @Override
+    public void close() throws IOException {
+        writer.flush();
+        gzip.finish();
+        gzip.flush();
+    }
+
+    private static final class Ndjson extends AddressExportWriter {
+
+        private final ObjectWriter jsonWriter;
+
+        private Ndjson(OutputStream outputStream, ObjectWriter jsonWriter) throws IOException {
+            super(outputStream);
+            this.jsonWriter = jsonWriter;
+        }
+
+        @Override
+        public void write(Address address) throws IOException {
+            writer.write(jsonWriter.writeValueAsString(address.toModel()));
+            writer.write('\n');
+        }
+    }
+
+    private static final class Csv extends AddressExportWriter {
+
+        private Csv(OutputStream outputStream) throws IOException {
+            super(outputStream);
+            writer.write("id,streetName,number,complement,neighbourhood,city,state,country,zipcode,latitude,longitude,geocodingStatus\n");
+        }
+
+        @Override
+        public void write(Address address) throws IOException {
+            AddressApi model = address.toModel();
+            field(model.getId());
+            field(model.getStreetName());
+            field(model.getNumber());
+            field(model.getComplement());
+            field(model.getNeighbourhood());
+            field(model.getCity());
+            field(model.getState());
+            field(model.getCountry());
+            field(model.getZipcode());
+            field(model.getLatitude());
+            field(model.getLongitude());
+            writer.write(model.getGeocodingStatus() == null ? "" : model.getGeocodingStatus().name());
+            writer.write('\n');
+        }
+
+        /**
+         * Writes the value followed by a comma, quoted as RFC 4180 asks when it holds a comma, quote or line break.
+         */
+        private void field(Object value) throws IOException {
+            if (value != null) {
+                String text = value.toString();
+                if (text.indexOf(',') >= 0 || text.indexOf('"') >= 0 || text.indexOf('\n') >= 0 || text.indexOf('\r') >= 0) {
+                    writer.write('"');
+                    writer.write(text.replace("\"", "\"\""));
+                    writer.write('"');
+                } else {
+                    writer.write(text);
+                }
+            }
+            writer.write(',');
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package br.com.stoom.geocoder;
+
+import br.com.stoom.entity.AddressNormalizer;
+
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read-only view of a gazetteer file mapped into memory, so the data never lives on the heap.
+ * <p>
+ * Layout (big endian): a {@value #HEADER_SIZE}-byte header with the magic number, the format version and the
+ * zipcode and city record counts, followed by the zipcode records and then the city records. Each section is
+ * sorted by key and every record is {@value #RECORD_SIZE} bytes: a 64-bit key, then latitude and longitude as
+ * integers in units of 1e-7 degrees. Keys are FNV-1a hashes of the lookup fields folded by {@link AddressNormalizer};
+ * version 2 changed that folding, so version 1 files have to be written again.
+ */
+public class Gazetteer {
+
+    static final int MAGIC = 0x475A5452;
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 16;
+    static final int RECORD_SIZE = 16;
+
+    private final MappedByteBuffer buffer;
+    private final int zipcodeCount;
+    private final int cityCount;
+
+    private Gazetteer(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+        if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IllegalArgumentException("Not a version " + VERSION + " gazetteer file");
+        }
+        this.zipcodeCount = buffer.getInt(8);
+        this.cityCount = buffer.getInt(12);
+    }
+
+    public static Gazetteer open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            buffer.order(ByteOrder.BIG_ENDIAN);
+            return new Gazetteer(buffer);
+        }
+    }
+
+    public int getZipcodeCount() {
+        return zipcodeCount;
+    }
+
+    public int getCityCount() {
+        return cityCount;
+    }
+
+    /**
+     * @return the record offset of the zipcode centroid, or -1 when the zipcode is unknown
+     */
+    public int findZipcode(String country, String zipcode) {
+        return find(HEADER_SIZE, zipcodeCount, zipcodeKey(country, zipcode));
+    }
+
+    /**
+     * @return the record offset of the city centroid, or -1 when the city is unknown
+     */
+    public int findCity(String country, String state, String city) {
+        return find(HEADER_SIZE + zipcodeCount * RECORD_SIZE, cityCount, cityKey(country, state, city));
+    }
+
+    public int latitudeE7(int offset) {
+        return buffer.getInt(offset + 8);
+    }
+
+    public int longitudeE7(int offset) {
+        return buffer.getInt(offset + 12);
+    }
+
+    private int find(int sectionOffset, int count, long key) {
+        int low = 0;
+        int high = count - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int offset = sectionOffset + middle * RECORD_SIZE;
+            long middleKey = buffer.getLong(offset);
+            if (middleKey < key) {
+                low = middle + 1;
+            } else if (middleKey > key) {
+                high = middle - 1;
+            } else {
+                return offset;
+            }
+        }
+        return -1;
+    }
+
+    static long zipcodeKey(String country, String zipcode) {
+        return hash(AddressNormalizer.normalize(country) + '|' + digits(zipcode));
+    }
+
+    static long cityKey(String country, String state, String city) {
+        return hash(AddressNormalizer.normalize(country) + '|' + AddressNormalizer.normalize(state) + '|' + AddressNormalizer.normalize(city));
+    }
+
+    private static String digits(String value) {
+        StringBuilder digits = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            if (Character.isDigit(value.charAt(i))) {
+                digits.append(value.charAt(i));
+            }
+        }
+        return digits.toString();
+    }
+
+    private static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        return hash;
+    }
+}
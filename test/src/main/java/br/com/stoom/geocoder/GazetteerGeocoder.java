@@ -0,0 +1,51 @@
+package br.com.stoom.geocoder;
+
+import br.com.stoom.configuration.GeocodingProperties;
+import br.com.stoom.entity.Address;
+import br.com.stoom.model.google.Location;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Paths;
+import java.util.Optional;
+
+/**
+ * Resolves an address to its zipcode centroid, or to its city centroid when the zipcode is unknown,
+ * from the gazetteer file at {@code stoom.geocoding.gazetteer.path}.
+ */
+@Component
+@Order(0)
+@ConditionalOnProperty(prefix = "stoom.geocoding.gazetteer", name = "path")
+public class GazetteerGeocoder implements Geocoder {
+
+    private static final Logger log = LoggerFactory.getLogger(GazetteerGeocoder.class);
+
+    private final Gazetteer gazetteer;
+
+    @Autowired
+    public GazetteerGeocoder(GeocodingProperties geocodingProperties) throws IOException {
+        this.gazetteer = Gazetteer.open(Paths.get(geocodingProperties.getGazetteer().getPath()));
+        log.info("Mapped gazetteer with {} zipcodes and {} cities", gazetteer.getZipcodeCount(), gazetteer.getCityCount());
+    }
+
+    @Override
+    public Optional<Location> geocode(Address address) {
+        int offset = gazetteer.findZipcode(address.getCountry(), address.getZipcode());
+        if (offset < 0) {
+            offset = gazetteer.findCity(address.getCountry(), address.getState(), address.getCity());
+        }
+        if (offset < 0) {
+            return Optional.empty();
+        }
+        return Optional.of(Location.builder()
+                .latitude(BigDecimal.valueOf(gazetteer.latitudeE7(offset), 7))
+                .longitude(BigDecimal.valueOf(gazetteer.longitudeE7(offset), 7))
+                .build());
+    }
+}
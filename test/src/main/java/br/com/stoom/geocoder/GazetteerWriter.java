@@ -0,0 +1,84 @@
+package br.com.stoom.geocoder;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Builds a {@link Gazetteer} file from a CSV with the header
+ * {@code zipcode,city,state,country,latitude,longitude}. Zipcode and city centroids are the mean of their rows.
+ * <p>
+ * Usage: {@code java -cp application.jar br.com.stoom.geocoder.GazetteerWriter source.csv gazetteer.bin}
+ */
+public class GazetteerWriter {
+
+    private final Map<Long, double[]> zipcodes = new TreeMap<>();
+    private final Map<Long, double[]> cities = new TreeMap<>();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            throw new IllegalArgumentException("Usage: GazetteerWriter <source.csv> <gazetteer.bin>");
+        }
+        GazetteerWriter writer = new GazetteerWriter();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[0]), StandardCharsets.UTF_8)) {
+            reader.readLine();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] columns = line.split(",", -1);
+                writer.add(columns[0], columns[1], columns[2], columns[3],
+                        Double.parseDouble(columns[4]), Double.parseDouble(columns[5]));
+            }
+        }
+        writer.write(Paths.get(args[1]));
+    }
+
+    public void add(String zipcode, String city, String state, String country, double latitude, double longitude) {
+        accumulate(zipcodes, Gazetteer.zipcodeKey(country, zipcode), latitude, longitude);
+        accumulate(cities, Gazetteer.cityKey(country, state, city), latitude, longitude);
+    }
+
+    public void write(Path path) throws IOException {
+        try (OutputStream file = Files.newOutputStream(path);
+             DataOutputStream output = new DataOutputStream(new BufferedOutputStream(file))) {
+            output.writeInt(Gazetteer.MAGIC);
+            output.writeInt(Gazetteer.VERSION);
+            output.writeInt(zipcodes.size());
+            output.writeInt(cities.size());
+            writeSection(output, zipcodes);
+            writeSection(output, cities);
+        }
+    }
+
+    private static void accumulate(Map<Long, double[]> section, long key, double latitude, double longitude) {
+        double[] sums = section.computeIfAbsent(key, ignored -> new double[3]);
+        sums[0] += latitude;
+        sums[1] += longitude;
+        sums[2]++;
+    }
+
+    /**
+     * Keys are written in signed order, which is the order {@link Gazetteer} binary searches them in.
+     */
+    private static void writeSection(DataOutputStream output, Map<Long, double[]> section) throws IOException {
+        for (Map.Entry<Long, double[]> entry : section.entrySet()) {
+            double[] sums = entry.getValue();
+            output.writeLong(entry.getKey());
+            output.writeInt(toE7(sums[0] / sums[2]));
+            output.writeInt(toE7(sums[1] / sums[2]));
+        }
+    }
+
+    private static int toE7(double degrees) {
+        return BigDecimal.valueOf(degrees).movePointRight(7).setScale(0, RoundingMode.HALF_UP).intValueExact();
+    }
+}
@@ -0,0 +1,12 @@
+package br.com.stoom.geocoder;
+
+public enum GeocodePrecision {
+    /**
+     * A centroid such as the zipcode or city one is good enough.
+     */
+    APPROXIMATE,
+    /**
+     * The exact building location, only available from the Google Geocoding API.
+     */
+    ROOFTOP
+}
@@ -0,0 +1,14 @@
+package br.com.stoom.geocoder;
+
+import br.com.stoom.entity.Address;
+import br.com.stoom.model.google.Location;
+
+import java.util.Optional;
+
+/**
+ * Local geocoder consulted before the Google Geocoding API for {@link GeocodePrecision#APPROXIMATE} lookups.
+ */
+public interface Geocoder {
+
+    Optional<Location> geocode(Address address);
+}
@@ -0,0 +1,343 @@
+package br.com.stoom.importer;
+
+import br.com.stoom.configuration.ImportProperties;
+import br.com.stoom.entity.Address;
+import br.com.stoom.entity.GeocodingStatus;
+import br.com.stoom.entity.ImportFormat;
+import br.com.stoom.entity.ImportJob;
+import br.com.stoom.entity.ImportJobStatus;
+import br.com.stoom.exception.ImportJobLeaseLostException;
+import br.com.stoom.exception.ImportJobNotFoundException;
+import br.com.stoom.exception.InvalidImportFileException;
+import br.com.stoom.model.api.AddressApi;
+import br.com.stoom.model.api.ImportRequestApi;
+import br.com.stoom.repository.ImportJobRepository;
+import br.com.stoom.service.AddressService;
+import br.com.stoom.service.BatchSaveResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.validation.Validator;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static br.com.stoom.entity.Address.fromModel;
+
+/**
+ * Imports addresses from CSV or NDJSON files under the import directory. A file is read line by line and every
+ * {@code chunkSize} lines are validated, saved with {@link AddressService#saveBatch} and checkpointed: the job row
+ * records the counters and the byte offset right after the chunk, so only one chunk is ever held in memory.
+ * <p>
+ * A job interrupted by a shutdown or a crash stays {@code RUNNING} and continues from its last checkpoint when the
+ * application starts again, or on another instance once its lease expired. Only the instance holding the lease on
+ * the job row runs it; the lease is extended with every checkpoint and expires {@code lease} after the last one.
+ * Rows of a chunk saved before the crash but after the last checkpoint are read again and counted as duplicates,
+ * since addresses are deduplicated by fingerprint.
+ * <p>
+ * A row whose geocode fails for a transient reason, such as a Google outage or a full rate limit queue, is imported
+ * {@code PENDING} without coordinates and geocoded later by the refresh sweeper; only rows that are invalid, or
+ * that Google cannot find, count as failed.
+ */
+@Service
+public class AddressImportService {
+
+    private static final Logger log = LoggerFactory.getLogger(AddressImportService.class);
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final ImportJobRepository importJobRepository;
+    private final AddressService addressService;
+    private final ImportProperties importProperties;
+    private final TaskExecutor importExecutor;
+    private final Validator validator;
+    private final ObjectReader addressReader;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<UUID, Boolean> runningJobs = new ConcurrentHashMap<>();
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    @Autowired
+    public AddressImportService(ImportJobRepository importJobRepository,
+                                AddressService addressService,
+                                ImportProperties importProperties,
+                                @Qualifier("importExecutor") TaskExecutor importExecutor,
+                                Validator validator,
+                                ObjectMapper objectMapper,
+                                PlatformTransactionManager transactionManager) {
+        this.importJobRepository = importJobRepository;
+        this.addressService = addressService;
+        this.importProperties = importProperties;
+        this.importExecutor = importExecutor;
+        this.validator = validator;
+        this.addressReader = objectMapper.readerFor(AddressApi.class);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public List<ImportJob> findAll() {
+        return importJobRepository.findAllByOrderByIdDesc();
+    }
+
+    public ImportJob findById(UUID id) {
+        return importJobRepository.findById(id).orElseThrow(ImportJobNotFoundException::new);
+    }
+
+    public ImportJob start(ImportRequestApi request) {
+        Path file = resolve(request.getPath());
+        Instant now = Instant.now();
+        try {
+            ImportJob job = importJobRepository.save(ImportJob.builder()
+                    .path(file.toString())
+                    .format(request.getFormat() != null ? request.getFormat() : formatOf(file))
+                    .status(ImportJobStatus.RUNNING)
+                    .fileSize(Files.size(file))
+                    .createdAt(now)
+                    .updatedAt(now)
+                    .build());
+            log.info("Starting import {} of {}", job.getId(), file);
+            submit(job.getId());
+            return job;
+        } catch (IOException e) {
+            throw new InvalidImportFileException("Could not read " + request.getPath());
+        }
+    }
+
+    /**
+     * Continues a failed or interrupted job from its last checkpoint. A completed job, or one still running here or
+     * on another instance, is returned as it is.
+     */
+    public ImportJob resume(UUID id) {
+        ImportJob job = findById(id);
+        if (job.getStatus() == ImportJobStatus.COMPLETED || runningJobs.containsKey(id) || isLeased(job)) {
+            return job;
+        }
+        job = importJobRepository.save(job.toBuilder()
+                .status(ImportJobStatus.RUNNING)
+                .error(null)
+                .finishedAt(null)
+                .updatedAt(Instant.now())
+                .build());
+        log.info("Resuming import {} at byte {}", id, job.getByteOffset());
+        submit(id);
+        return job;
+    }
+
+    /**
+     * Resumes the running jobs no instance holds a lease on: those interrupted by a shutdown, at startup, and those
+     * of a crashed instance, once their lease expired.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(initialDelayString = "${stoom.import.resume-interval:PT1M}",
+            fixedDelayString = "${stoom.import.resume-interval:PT1M}")
+    public void resumeInterrupted() {
+        for (ImportJob job : importJobRepository.findByStatus(ImportJobStatus.RUNNING)) {
+            if (!runningJobs.containsKey(job.getId()) && !isLeased(job)) {
+                log.info("Resuming interrupted import {} at byte {}", job.getId(), job.getByteOffset());
+                submit(job.getId());
+            }
+        }
+    }
+
+    private boolean isLeased(ImportJob job) {
+        return job.getLockedUntil() != null && job.getLockedUntil().isAfter(Instant.now()) && !owner.equals(job.getLockedBy());
+    }
+
+    private void submit(UUID id) {
+        if (runningJobs.putIfAbsent(id, Boolean.TRUE) != null) {
+            return;
+        }
+        try {
+            importExecutor.execute(() -> {
+                try {
+                    run(id);
+                } finally {
+                    runningJobs.remove(id);
+                }
+            });
+        } catch (RuntimeException e) {
+            runningJobs.remove(id);
+            throw e;
+        }
+    }
+
+    private void run(UUID id) {
+        Instant now = Instant.now();
+        if (!Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                importJobRepository.tryLock(id, owner, now, now.plus(importProperties.getLease())) == 1))) {
+            log.info("Import {} is leased by another instance, not running it here", id);
+            return;
+        }
+        try {
+            runHoldingLease(id);
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> importJobRepository.unlock(id, owner));
+        }
+    }
+
+    private void runHoldingLease(UUID id) {
+        Instant now = Instant.now();
+        ImportJob job = findById(id);
+        job = saveHoldingLease(job.toBuilder()
+                .runStartedAt(now)
+                .runStartRows(job.getProcessed())
+                .runStartOffset(job.getByteOffset())
+                .updatedAt(now)
+                .build(), false);
+        Path file = Paths.get(job.getPath());
+        try (LineReader reader = new LineReader(file, job.getByteOffset())) {
+            AddressRecordParser parser = AddressRecordParser.of(job.getFormat(), header(job, file, reader), addressReader);
+            List<String> chunk = new ArrayList<>(importProperties.getChunkSize());
+            String line;
+            do {
+                line = reader.readLine();
+                if (line != null && !line.trim().isEmpty()) {
+                    chunk.add(line);
+                }
+                if (chunk.size() == importProperties.getChunkSize() || (line == null && !chunk.isEmpty())) {
+                    job = checkpoint(job, parser, chunk, reader.offset());
+                    chunk.clear();
+                }
+                if (Thread.currentThread().isInterrupted()) {
+                    log.info("Import {} interrupted at byte {}", id, job.getByteOffset());
+                    return;
+                }
+            } while (line != null);
+            job = saveHoldingLease(job.toBuilder()
+                    .status(ImportJobStatus.COMPLETED)
+                    .byteOffset(reader.offset())
+                    .updatedAt(Instant.now())
+                    .finishedAt(Instant.now())
+                    .build(), true);
+            log.info("Import {} completed: {} imported, {} duplicates, {} failed",
+                    id, job.getImported(), job.getDuplicates(), job.getFailed());
+        } catch (ImportJobLeaseLostException e) {
+            log.warn("Import {} stopped at byte {}: {}", id, job.getByteOffset(), e.getMessage());
+        } catch (IOException | RuntimeException e) {
+            if (Thread.currentThread().isInterrupted()) {
+                log.info("Import {} interrupted at byte {}", id, job.getByteOffset());
+                return;
+            }
+            log.warn("Import {} failed at byte {}", id, job.getByteOffset(), e);
+            saveHoldingLease(job.toBuilder()
+                    .status(ImportJobStatus.FAILED)
+                    .error(StringUtils.abbreviate(String.valueOf(e.getMessage()), MAX_ERROR_LENGTH))
+                    .updatedAt(Instant.now())
+                    .finishedAt(Instant.now())
+                    .build(), true);
+        }
+    }
+
+    /**
+     * Extends the lease before the job is written, so an instance that lost it to another one cannot overwrite the
+     * progress; the saved job carries the extended lease, or none when {@code release} is set.
+     */
+    private ImportJob saveHoldingLease(ImportJob job, boolean release) {
+        return transactionTemplate.execute(status -> {
+            Instant now = Instant.now();
+            Instant lockedUntil = now.plus(importProperties.getLease());
+            if (importJobRepository.tryLock(job.getId(), owner, now, lockedUntil) == 0) {
+                throw new ImportJobLeaseLostException();
+            }
+            return importJobRepository.save(job.toBuilder()
+                    .lockedBy(release ? null : owner)
+                    .lockedUntil(release ? null : lockedUntil)
+                    .build());
+        });
+    }
+
+    /**
+     * The CSV header, read again from the start of the file when resuming past it.
+     */
+    private static String header(ImportJob job, Path file, LineReader reader) throws IOException {
+        if (job.getFormat() != ImportFormat.CSV) {
+            return null;
+        }
+        if (reader.offset() == 0) {
+            return reader.readLine();
+        }
+        try (LineReader headerReader = new LineReader(file, 0)) {
+            return headerReader.readLine();
+        }
+    }
+
+    private ImportJob checkpoint(ImportJob job, AddressRecordParser parser, List<String> lines, long offset) {
+        List<Address> addresses = new ArrayList<>(lines.size());
+        long failed = 0;
+        for (String line : lines) {
+            try {
+                AddressApi addressApi = parser.parse(line);
+                if (validator.validate(addressApi).isEmpty()) {
+                    addresses.add(fromModel(addressApi));
+                } else {
+                    failed++;
+                }
+            } catch (IOException | RuntimeException e) {
+                failed++;
+            }
+        }
+        long imported = 0;
+        long duplicates = 0;
+        long deferred = 0;
+        for (BatchSaveResult result : addressService.saveBatch(addresses, null, true)) {
+            if (result.isSaved()) {
+                imported++;
+                if (result.getAddress().getGeocodingStatus() == GeocodingStatus.PENDING) {
+                    deferred++;
+                }
+            } else if (result.isDuplicate()) {
+                duplicates++;
+            } else {
+                failed++;
+            }
+        }
+        if (deferred > 0) {
+            log.info("Import {} stored {} addresses without coordinates after a transient geocoding failure", job.getId(), deferred);
+        }
+        return saveHoldingLease(job.toBuilder()
+                .imported(job.getImported() + imported)
+                .duplicates(job.getDuplicates() + duplicates)
+                .failed(job.getFailed() + failed)
+                .byteOffset(offset)
+                .updatedAt(Instant.now())
+                .build(), false);
+    }
+
+    private Path resolve(String path) {
+        Path directory = Paths.get(importProperties.getDirectory()).toAbsolutePath().normalize();
+        Path file = directory.resolve(path).normalize();
+        if (!file.startsWith(directory) || !Files.isRegularFile(file) || !Files.isReadable(file)) {
+            throw new InvalidImportFileException("No readable file " + path + " in the import directory");
+        }
+        return file;
+    }
+
+    private static ImportFormat formatOf(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        if (name.endsWith(".csv")) {
+            return ImportFormat.CSV;
+        }
+        if (name.endsWith(".ndjson") || name.endsWith(".jsonl")) {
+            return ImportFormat.NDJSON;
+        }
+        throw new InvalidImportFileException("Unknown import format of " + file.getFileName() + ", send it in the request");
+    }
+}
@@ -0,0 +1,119 @@
+package br.com.stoom.importer;
+
+import br.com.stoom.entity.ImportFormat;
+import br.com.stoom.exception.InvalidImportFileException;
+import br.com.stoom.model.api.AddressApi;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Turns one line of an import file into an {@link AddressApi}. NDJSON lines are address JSON objects; CSV files
+ * start with a header naming the {@link AddressApi} fields of each column, and quoted values may not span lines.
+ */
+abstract class AddressRecordParser {
+
+    static AddressRecordParser of(ImportFormat format, String header, ObjectReader reader) {
+        return format == ImportFormat.NDJSON ? new Ndjson(reader) : new Csv(header);
+    }
+
+    abstract AddressApi parse(String line) throws IOException;
+
+    private static final class Ndjson extends AddressRecordParser {
+
+        private final ObjectReader reader;
+
+        private Ndjson(ObjectReader reader) {
+            this.reader = reader;
+        }
+
+        @Override
+        AddressApi parse(String line) throws IOException {
+            return reader.readValue(line);
+        }
+    }
+
+    private static final class Csv extends AddressRecordParser {
+
+        private final Map<String, Integer> columns = new HashMap<>();
+
+        private Csv(String header) {
+            if (header == null) {
+                throw new InvalidImportFileException("CSV file has no header");
+            }
+            List<String> names = split(header);
+            for (int i = 0; i < names.size(); i++) {
+                columns.put(names.get(i).trim(), i);
+            }
+            if (!columns.containsKey("streetName") || !columns.containsKey("number")) {
+                throw new InvalidImportFileException("CSV header must name the address fields, e.g. streetName,number,...");
+            }
+        }
+
+        @Override
+        AddressApi parse(String line) {
+            List<String> values = split(line);
+            String number = value(values, "number");
+            try {
+                return AddressApi.builder()
+                        .streetName(value(values, "streetName"))
+                        .number(number == null ? null : Integer.valueOf(number.trim()))
+                        .complement(value(values, "complement"))
+                        .neighbourhood(value(values, "neighbourhood"))
+                        .city(value(values, "city"))
+                        .state(value(values, "state"))
+                        .country(value(values, "country"))
+                        .zipcode(value(values, "zipcode"))
+                        .latitude(value(values, "latitude"))
+                        .longitude(value(values, "longitude"))
+                        .build();
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("number must be an integer");
+            }
+        }
+
+        private String value(List<String> values, String column) {
+            Integer index = columns.get(column);
+            if (index == null || index >= values.size() || values.get(index).isEmpty()) {
+                return null;
+            }
+            return values.get(index);
+        }
+
+        /**
+         * RFC 4180 fields of one line: commas separate fields, double quotes enclose them and {@code ""} escapes a
+         * quote inside quotes.
+         */
+        private static List<String> split(String line) {
+            List<String> fields = new ArrayList<>();
+            StringBuilder field = new StringBuilder();
+            boolean quoted = false;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (quoted) {
+                    if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                        field.append('"');
+                        i++;
+                    } else if (c == '"') {
+                        quoted = false;
+                    } else {
+                        field.append(c);
+                    }
+                } else if (c == '"') {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else {
+                    field.append(c);
+                }
+            }
+            fields.add(field.toString());
+            return fields;
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package br.com.stoom.importer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 lines from a file through a fixed-size buffer starting at a byte offset, and tells the offset right
+ * after the last line returned, so reading can later resume exactly there. Only one buffer and the current line
+ * are ever on the heap.
+ */
+class LineReader implements Closeable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private byte[] line = new byte[256];
+    private long offset;
+    private long lineStart;
+
+    LineReader(Path path, long offset) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.channel.position(offset);
+        this.offset = offset;
+        this.buffer.flip();
+    }
+
+    /**
+     * The next line without its line terminator, or null at the end of the file.
+     */
+    String readLine() throws IOException {
+        int length = 0;
+        boolean read = false;
+        lineStart = offset;
+        while (true) {
+            if (!buffer.hasRemaining()) {
+                buffer.clear();
+                int count = channel.read(buffer);
+                buffer.flip();
+                if (count <= 0) {
+                    return read ? decode(length) : null;
+                }
+            }
+            read = true;
+            byte next = buffer.get();
+            offset++;
+            if (next == '\n') {
+                return decode(length);
+            }
+            if (length == line.length) {
+                line = Arrays.copyOf(line, length * 2);
+            }
+            line[length++] = next;
+        }
+    }
+
+    long offset() {
+        return offset;
+    }
+
+    /**
+     * Drops the {@code \r} of a CRLF line end and the byte order mark some editors put at the start of the file.
+     */
+    private String decode(int length) {
+        int start = lineStart == 0 && length >= 3 && line[0] == (byte) 0xEF && line[1] == (byte) 0xBB && line[2] == (byte) 0xBF ? 3 : 0;
+        int end = length > start && line[length - 1] == '\r' ? length - 1 : length;
+        return new String(line, start, end - start, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
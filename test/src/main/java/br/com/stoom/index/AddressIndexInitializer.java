@@ -0,0 +1,51 @@
+package br.com.stoom.index;
+
+import br.com.stoom.service.AddressService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the in-memory address indexes from the database once the application is ready.
+ * From then on {@link AddressService} keeps them in sync on every write; writes that land while the load is still
+ * streaming win over the rows it read.
+ */
+@Component
+public class AddressIndexInitializer {
+
+    private static final Logger log = LoggerFactory.getLogger(AddressIndexInitializer.class);
+
+    private final AddressService addressService;
+    private final SpatialIndex spatialIndex;
+    private final TrigramIndex trigramIndex;
+
+    @Autowired
+    public AddressIndexInitializer(AddressService addressService, SpatialIndex spatialIndex, TrigramIndex trigramIndex) {
+        this.addressService = addressService;
+        this.spatialIndex = spatialIndex;
+        this.trigramIndex = trigramIndex;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        long start = System.currentTimeMillis();
+        spatialIndex.beginLoad();
+        trigramIndex.beginLoad();
+        try {
+            addressService.streamAll(address -> {
+                trigramIndex.load(address.getId(), address.searchableText());
+                if (address.hasLatitudeAndLongitude()) {
+                    spatialIndex.load(address.getId(), address.getLatitude().doubleValue(), address.getLongitude().doubleValue());
+                }
+            });
+        } finally {
+            trigramIndex.endLoad();
+            spatialIndex.endLoad();
+        }
+        log.info("Loaded {} addresses into the trigram index and {} into the spatial index in {} ms",
+                trigramIndex.size(), spatialIndex.size(), System.currentTimeMillis() - start);
+    }
+}
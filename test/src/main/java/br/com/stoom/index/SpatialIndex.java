@@ -0,0 +1,340 @@
+package br.com.stoom.index;
+
+import br.com.stoom.configuration.AddressProperties;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory fixed-grid spatial index of address coordinates. The globe is split into square cells of
+ * {@code stoom.address.spatial-index.cell-size-degrees}; each cell keeps its points in parallel primitive arrays.
+ * Radius queries only visit the cells overlapping the bounding box of the circle and nearest-neighbour queries
+ * scan rings of cells outwards until no unscanned cell can hold a closer point.
+ */
+@Component
+public class SpatialIndex {
+
+    static final double EARTH_RADIUS_KM = 6371.0088;
+    private static final double KM_PER_DEGREE = Math.PI * EARTH_RADIUS_KM / 180;
+
+    private final double cellSize;
+    private final int rows;
+    private final int columns;
+    private final Map<Long, Cell> cells = new HashMap<>();
+    private final Map<UUID, Long> cellByAddress = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private Set<UUID> writtenDuringLoad;
+
+    @Autowired
+    public SpatialIndex(AddressProperties addressProperties) {
+        this(addressProperties.getSpatialIndex().getCellSizeDegrees());
+    }
+
+    SpatialIndex(double cellSize) {
+        this.cellSize = cellSize;
+        this.rows = (int) Math.ceil(180 / cellSize);
+        this.columns = (int) Math.ceil(360 / cellSize);
+    }
+
+    public void put(UUID id, double latitude, double longitude) {
+        lock.writeLock().lock();
+        try {
+            if (writtenDuringLoad != null) {
+                writtenDuringLoad.add(id);
+            }
+            putInternal(id, latitude, longitude);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID id) {
+        lock.writeLock().lock();
+        try {
+            if (writtenDuringLoad != null) {
+                writtenDuringLoad.add(id);
+            }
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Empties the index for a full load; see {@link TrigramIndex#beginLoad()}.
+     */
+    public void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            cellByAddress.clear();
+            writtenDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an address read by the full load, unless it was put or removed since {@link #beginLoad()}.
+     */
+    public void load(UUID id, double latitude, double longitude) {
+        lock.writeLock().lock();
+        try {
+            if (writtenDuringLoad == null || !writtenDuringLoad.contains(id)) {
+                putInternal(id, latitude, longitude);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void endLoad() {
+        lock.writeLock().lock();
+        try {
+            writtenDuringLoad = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            cells.clear();
+            cellByAddress.clear();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return cellByAddress.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Addresses within {@code radiusKm} of the point, closest first, at most {@code limit} of them.
+     */
+    public List<UUID> withinRadius(double latitude, double longitude, double radiusKm, int limit) {
+        double latitudeDelta = radiusKm / KM_PER_DEGREE;
+        double maxAbsLatitude = Math.min(90, Math.abs(latitude) + latitudeDelta);
+        double longitudeDelta = maxAbsLatitude >= 90 ? 180 : latitudeDelta / Math.cos(Math.toRadians(maxAbsLatitude));
+        boolean allColumns = longitudeDelta >= 180 - cellSize;
+        int fromRow = row(Math.max(-90, latitude - latitudeDelta));
+        int toRow = row(Math.min(90, latitude + latitudeDelta));
+        int fromColumn = allColumns ? 0 : column(longitude - longitudeDelta);
+        int toColumn = allColumns ? columns - 1 : column(longitude + longitudeDelta);
+
+        PriorityQueue<Neighbour> closest = new PriorityQueue<>(Comparator.comparingDouble(Neighbour::getDistance).reversed());
+        lock.readLock().lock();
+        try {
+            for (int row = fromRow; row <= toRow; row++) {
+                for (int column = fromColumn; ; column = (column + 1) % columns) {
+                    Cell cell = cells.get(cellKey(row, column));
+                    if (cell != null) {
+                        cell.collect(latitude, longitude, radiusKm, limit, closest);
+                    }
+                    if (column == toColumn) {
+                        break;
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return sortedIds(closest);
+    }
+
+    /**
+     * The {@code k} addresses closest to the point, closest first.
+     */
+    public List<UUID> nearest(double latitude, double longitude, int k) {
+        int centerRow = row(latitude);
+        int centerColumn = column(longitude);
+        PriorityQueue<Neighbour> closest = new PriorityQueue<>(Comparator.comparingDouble(Neighbour::getDistance).reversed());
+        lock.readLock().lock();
+        try {
+            int total = cellByAddress.size();
+            int scanned = 0;
+            for (int ring = 0; scanned < total; ring++) {
+                if (2 * ring + 1 >= columns) {
+                    closest.clear();
+                    cells.values().forEach(cell -> cell.collect(latitude, longitude, Double.MAX_VALUE, k, closest));
+                    break;
+                }
+                scanned += scanRing(centerRow, centerColumn, ring, latitude, longitude, k, closest);
+                if (closest.size() == k && closest.peek().getDistance() <= unscannedLowerBoundKm(latitude, ring)) {
+                    break;
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return sortedIds(closest);
+    }
+
+    private int scanRing(int centerRow, int centerColumn, int ring, double latitude, double longitude, int k,
+                         PriorityQueue<Neighbour> closest) {
+        int scanned = 0;
+        for (int row = centerRow - ring; row <= centerRow + ring; row++) {
+            if (row < 0 || row >= rows) {
+                continue;
+            }
+            boolean edgeRow = row == centerRow - ring || row == centerRow + ring;
+            int step = edgeRow || ring == 0 ? 1 : 2 * ring;
+            for (int offset = -ring; offset <= ring; offset += step) {
+                int column = Math.floorMod(centerColumn + offset, columns);
+                Cell cell = cells.get(cellKey(row, column));
+                if (cell != null) {
+                    cell.collect(latitude, longitude, Double.MAX_VALUE, k, closest);
+                    scanned += cell.size;
+                }
+            }
+        }
+        return scanned;
+    }
+
+    /**
+     * After scanning rings 0..ring every unscanned point lies at least {@code ring} cells away in latitude or
+     * longitude. The longitude side is the shorter one, and it is shortest at the highest latitude the scanned area
+     * reaches, so the bound is the great-circle length of that arc.
+     */
+    private double unscannedLowerBoundKm(double latitude, int ring) {
+        double degrees = ring * cellSize;
+        double maxAbsLatitude = Math.min(90, Math.abs(latitude) + degrees);
+        double halfArc = Math.sin(Math.toRadians(degrees) / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.cos(Math.toRadians(maxAbsLatitude)) * halfArc));
+    }
+
+    private void putInternal(UUID id, double latitude, double longitude) {
+        removeInternal(id);
+        long key = cellKey(row(latitude), column(longitude));
+        cells.computeIfAbsent(key, ignored -> new Cell()).add(id, latitude, longitude);
+        cellByAddress.put(id, key);
+    }
+
+    private void removeInternal(UUID id) {
+        Long key = cellByAddress.remove(id);
+        if (key != null) {
+            Cell cell = cells.get(key);
+            if (cell.remove(id) && cell.size == 0) {
+                cells.remove(key);
+            }
+        }
+    }
+
+    private int row(double latitude) {
+        return Math.min(rows - 1, (int) Math.floor((latitude + 90) / cellSize));
+    }
+
+    private int column(double longitude) {
+        return Math.floorMod((int) Math.floor((longitude + 180) / cellSize), columns);
+    }
+
+    private long cellKey(int row, int column) {
+        return (long) row * columns + column;
+    }
+
+    private static List<UUID> sortedIds(PriorityQueue<Neighbour> closest) {
+        Neighbour[] neighbours = closest.toArray(new Neighbour[0]);
+        Arrays.sort(neighbours, Comparator.comparingDouble(Neighbour::getDistance));
+        List<UUID> ids = new ArrayList<>(neighbours.length);
+        for (Neighbour neighbour : neighbours) {
+            ids.add(neighbour.id);
+        }
+        return ids;
+    }
+
+    static double haversineKm(double latitude1, double longitude1, double latitude2, double longitude2) {
+        double latitudeDelta = Math.toRadians(latitude2 - latitude1);
+        double longitudeDelta = Math.toRadians(longitude2 - longitude1);
+        double a = Math.sin(latitudeDelta / 2) * Math.sin(latitudeDelta / 2)
+                + Math.cos(Math.toRadians(latitude1)) * Math.cos(Math.toRadians(latitude2))
+                * Math.sin(longitudeDelta / 2) * Math.sin(longitudeDelta / 2);
+        return 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1, Math.sqrt(a)));
+    }
+
+    private static final class Neighbour {
+
+        private final UUID id;
+        private final double distance;
+
+        private Neighbour(UUID id, double distance) {
+            this.id = id;
+            this.distance = distance;
+        }
+
+        private double getDistance() {
+            return distance;
+        }
+    }
+
+    private static final class Cell {
+
+        private long[] mostSignificantBits = new long[4];
+        private long[] leastSignificantBits = new long[4];
+        private double[] latitudes = new double[4];
+        private double[] longitudes = new double[4];
+        private int size;
+
+        private void add(UUID id, double latitude, double longitude) {
+            if (size == latitudes.length) {
+                int capacity = size * 2;
+                mostSignificantBits = Arrays.copyOf(mostSignificantBits, capacity);
+                leastSignificantBits = Arrays.copyOf(leastSignificantBits, capacity);
+                latitudes = Arrays.copyOf(latitudes, capacity);
+                longitudes = Arrays.copyOf(longitudes, capacity);
+            }
+            mostSignificantBits[size] = id.getMostSignificantBits();
+            leastSignificantBits[size] = id.getLeastSignificantBits();
+            latitudes[size] = latitude;
+            longitudes[size] = longitude;
+            size++;
+        }
+
+        private boolean remove(UUID id) {
+            for (int i = 0; i < size; i++) {
+                if (mostSignificantBits[i] == id.getMostSignificantBits() && leastSignificantBits[i] == id.getLeastSignificantBits()) {
+                    size--;
+                    mostSignificantBits[i] = mostSignificantBits[size];
+                    leastSignificantBits[i] = leastSignificantBits[size];
+                    latitudes[i] = latitudes[size];
+                    longitudes[i] = longitudes[size];
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void collect(double latitude, double longitude, double radiusKm, int limit, PriorityQueue<Neighbour> closest) {
+            for (int i = 0; i < size; i++) {
+                double distance = haversineKm(latitude, longitude, latitudes[i], longitudes[i]);
+                if (distance > radiusKm) {
+                    continue;
+                }
+                if (closest.size() < limit) {
+                    closest.add(new Neighbour(new UUID(mostSignificantBits[i], leastSignificantBits[i]), distance));
+                } else if (distance < closest.peek().distance) {
+                    closest.poll();
+                    closest.add(new Neighbour(new UUID(mostSignificantBits[i], leastSignificantBits[i]), distance));
+                }
+            }
+        }
+    }
+}
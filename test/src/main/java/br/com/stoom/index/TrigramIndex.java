@@ -0,0 +1,369 @@
+package br.com.stoom.index;
+
+import br.com.stoom.entity.AddressNormalizer;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In-memory trigram inverted index for address autocomplete. Each address gets an int ordinal and every trigram
+ * of its normalized text keeps a sorted primitive array of the ordinals containing it.
+ * <p>
+ * Text is lower-cased, stripped of accents and split into words padded like {@code pg_trgm} ("  av", " av", "ave",
+ * ..., "da "). The last word of a query is treated as a prefix, so its closing trigram is left out. Matches are
+ * ranked by the share of query trigrams they contain, then by trigram similarity (shared / union), which favours
+ * shorter, closer texts; addresses sharing less than {@link #MIN_COVERAGE} of the query are dropped.
+ */
+@Component
+public class TrigramIndex {
+
+    static final double MIN_COVERAGE = 0.3;
+    static final int MAX_QUERY_TRIGRAMS = 64;
+
+    private final Map<Long, Postings> postings = new HashMap<>();
+    private final Map<UUID, Integer> ordinalByAddress = new HashMap<>();
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private long[] mostSignificantBits = new long[16];
+    private long[] leastSignificantBits = new long[16];
+    private long[][] trigramsByOrdinal = new long[16][];
+    private int[] freeOrdinals = new int[16];
+    private int freeCount;
+    private int nextOrdinal;
+    private Set<UUID> writtenDuringLoad;
+
+    public void put(UUID id, String text) {
+        long[] trigrams = trigrams(text, false);
+        lock.writeLock().lock();
+        try {
+            if (writtenDuringLoad != null) {
+                writtenDuringLoad.add(id);
+            }
+            putInternal(id, trigrams);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID id) {
+        lock.writeLock().lock();
+        try {
+            if (writtenDuringLoad != null) {
+                writtenDuringLoad.add(id);
+            }
+            removeInternal(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Empties the index for a full load. Until {@link #endLoad()} every address written through {@link #put} or
+     * {@link #remove} is remembered, so {@link #load} cannot overwrite it with the older row it read.
+     */
+    public void beginLoad() {
+        lock.writeLock().lock();
+        try {
+            clearInternal();
+            writtenDuringLoad = new HashSet<>();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Adds an address read by the full load, unless it was put or removed since {@link #beginLoad()}.
+     */
+    public void load(UUID id, String text) {
+        long[] trigrams = trigrams(text, false);
+        lock.writeLock().lock();
+        try {
+            if (writtenDuringLoad == null || !writtenDuringLoad.contains(id)) {
+                putInternal(id, trigrams);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void endLoad() {
+        lock.writeLock().lock();
+        try {
+            writtenDuringLoad = null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void clear() {
+        lock.writeLock().lock();
+        try {
+            clearInternal();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinalByAddress.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Up to {@code limit} addresses whose text best matches {@code query}, best first. Shared trigrams are counted
+     * per ordinal while walking the posting lists, in a map sized to the postings walked rather than to the whole
+     * index; only the first {@link #MAX_QUERY_TRIGRAMS} query trigrams count.
+     */
+    public List<UUID> suggest(String query, int limit) {
+        long[] queryTrigrams = trigrams(query, true);
+        if (queryTrigrams.length > MAX_QUERY_TRIGRAMS) {
+            queryTrigrams = Arrays.copyOf(queryTrigrams, MAX_QUERY_TRIGRAMS);
+        }
+        if (queryTrigrams.length == 0 || limit <= 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Match> best = new PriorityQueue<>();
+        lock.readLock().lock();
+        try {
+            List<Postings> lists = new ArrayList<>(queryTrigrams.length);
+            for (long trigram : queryTrigrams) {
+                Postings list = postings.get(trigram);
+                if (list != null) {
+                    lists.add(list);
+                }
+            }
+            int minShared = (int) Math.ceil(MIN_COVERAGE * queryTrigrams.length);
+            if (lists.size() < minShared) {
+                return new ArrayList<>();
+            }
+            int postingCount = 0;
+            for (Postings list : lists) {
+                postingCount += list.size;
+            }
+            OrdinalCounter shared = new OrdinalCounter(Math.min(postingCount, nextOrdinal));
+            int[] candidates = new int[16];
+            int candidateCount = 0;
+            for (Postings list : lists) {
+                for (int i = 0; i < list.size; i++) {
+                    int ordinal = list.ordinals[i];
+                    if (shared.increment(ordinal) == minShared) {
+                        if (candidateCount == candidates.length) {
+                            candidates = Arrays.copyOf(candidates, candidateCount * 2);
+                        }
+                        candidates[candidateCount++] = ordinal;
+                    }
+                }
+            }
+            for (int i = 0; i < candidateCount; i++) {
+                int ordinal = candidates[i];
+                int sharedTrigrams = shared.get(ordinal);
+                offer(best, limit, ordinal, (double) sharedTrigrams / queryTrigrams.length,
+                        (double) sharedTrigrams / (queryTrigrams.length + trigramsByOrdinal[ordinal].length - sharedTrigrams));
+            }
+            Match[] matches = best.toArray(new Match[0]);
+            Arrays.sort(matches, (first, second) -> second.compareTo(first));
+            List<UUID> ids = new ArrayList<>(matches.length);
+            for (Match match : matches) {
+                ids.add(new UUID(mostSignificantBits[match.ordinal], leastSignificantBits[match.ordinal]));
+            }
+            return ids;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static void offer(PriorityQueue<Match> best, int limit, int ordinal, double coverage, double similarity) {
+        if (best.size() < limit) {
+            best.add(new Match(ordinal, coverage, similarity));
+        } else if (best.peek().isWorseThan(coverage, similarity)) {
+            best.poll();
+            best.add(new Match(ordinal, coverage, similarity));
+        }
+    }
+
+    private void putInternal(UUID id, long[] trigrams) {
+        removeInternal(id);
+        int ordinal = freeCount > 0 ? freeOrdinals[--freeCount] : nextOrdinal++;
+        ensureCapacity(ordinal + 1);
+        mostSignificantBits[ordinal] = id.getMostSignificantBits();
+        leastSignificantBits[ordinal] = id.getLeastSignificantBits();
+        trigramsByOrdinal[ordinal] = trigrams;
+        for (long trigram : trigrams) {
+            postings.computeIfAbsent(trigram, ignored -> new Postings()).add(ordinal);
+        }
+        ordinalByAddress.put(id, ordinal);
+    }
+
+    private void removeInternal(UUID id) {
+        Integer ordinal = ordinalByAddress.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        for (long trigram : trigramsByOrdinal[ordinal]) {
+            Postings list = postings.get(trigram);
+            if (list.remove(ordinal) && list.size == 0) {
+                postings.remove(trigram);
+            }
+        }
+        trigramsByOrdinal[ordinal] = null;
+        if (freeCount == freeOrdinals.length) {
+            freeOrdinals = Arrays.copyOf(freeOrdinals, freeCount * 2);
+        }
+        freeOrdinals[freeCount++] = ordinal;
+    }
+
+    private void clearInternal() {
+        postings.clear();
+        ordinalByAddress.clear();
+        Arrays.fill(trigramsByOrdinal, null);
+        freeCount = 0;
+        nextOrdinal = 0;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > trigramsByOrdinal.length) {
+            int newCapacity = Math.max(capacity, trigramsByOrdinal.length * 2);
+            mostSignificantBits = Arrays.copyOf(mostSignificantBits, newCapacity);
+            leastSignificantBits = Arrays.copyOf(leastSignificantBits, newCapacity);
+            trigramsByOrdinal = Arrays.copyOf(trigramsByOrdinal, newCapacity);
+        }
+    }
+
+    /**
+     * Distinct trigrams of the text, each packed as three 16-bit chars in a long.
+     */
+    static long[] trigrams(String text, boolean lastWordIsPrefix) {
+        if (text == null) {
+            return new long[0];
+        }
+        String normalized = AddressNormalizer.normalize(text);
+        if (normalized.isEmpty()) {
+            return new long[0];
+        }
+        Set<Long> trigrams = new LinkedHashSet<>();
+        String[] words = normalized.split(" ");
+        for (int w = 0; w < words.length; w++) {
+            String padded = lastWordIsPrefix && w == words.length - 1 ? "  " + words[w] : "  " + words[w] + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                trigrams.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+            }
+        }
+        long[] packed = new long[trigrams.size()];
+        int i = 0;
+        for (Long trigram : trigrams) {
+            packed[i++] = trigram;
+        }
+        return packed;
+    }
+
+    private static final class Match implements Comparable<Match> {
+
+        private final int ordinal;
+        private final double coverage;
+        private final double similarity;
+
+        private Match(int ordinal, double coverage, double similarity) {
+            this.ordinal = ordinal;
+            this.coverage = coverage;
+            this.similarity = similarity;
+        }
+
+        private boolean isWorseThan(double otherCoverage, double otherSimilarity) {
+            return coverage < otherCoverage || (coverage == otherCoverage && similarity < otherSimilarity);
+        }
+
+        @Override
+        public int compareTo(Match other) {
+            int byCoverage = Double.compare(coverage, other.coverage);
+            return byCoverage != 0 ? byCoverage : Double.compare(similarity, other.similarity);
+        }
+    }
+
+    /**
+     * Open-addressing map from ordinal to the number of query trigrams it shares, with linear probing. Sized for
+     * the postings of one query, so a short query over a large index stays cheap.
+     */
+    private static final class OrdinalCounter {
+
+        private final int[] keys;
+        private final int[] counts;
+        private final int mask;
+
+        private OrdinalCounter(int expectedOrdinals) {
+            int capacity = Integer.highestOneBit(Math.max(8, expectedOrdinals * 2 - 1)) << 1;
+            this.keys = new int[capacity];
+            this.counts = new int[capacity];
+            this.mask = capacity - 1;
+        }
+
+        private int increment(int ordinal) {
+            int slot = slot(ordinal);
+            keys[slot] = ordinal + 1;
+            return ++counts[slot];
+        }
+
+        private int get(int ordinal) {
+            return counts[slot(ordinal)];
+        }
+
+        /**
+         * The slot holding {@code ordinal}, or the empty slot where it goes. Keys are stored as ordinal + 1 so
+         * that 0 marks an empty slot.
+         */
+        private int slot(int ordinal) {
+            int hash = ordinal * 0x9E3779B9;
+            int slot = (hash ^ hash >>> 16) & mask;
+            while (keys[slot] != 0 && keys[slot] != ordinal + 1) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+
+    /**
+     * Sorted ordinals of the addresses containing one trigram.
+     */
+    private static final class Postings {
+
+        private int[] ordinals = new int[4];
+        private int size;
+
+        private void add(int ordinal) {
+            int position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (position >= 0) {
+                return;
+            }
+            position = -position - 1;
+            if (size == ordinals.length) {
+                ordinals = Arrays.copyOf(ordinals, size * 2);
+            }
+            System.arraycopy(ordinals, position, ordinals, position + 1, size - position);
+            ordinals[position] = ordinal;
+            size++;
+        }
+
+        private boolean remove(int ordinal) {
+            int position = Arrays.binarySearch(ordinals, 0, size, ordinal);
+            if (position < 0) {
+                return false;
+            }
+            System.arraycopy(ordinals, position + 1, ordinals, position, size - position - 1);
+            size--;
+            return true;
+        }
+    }
+}
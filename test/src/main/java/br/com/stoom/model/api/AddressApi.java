@@ -1,28 +1,34 @@
 package br.com.stoom.model.api;
 
+import br.com.stoom.entity.GeocodingStatus;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
 import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
 import lombok.Builder;
 import lombok.Data;
 
+import javax.validation.constraints.DecimalMax;
+import javax.validation.constraints.DecimalMin;
 import javax.validation.constraints.NotNull;
 import javax.validation.constraints.Size;
+import java.util.UUID;
 
 @Data
 @Builder(builderClassName = "AddressApiBuilder", toBuilder = true)
 @JsonDeserialize(builder = AddressApi.AddressApiBuilder.class)
 public class AddressApi {
 
-    @NotNull private String streetName;
+    private UUID id;
+    @NotNull @Size(max = 1500) private String streetName;
     @NotNull private Integer number;
-    private String complement;
-    @NotNull private String neighbourhood;
-    @NotNull private String city;
+    @Size(max = 500) private String complement;
+    @NotNull @Size(max = 500) private String neighbourhood;
+    @NotNull @Size(max = 100) private String city;
     @NotNull @Size(min = 2, max = 2) private String state;
-    @NotNull private String country;
-    @NotNull private String zipcode;
-    private String latitude;
-    private String longitude;
+    @NotNull @Size(max = 300) private String country;
+    @NotNull @Size(max = 300) private String zipcode;
+    @DecimalMin("-90") @DecimalMax("90") private String latitude;
+    @DecimalMin("-180") @DecimalMax("180") private String longitude;
+    private GeocodingStatus geocodingStatus;
 
     @JsonPOJOBuilder(withPrefix = "")
     public static class AddressApiBuilder {
@@ -0,0 +1,25 @@
+package br.com.stoom.model.api;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.UUID;
+
+@Data
+@Builder(builderClassName = "AddressBatchItemApiBuilder", toBuilder = true)
+@JsonDeserialize(builder = AddressBatchItemApi.AddressBatchItemApiBuilder.class)
+public class AddressBatchItemApi {
+
+    private int index;
+    private boolean created;
+    private UUID id;
+    private AddressApi address;
+    private String error;
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static class AddressBatchItemApiBuilder {
+
+    }
+}
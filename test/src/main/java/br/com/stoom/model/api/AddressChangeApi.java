@@ -0,0 +1,30 @@
+package br.com.stoom.model.api;
+
+import br.com.stoom.entity.AddressChangeType;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder(builderClassName = "AddressChangeApiBuilder", toBuilder = true)
+@JsonDeserialize(builder = AddressChangeApi.AddressChangeApiBuilder.class)
+public class AddressChangeApi {
+
+    private long seq;
+    private UUID addressId;
+    private AddressChangeType type;
+    private Instant changedAt;
+    /**
+     * Current state of the address, which may already include later changes; null once it was deleted.
+     */
+    private AddressApi address;
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static class AddressChangeApiBuilder {
+
+    }
+}
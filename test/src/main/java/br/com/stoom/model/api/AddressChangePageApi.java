@@ -0,0 +1,26 @@
+package br.com.stoom.model.api;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder(builderClassName = "AddressChangePageApiBuilder", toBuilder = true)
+@JsonDeserialize(builder = AddressChangePageApi.AddressChangePageApiBuilder.class)
+public class AddressChangePageApi {
+
+    private List<AddressChangeApi> items;
+    /**
+     * Cursor to send as {@code since} on the next poll; unchanged when there was nothing new.
+     */
+    private String nextCursor;
+    private boolean hasMore;
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static class AddressChangePageApiBuilder {
+
+    }
+}
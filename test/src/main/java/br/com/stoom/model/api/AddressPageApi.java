@@ -0,0 +1,22 @@
+package br.com.stoom.model.api;
+
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import lombok.Builder;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@Builder(builderClassName = "AddressPageApiBuilder", toBuilder = true)
+@JsonDeserialize(builder = AddressPageApi.AddressPageApiBuilder.class)
+public class AddressPageApi {
+
+    private List<AddressApi> items;
+    private String nextCursor;
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static class AddressPageApiBuilder {
+
+    }
+}
@@ -0,0 +1,41 @@
+package br.com.stoom.model.api;
+
+import br.com.stoom.entity.ImportFormat;
+import br.com.stoom.entity.ImportJobStatus;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import lombok.Builder;
+import lombok.Data;
+
+import java.time.Instant;
+import java.util.UUID;
+
+@Data
+@Builder(builderClassName = "ImportJobApiBuilder", toBuilder = true)
+@JsonDeserialize(builder = ImportJobApi.ImportJobApiBuilder.class)
+public class ImportJobApi {
+
+    private UUID id;
+    private String path;
+    private ImportFormat format;
+    private ImportJobStatus status;
+    private long fileSize;
+    private long byteOffset;
+    private long imported;
+    private long duplicates;
+    private long failed;
+    private Instant createdAt;
+    private Instant updatedAt;
+    private Instant finishedAt;
+    private String error;
+    /**
+     * Throughput of the current run, or of the last one once the job stopped; a resumed run starts over.
+     */
+    private double rowsPerSecond;
+    private double bytesPerSecond;
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static class ImportJobApiBuilder {
+
+    }
+}
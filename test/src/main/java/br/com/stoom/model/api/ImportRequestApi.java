@@ -0,0 +1,31 @@
+package br.com.stoom.model.api;
+
+import br.com.stoom.entity.ImportFormat;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
+import lombok.Builder;
+import lombok.Data;
+
+import javax.validation.constraints.NotBlank;
+
+@Data
+@Builder(builderClassName = "ImportRequestApiBuilder", toBuilder = true)
+@JsonDeserialize(builder = ImportRequestApi.ImportRequestApiBuilder.class)
+public class ImportRequestApi {
+
+    /**
+     * File to import, relative to the import directory.
+     */
+    @NotBlank
+    private String path;
+
+    /**
+     * Taken from the file extension ({@code .csv}, {@code .ndjson} or {@code .jsonl}) when absent.
+     */
+    private ImportFormat format;
+
+    @JsonPOJOBuilder(withPrefix = "")
+    public static class ImportRequestApiBuilder {
+
+    }
+}
@@ -12,6 +12,11 @@ import java.util.List;
 @JsonDeserialize(builder = GeocodeResponse.GeocodeResponseBuilder.class)
 public class GeocodeResponse {
 
+    public static final String STATUS_OK = "OK";
+    public static final String STATUS_ZERO_RESULTS = "ZERO_RESULTS";
+    public static final String STATUS_INVALID_REQUEST = "INVALID_REQUEST";
+
+    private String status;
     private List<Result> results;
 
     @JsonPOJOBuilder(withPrefix = "")
@@ -6,15 +6,17 @@ import com.fasterxml.jackson.databind.annotation.JsonPOJOBuilder;
 import lombok.Builder;
 import lombok.Data;
 
+import java.math.BigDecimal;
+
 @Data
 @Builder(builderClassName = "LocationBuilder", toBuilder = true)
 @JsonDeserialize(builder = Location.LocationBuilder.class)
 public class Location {
 
     @JsonProperty("lat")
-    private String latitude;
+    private BigDecimal latitude;
     @JsonProperty("lng")
-    private String longitude;
+    private BigDecimal longitude;
 
     @JsonPOJOBuilder(withPrefix = "")
     public static class LocationBuilder {
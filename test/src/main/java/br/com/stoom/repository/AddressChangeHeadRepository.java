@@ -0,0 +1,17 @@
+package br.com.stoom.repository;
+
+import br.com.stoom.entity.AddressChangeHead;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import javax.persistence.LockModeType;
+
+@Repository
+public interface AddressChangeHeadRepository extends JpaRepository<AddressChangeHead, Integer> {
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select h from AddressChangeHead h where h.id = " + AddressChangeHead.ID)
+    AddressChangeHead lock();
+}
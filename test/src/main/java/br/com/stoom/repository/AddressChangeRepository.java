@@ -0,0 +1,14 @@
+package br.com.stoom.repository;
+
+import br.com.stoom.entity.AddressChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AddressChangeRepository extends JpaRepository<AddressChange, Long> {
+
+    List<AddressChange> findBySeqGreaterThanOrderBySeqAsc(long seq, Pageable pageable);
+}
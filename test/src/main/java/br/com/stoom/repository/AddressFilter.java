@@ -0,0 +1,24 @@
+package br.com.stoom.repository;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Exact-match criteria for searching addresses; null fields are not filtered on.
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class AddressFilter {
+
+    private String streetName;
+    private Integer number;
+    private String neighbourhood;
+    private String city;
+    private String state;
+    private String country;
+    private String zipcode;
+}
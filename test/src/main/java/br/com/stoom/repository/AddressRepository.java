@@ -1,11 +1,79 @@
 package br.com.stoom.repository;
 
 import br.com.stoom.entity.Address;
+import br.com.stoom.entity.GeocodeSource;
+import br.com.stoom.entity.GeocodingStatus;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import javax.persistence.QueryHint;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
 
 @Repository
-public interface AddressRepository extends JpaRepository<Address, UUID> {
+public interface AddressRepository extends JpaRepository<Address, UUID>, JpaSpecificationExecutor<Address>, AddressRepositoryCustom {
+
+    Optional<Address> findByFingerprint(String fingerprint);
+
+    List<Address> findByFingerprintIn(Collection<String> fingerprints);
+
+    List<Address> findAllByOrderByIdAsc(Pageable pageable);
+
+    List<Address> findByIdGreaterThanOrderByIdAsc(UUID id, Pageable pageable);
+
+    @QueryHints(@QueryHint(name = HINT_FETCH_SIZE, value = "500"))
+    @Query("select a from Address a")
+    Stream<Address> streamAll();
+
+    @Transactional
+    @Modifying
+    @Query("update Address a set a.latitude = :latitude, a.longitude = :longitude, a.geocodingStatus = :status, "
+            + "a.geocodedAt = :geocodedAt, a.geocodeSource = :source, a.version = a.version + 1 "
+            + "where a.id = :id and a.geocodingStatus = br.com.stoom.entity.GeocodingStatus.PENDING")
+    int completePendingGeocoding(@Param("id") UUID id,
+                                 @Param("latitude") BigDecimal latitude,
+                                 @Param("longitude") BigDecimal longitude,
+                                 @Param("status") GeocodingStatus status,
+                                 @Param("geocodedAt") Instant geocodedAt,
+                                 @Param("source") GeocodeSource source);
+
+    /**
+     * Keyset scan for the coordinate refresh: addresses after {@code afterId} without coordinates, with
+     * coordinates of unknown age or geocoded before {@code geocodedBefore}, in id order. Addresses whose last
+     * refresh failed are left out until their {@code geocodeRetryAt}.
+     */
+    @Query("select a from Address a where a.id > :afterId "
+            + "and (a.geocodedAt is null or a.geocodedAt < :geocodedBefore) "
+            + "and (a.geocodeRetryAt is null or a.geocodeRetryAt <= :now) order by a.id asc")
+    List<Address> findStaleGeocodesAfter(@Param("afterId") UUID afterId,
+                                         @Param("geocodedBefore") Instant geocodedBefore,
+                                         @Param("now") Instant now,
+                                         Pageable pageable);
+
+    @Query("select a from Address a where (a.geocodedAt is null or a.geocodedAt < :geocodedBefore) "
+            + "and (a.geocodeRetryAt is null or a.geocodeRetryAt <= :now) order by a.id asc")
+    List<Address> findStaleGeocodes(@Param("geocodedBefore") Instant geocodedBefore,
+                                    @Param("now") Instant now,
+                                    Pageable pageable);
+
+    /**
+     * Bookkeeping of a failed refresh; the version is left alone since clients see no change.
+     */
+    @Modifying
+    @Query("update Address a set a.geocodeFailures = :failures, a.geocodeRetryAt = :retryAt where a.id = :id")
+    int recordGeocodeFailure(@Param("id") UUID id, @Param("failures") int failures, @Param("retryAt") Instant retryAt);
 }
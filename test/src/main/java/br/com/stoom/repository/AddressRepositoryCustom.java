@@ -0,0 +1,15 @@
+package br.com.stoom.repository;
+
+import br.com.stoom.entity.Address;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.domain.Specification;
+
+public interface AddressRepositoryCustom {
+
+    /**
+     * Like {@code JpaSpecificationExecutor.findAll(Specification, Pageable)} without the count query: one extra
+     * row is fetched to tell whether a next slice exists.
+     */
+    Slice<Address> findSlice(Specification<Address> specification, Pageable pageable);
+}
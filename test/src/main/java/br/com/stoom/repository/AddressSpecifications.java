@@ -0,0 +1,27 @@
+package br.com.stoom.repository;
+
+import br.com.stoom.entity.Address;
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Equality predicates only, so that every filter can be answered from the address indexes.
+ */
+public final class AddressSpecifications {
+
+    private AddressSpecifications() {
+    }
+
+    public static Specification<Address> matching(AddressFilter filter) {
+        return Specification.where(fieldEquals("streetName", filter.getStreetName()))
+                .and(fieldEquals("number", filter.getNumber()))
+                .and(fieldEquals("neighbourhood", filter.getNeighbourhood()))
+                .and(fieldEquals("city", filter.getCity()))
+                .and(fieldEquals("state", filter.getState()))
+                .and(fieldEquals("country", filter.getCountry()))
+                .and(fieldEquals("zipcode", filter.getZipcode()));
+    }
+
+    private static Specification<Address> fieldEquals(String field, Object value) {
+        return value == null ? null : (root, query, criteriaBuilder) -> criteriaBuilder.equal(root.get(field), value);
+    }
+}
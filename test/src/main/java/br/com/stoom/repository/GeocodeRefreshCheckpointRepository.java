@@ -0,0 +1,32 @@
+package br.com.stoom.repository;
+
+import br.com.stoom.entity.GeocodeRefreshCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+
+@Repository
+public interface GeocodeRefreshCheckpointRepository extends JpaRepository<GeocodeRefreshCheckpoint, Integer> {
+
+    @Query("select c from GeocodeRefreshCheckpoint c where c.id = " + GeocodeRefreshCheckpoint.ID)
+    GeocodeRefreshCheckpoint get();
+
+    /**
+     * Takes or extends the sweeper lease until {@code lockedUntil} when it is free, expired or already held by
+     * {@code owner}. Returns 1 when the lease is held by {@code owner} afterwards, 0 otherwise.
+     */
+    @Modifying
+    @Query("update GeocodeRefreshCheckpoint c set c.lockedBy = :owner, c.lockedUntil = :lockedUntil "
+            + "where c.id = " + GeocodeRefreshCheckpoint.ID + " "
+            + "and (c.lockedUntil is null or c.lockedUntil < :now or c.lockedBy = :owner)")
+    int tryLock(@Param("owner") String owner, @Param("now") Instant now, @Param("lockedUntil") Instant lockedUntil);
+
+    @Modifying
+    @Query("update GeocodeRefreshCheckpoint c set c.lockedBy = null, c.lockedUntil = null "
+            + "where c.id = " + GeocodeRefreshCheckpoint.ID + " and c.lockedBy = :owner")
+    int unlock(@Param("owner") String owner);
+}
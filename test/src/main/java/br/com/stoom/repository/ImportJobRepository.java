@@ -0,0 +1,35 @@
+package br.com.stoom.repository;
+
+import br.com.stoom.entity.ImportJob;
+import br.com.stoom.entity.ImportJobStatus;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface ImportJobRepository extends JpaRepository<ImportJob, UUID> {
+
+    List<ImportJob> findByStatus(ImportJobStatus status);
+
+    List<ImportJob> findAllByOrderByIdDesc();
+
+    /**
+     * Takes or extends the lease on the job until {@code lockedUntil} when it is free, expired or already held by
+     * {@code owner}. Returns 1 when the lease is held by {@code owner} afterwards, 0 otherwise.
+     */
+    @Modifying
+    @Query("update ImportJob j set j.lockedBy = :owner, j.lockedUntil = :lockedUntil "
+            + "where j.id = :id and (j.lockedUntil is null or j.lockedUntil < :now or j.lockedBy = :owner)")
+    int tryLock(@Param("id") UUID id, @Param("owner") String owner, @Param("now") Instant now,
+                @Param("lockedUntil") Instant lockedUntil);
+
+    @Modifying
+    @Query("update ImportJob j set j.lockedBy = null, j.lockedUntil = null where j.id = :id and j.lockedBy = :owner")
+    int unlock(@Param("id") UUID id, @Param("owner") String owner);
+}
@@ -0,0 +1,120 @@
+package br.com.stoom.repository.migration;
+
+import br.com.stoom.entity.Address;
+import br.com.stoom.entity.AddressFingerprint;
+import liquibase.change.custom.CustomTaskChange;
+import liquibase.database.Database;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.exception.CustomChangeException;
+import liquibase.exception.ValidationErrors;
+import liquibase.resource.ResourceAccessor;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Fills the fingerprint of the addresses that existed before the column. Every row is fingerprinted in one streaming
+ * pass; then the database groups the fingerprints shared by more than one row and, within each group walked in id
+ * order, only the first row keeps it, so existing duplicates do not break the unique index created next. The later
+ * copies keep a null fingerprint, which {@link Address} never recomputes, so editing them cannot collide either.
+ */
+public class AddressFingerprintBackfill implements CustomTaskChange {
+
+    private static final int BATCH_SIZE = 500;
+
+    private int updated;
+    private int duplicates;
+
+    @Override
+    public void execute(Database database) throws CustomChangeException {
+        Connection connection = ((JdbcConnection) database.getConnection()).getUnderlyingConnection();
+        try {
+            fingerprintAll(connection);
+            clearDuplicates(connection);
+        } catch (SQLException e) {
+            throw new CustomChangeException("Could not backfill address fingerprints", e);
+        }
+    }
+
+    private void fingerprintAll(Connection connection) throws SQLException {
+        try (Statement select = connection.createStatement();
+             PreparedStatement update = connection.prepareStatement("update address set fingerprint = ? where id = ?")) {
+            select.setFetchSize(BATCH_SIZE);
+            try (ResultSet rows = select.executeQuery(
+                    "select id, street_name, number, complement, city, state, country, zipcode from address")) {
+                int pending = 0;
+                while (rows.next()) {
+                    update.setString(1, AddressFingerprint.of(Address.builder()
+                            .streetName(rows.getString("street_name"))
+                            .number(rows.getInt("number"))
+                            .complement(rows.getString("complement"))
+                            .neighbourhood("")
+                            .city(rows.getString("city"))
+                            .state(rows.getString("state"))
+                            .country(rows.getString("country"))
+                            .zipcode(rows.getString("zipcode"))
+                            .build()));
+                    update.setObject(2, rows.getObject("id"));
+                    update.addBatch();
+                    if (++pending == BATCH_SIZE) {
+                        update.executeBatch();
+                        pending = 0;
+                    }
+                    updated++;
+                }
+                if (pending > 0) {
+                    update.executeBatch();
+                }
+            }
+        }
+    }
+
+    private void clearDuplicates(Connection connection) throws SQLException {
+        try (Statement select = connection.createStatement();
+             PreparedStatement update = connection.prepareStatement("update address set fingerprint = null where id = ?")) {
+            select.setFetchSize(BATCH_SIZE);
+            try (ResultSet rows = select.executeQuery("select id, fingerprint from address where fingerprint in "
+                    + "(select fingerprint from address group by fingerprint having count(*) > 1) order by fingerprint, id")) {
+                int pending = 0;
+                String previous = null;
+                while (rows.next()) {
+                    String fingerprint = rows.getString("fingerprint");
+                    if (fingerprint.equals(previous)) {
+                        update.setObject(1, rows.getObject("id"));
+                        update.addBatch();
+                        if (++pending == BATCH_SIZE) {
+                            update.executeBatch();
+                            pending = 0;
+                        }
+                        duplicates++;
+                    }
+                    previous = fingerprint;
+                }
+                if (pending > 0) {
+                    update.executeBatch();
+                }
+            }
+        }
+    }
+
+    @Override
+    public String getConfirmationMessage() {
+        return "Fingerprinted " + (updated - duplicates) + " addresses, left " + duplicates + " duplicates without one";
+    }
+
+    @Override
+    public void setUp() {
+    }
+
+    @Override
+    public void setFileOpener(ResourceAccessor resourceAccessor) {
+    }
+
+    @Override
+    public ValidationErrors validate(Database database) {
+        return new ValidationErrors();
+    }
+}
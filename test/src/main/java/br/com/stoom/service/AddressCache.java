@@ -0,0 +1,63 @@
+package br.com.stoom.service;
+
+import br.com.stoom.configuration.AddressProperties;
+import br.com.stoom.entity.Address;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.UUID;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of addresses by id. Entries are detached copies, so callers can never change
+ * what other readers see. Absent ids are not cached.
+ * <p>
+ * A load runs under the key's lock, so an invalidation issued after a write commits waits for any load that
+ * may have read the old row and then drops its result.
+ */
+@Component
+public class AddressCache implements MeterBinder {
+
+    private final Cache<UUID, Address> addresses;
+
+    @Autowired
+    public AddressCache(AddressProperties addressProperties) {
+        AddressProperties.Cache properties = addressProperties.getCache();
+        this.addresses = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * Returns a copy of the cached address, loading it with {@code loader} on a miss, or null when the loader
+     * finds nothing.
+     */
+    public Address get(UUID id, Function<UUID, Address> loader) {
+        Address address = addresses.get(id, key -> copy(loader.apply(key)));
+        return copy(address);
+    }
+
+    public void invalidate(UUID id) {
+        addresses.invalidate(id);
+    }
+
+    public void clear() {
+        addresses.invalidateAll();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, addresses, "address");
+    }
+
+    private static Address copy(Address address) {
+        return address == null ? null : address.toBuilder().build();
+    }
+}
@@ -0,0 +1,90 @@
+package br.com.stoom.service;
+
+import br.com.stoom.entity.AddressChange;
+import br.com.stoom.entity.AddressChangeHead;
+import br.com.stoom.entity.AddressChangeType;
+import br.com.stoom.repository.AddressChangeHeadRepository;
+import br.com.stoom.repository.AddressChangeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Appends address changes to the change feed inside the transaction that makes them. Changes are collected while
+ * the transaction runs and written right before it commits, under a lock on the {@link AddressChangeHead} row: the
+ * lock is only held for the commit itself, and sequence numbers are handed out in commit order.
+ */
+@Component
+public class AddressChangeLog {
+
+    private final AddressChangeRepository addressChangeRepository;
+    private final AddressChangeHeadRepository addressChangeHeadRepository;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Autowired
+    public AddressChangeLog(AddressChangeRepository addressChangeRepository, AddressChangeHeadRepository addressChangeHeadRepository) {
+        this.addressChangeRepository = addressChangeRepository;
+        this.addressChangeHeadRepository = addressChangeHeadRepository;
+    }
+
+    public void record(UUID addressId, AddressChangeType type) {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            throw new IllegalStateException("Address changes must be recorded inside the transaction that makes them");
+        }
+        PendingChanges pending = (PendingChanges) TransactionSynchronizationManager.getResource(this);
+        if (pending == null) {
+            pending = new PendingChanges();
+            TransactionSynchronizationManager.bindResource(this, pending);
+            TransactionSynchronizationManager.registerSynchronization(pending);
+        }
+        pending.addressIds.add(addressId);
+        pending.types.add(type);
+    }
+
+    /**
+     * Up to {@code limit} changes with a sequence number greater than {@code since}, oldest first.
+     */
+    public List<AddressChange> findSince(long since, int limit) {
+        return addressChangeRepository.findBySeqGreaterThanOrderBySeqAsc(since, PageRequest.of(0, limit));
+    }
+
+    private class PendingChanges extends TransactionSynchronizationAdapter {
+
+        private final List<UUID> addressIds = new ArrayList<>();
+        private final List<AddressChangeType> types = new ArrayList<>();
+
+        @Override
+        public void beforeCommit(boolean readOnly) {
+            AddressChangeHead head = addressChangeHeadRepository.lock();
+            long seq = head.getLastSeq();
+            Instant now = Instant.now();
+            List<AddressChange> changes = new ArrayList<>(addressIds.size());
+            for (int i = 0; i < addressIds.size(); i++) {
+                changes.add(AddressChange.builder()
+                        .seq(++seq)
+                        .addressId(addressIds.get(i))
+                        .type(types.get(i))
+                        .changedAt(now)
+                        .build());
+            }
+            head.setLastSeq(seq);
+            changes.forEach(entityManager::persist);
+        }
+
+        @Override
+        public void afterCompletion(int status) {
+            TransactionSynchronizationManager.unbindResource(AddressChangeLog.this);
+        }
+    }
+}
@@ -1,17 +1,66 @@
 package br.com.stoom.service;
 
+import br.com.stoom.configuration.GeocodingProperties;
+import br.com.stoom.configuration.GoogleGeocodeApiProperties;
 import br.com.stoom.entity.Address;
+import br.com.stoom.entity.AddressChange;
+import br.com.stoom.entity.AddressChangeType;
+import br.com.stoom.entity.AddressFingerprint;
+import br.com.stoom.entity.GeocodingStatus;
+import br.com.stoom.exception.AddressAlreadyExistsException;
 import br.com.stoom.exception.AddressNotFoundException;
+import br.com.stoom.exception.AddressVersionMismatchException;
+import br.com.stoom.exception.GoogleApiInvalidAddressInformationException;
+import br.com.stoom.geocoder.GeocodePrecision;
+import br.com.stoom.index.SpatialIndex;
+import br.com.stoom.index.TrigramIndex;
+import br.com.stoom.repository.AddressFilter;
 import br.com.stoom.repository.AddressRepository;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationAdapter;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+import java.util.ArrayList;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-import static org.apache.commons.lang3.StringUtils.isEmpty;
+import static br.com.stoom.repository.AddressSpecifications.matching;
 
 @Service
 public class AddressService {
@@ -19,41 +68,612 @@ public class AddressService {
     private static final Logger log = LoggerFactory.getLogger(AddressService.class);
     private LatitudeLongitudeService latitudeLongitudeService;
     private AddressRepository addressRepository;
+    private TaskExecutor geocodingEnrichmentExecutor;
+    private TaskExecutor geocodedAddressWriteExecutor;
+    private TransactionTemplate transactionTemplate;
+    private SpatialIndex spatialIndex;
+    private TrigramIndex trigramIndex;
+    private AddressCache addressCache;
+    private AddressChangeLog addressChangeLog;
+    private GeocodingProperties geocodingProperties;
+
+    @PersistenceContext
+    private EntityManager entityManager;
 
     @Autowired
-    public AddressService(AddressRepository addressRepository, LatitudeLongitudeService latitudeLongitudeService) {
+    public AddressService(AddressRepository addressRepository,
+                          LatitudeLongitudeService latitudeLongitudeService,
+                          @Qualifier("geocodingEnrichmentExecutor") TaskExecutor geocodingEnrichmentExecutor,
+                          @Qualifier("geocodedAddressWriteExecutor") TaskExecutor geocodedAddressWriteExecutor,
+                          PlatformTransactionManager transactionManager,
+                          SpatialIndex spatialIndex,
+                          TrigramIndex trigramIndex,
+                          AddressCache addressCache,
+                          AddressChangeLog addressChangeLog,
+                          GeocodingProperties geocodingProperties,
+                          GoogleGeocodeApiProperties apiProperties) {
         this.addressRepository = addressRepository;
         this.latitudeLongitudeService = latitudeLongitudeService;
+        this.geocodingEnrichmentExecutor = geocodingEnrichmentExecutor;
+        this.geocodedAddressWriteExecutor = geocodedAddressWriteExecutor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.spatialIndex = spatialIndex;
+        this.trigramIndex = trigramIndex;
+        this.addressCache = addressCache;
+        this.addressChangeLog = addressChangeLog;
+        this.geocodingProperties = geocodingProperties;
+        checkBatchFitsRateLimit(geocodingProperties.getBatch(), apiProperties.getRateLimit());
+    }
+
+    /**
+     * Fails at startup when a single full batch could fill the background lane of the rate limiter, or could never
+     * start a geocode.
+     */
+    static void checkBatchFitsRateLimit(GeocodingProperties.Batch batch, GoogleGeocodeApiProperties.RateLimit rateLimit) {
+        if (batch.getConcurrency() < 1) {
+            throw new IllegalStateException("stoom.geocoding.batch.concurrency must be at least 1");
+        }
+        if (rateLimit.isEnabled() && batch.getMaxSize() > rateLimit.getBackgroundQueueCapacity()) {
+            throw new IllegalStateException("stoom.geocoding.batch.max-size (" + batch.getMaxSize()
+                    + ") must not exceed stoom.google.api.rate-limit.background-queue-capacity ("
+                    + rateLimit.getBackgroundQueueCapacity() + ")");
+        }
+    }
+
+    public Slice<Address> search(AddressFilter filter, Pageable pageable) {
+        return addressRepository.findSlice(matching(filter), pageable);
+    }
+
+    public List<Address> search(AddressFilter filter, Sort sort) {
+        return addressRepository.findAll(matching(filter), sort);
+    }
+
+    /**
+     * Keyset page ordered by id: returns up to {@code size} addresses whose id comes after {@code after}.
+     */
+    public List<Address> findPage(UUID after, int size) {
+        PageRequest pageRequest = PageRequest.of(0, size);
+        return after == null
+                ? addressRepository.findAllByOrderByIdAsc(pageRequest)
+                : addressRepository.findByIdGreaterThanOrderByIdAsc(after, pageRequest);
+    }
+
+    /**
+     * Hands every address to the consumer from a database cursor, detaching each one so memory stays flat. The
+     * cursor reads one snapshot of the table, so writes committed while streaming are not seen.
+     */
+    @Transactional(readOnly = true, isolation = Isolation.REPEATABLE_READ)
+    public void streamAll(Consumer<Address> consumer) {
+        try (Stream<Address> addresses = addressRepository.streamAll()) {
+            addresses.forEach(address -> {
+                consumer.accept(address);
+                entityManager.detach(address);
+            });
+        }
+    }
+
+    public List<Address> findWithinRadius(double latitude, double longitude, double radiusKm, int limit) {
+        return findAllInOrder(spatialIndex.withinRadius(latitude, longitude, radiusKm, limit));
     }
 
-    public List<Address> findAll() {
-        return addressRepository.findAll();
+    public List<Address> findNearest(double latitude, double longitude, int k) {
+        return findAllInOrder(spatialIndex.nearest(latitude, longitude, k));
+    }
+
+    public List<Address> findSuggestions(String query, int limit) {
+        return findAllInOrder(trigramIndex.suggest(query, limit));
     }
 
     public Address findById(UUID id) {
-        return addressRepository.findById(id).orElseThrow(AddressNotFoundException::new);
+        Address address = addressCache.get(id, key -> addressRepository.findById(key).orElse(null));
+        if (address == null) {
+            throw new AddressNotFoundException();
+        }
+        return address;
+    }
+
+    /**
+     * Fails with {@link AddressAlreadyExistsException} before geocoding when the same address is already stored.
+     */
+    public Address save(Address address, GeocodePrecision precision) {
+        log.info("Creating {}", address);
+        rejectDuplicate(address);
+        return indexed(insert(handleLatitudeAndLongitude(address, precision, GeocodingPriority.INTERACTIVE)));
     }
 
-    public Address save(Address address) {
+    /**
+     * Non-blocking counterpart of {@link #save}: the duplicate check runs on the caller's thread, no thread waits
+     * for the geocode, and the insert runs on the geocoded write pool once the coordinates arrive.
+     */
+    public CompletableFuture<Address> saveAsync(Address address, GeocodePrecision precision) {
         log.info("Creating {}", address);
-        return addressRepository.save(handleLatitudeAndLongitude(address));
+        rejectDuplicate(address);
+        if (address.hasLatitudeAndLongitude()) {
+            return CompletableFuture.completedFuture(indexed(insert(address)));
+        }
+        return geocodeAsync(address, precision, GeocodingPriority.INTERACTIVE)
+                .thenApplyAsync(geocoded -> indexed(insert(geocoded)), geocodedAddressWriteExecutor);
+    }
+
+    /**
+     * Create-or-return-existing keyed on the address fingerprint: a duplicate resolves to the stored address without
+     * geocoding, including when a concurrent request inserted it first. Like {@link #saveAsync}, no thread waits for
+     * the geocode.
+     */
+    public CompletableFuture<UpsertResult> saveOrGetExistingAsync(Address address, boolean deferGeocoding, GeocodePrecision precision) {
+        Optional<Address> existing = addressRepository.findByFingerprint(AddressFingerprint.of(address));
+        if (existing.isPresent()) {
+            log.debug("Address {} already exists", existing.get().getId());
+            return CompletableFuture.completedFuture(UpsertResult.existing(existing.get()));
+        }
+        CompletableFuture<Address> created;
+        try {
+            created = deferGeocoding ? CompletableFuture.completedFuture(saveWithDeferredGeocoding(address)) : saveAsync(address, precision);
+        } catch (AddressAlreadyExistsException e) {
+            return CompletableFuture.completedFuture(UpsertResult.existing(findById(e.getExistingId())));
+        }
+        return created.handle((persisted, error) -> {
+            if (error == null) {
+                return UpsertResult.created(persisted);
+            }
+            Throwable cause = LatitudeLongitudeService.unwrap(error);
+            if (cause instanceof AddressAlreadyExistsException) {
+                return UpsertResult.existing(findById(((AddressAlreadyExistsException) cause).getExistingId()));
+            }
+            throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(error);
+        });
+    }
+
+    /**
+     * Persists the address right away and, when it has no coordinates, leaves it {@link GeocodingStatus#PENDING}
+     * for the enrichment worker pool. If the pool is saturated, or the lookup fails for a reason other than an
+     * invalid address, the address stays pending until {@link GeocodeRefreshSweeper} reaches it: rows without
+     * coordinates are always due for a refresh.
+     */
+    public Address saveWithDeferredGeocoding(Address address) {
+        if (address.hasLatitudeAndLongitude()) {
+            return save(address, null);
+        }
+        log.info("Creating {} with deferred geocoding", address);
+        rejectDuplicate(address);
+        Address persisted = insert(address.toBuilder().geocodingStatus(GeocodingStatus.PENDING).build());
+        try {
+            geocodingEnrichmentExecutor.execute(() -> enrichLatitudeAndLongitude(persisted.getId()));
+        } catch (TaskRejectedException e) {
+            log.warn("Geocoding enrichment queue is full, address {} stays pending until the refresh sweeper reaches it", persisted.getId());
+        }
+        return persisted;
+    }
+
+    /**
+     * Geocodes the addresses missing coordinates, a bounded number in flight at a time, then inserts every geocoded
+     * address with JDBC batching on the geocoded write pool. Results are returned in input order; a failing address
+     * never fails the rest of the batch. Batch geocodes go through the background lane of the rate limiter, behind
+     * interactive requests.
+     */
+    public CompletableFuture<List<BatchSaveResult>> saveBatchAsync(List<Address> addresses, GeocodePrecision precision) {
+        List<CompletableFuture<Address>> geocodedAddresses = geocodeBatch(addresses, precision);
+        return CompletableFuture.allOf(geocodedAddresses.toArray(new CompletableFuture<?>[0]))
+                .handleAsync((ignored, error) -> insertBatch(addresses, geocodedAddresses, false), geocodedAddressWriteExecutor);
+    }
+
+    /**
+     * Blocking counterpart of {@link #saveBatchAsync} for callers that already run on a worker thread, such as
+     * the file import. With {@code deferFailedGeocodes}, an address whose geocode fails for a transient reason, such
+     * as a full rate limit queue, a 5xx or a timeout, is stored {@link GeocodingStatus#PENDING} without coordinates
+     * for {@link GeocodeRefreshSweeper} to retry, instead of failing; only addresses Google cannot find still fail.
+     */
+    public List<BatchSaveResult> saveBatch(List<Address> addresses, GeocodePrecision precision, boolean deferFailedGeocodes) {
+        return insertBatch(addresses, geocodeBatch(addresses, precision), deferFailedGeocodes);
+    }
+
+    /**
+     * At most {@code stoom.geocoding.batch.concurrency} geocodes of the batch are in flight at a time: each one that
+     * completes starts the next, so no thread waits and a large batch never takes more than its share of the
+     * background rate limit lane or of the HTTP connection pool.
+     */
+    private List<CompletableFuture<Address>> geocodeBatch(List<Address> addresses, GeocodePrecision precision) {
+        log.info("Creating batch of {} addresses", addresses.size());
+        Map<String, UUID> existingIds = addressRepository.findByFingerprintIn(addresses.stream()
+                .map(AddressFingerprint::of)
+                .collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(Address::getFingerprint, Address::getId));
+        Queue<Supplier<CompletableFuture<Address>>> toGeocode = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<Address>> results = new ArrayList<>(addresses.size());
+        for (Address address : addresses) {
+            UUID existingId = existingIds.get(AddressFingerprint.of(address));
+            if (existingId != null) {
+                CompletableFuture<Address> duplicate = new CompletableFuture<>();
+                duplicate.completeExceptionally(new AddressAlreadyExistsException(existingId));
+                results.add(duplicate);
+            } else if (address.hasLatitudeAndLongitude()) {
+                results.add(CompletableFuture.completedFuture(address));
+            } else {
+                CompletableFuture<Address> result = new CompletableFuture<>();
+                toGeocode.add(() -> geocodeInto(address, precision, result));
+                results.add(result);
+            }
+        }
+        for (int i = 0; i < geocodingProperties.getBatch().getConcurrency(); i++) {
+            geocodeNext(toGeocode);
+        }
+        return results;
+    }
+
+    private CompletableFuture<Address> geocodeInto(Address address, GeocodePrecision precision, CompletableFuture<Address> result) {
+        try {
+            geocodeAsync(address, precision, GeocodingPriority.BACKGROUND).whenComplete((geocoded, error) -> {
+                if (error == null) {
+                    result.complete(geocoded);
+                } else {
+                    result.completeExceptionally(LatitudeLongitudeService.unwrap(error));
+                }
+            });
+        } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+        }
+        return result;
+    }
+
+    /**
+     * Runs queued geocodes one after the other while they complete right away, as cache and local geocoder hits do,
+     * and hands over to the completion of the first one that does not.
+     */
+    private static void geocodeNext(Queue<Supplier<CompletableFuture<Address>>> toGeocode) {
+        Supplier<CompletableFuture<Address>> next;
+        while ((next = toGeocode.poll()) != null) {
+            CompletableFuture<Address> geocoded = next.get();
+            if (!geocoded.isDone()) {
+                geocoded.whenComplete((address, error) -> geocodeNext(toGeocode));
+                return;
+            }
+        }
+    }
+
+    private List<BatchSaveResult> insertBatch(List<Address> addresses, List<CompletableFuture<Address>> geocodedAddresses,
+                                              boolean deferFailedGeocodes) {
+        List<BatchSaveResult> results = new ArrayList<>(Collections.nCopies(geocodedAddresses.size(), null));
+        List<Integer> positions = new ArrayList<>();
+        List<Address> geocoded = new ArrayList<>();
+        for (int i = 0; i < geocodedAddresses.size(); i++) {
+            try {
+                geocoded.add(geocodedAddresses.get(i).join());
+                positions.add(i);
+            } catch (CompletionException e) {
+                Throwable cause = LatitudeLongitudeService.unwrap(e);
+                if (cause instanceof AddressAlreadyExistsException) {
+                    results.set(i, BatchSaveResult.duplicate((AddressAlreadyExistsException) cause));
+                } else if (deferFailedGeocodes && !(cause instanceof GoogleApiInvalidAddressInformationException)) {
+                    log.debug("Deferring geocoding of batch address {} after {}", i, cause.toString());
+                    geocoded.add(addresses.get(i).toBuilder().geocodingStatus(GeocodingStatus.PENDING).build());
+                    positions.add(i);
+                } else {
+                    results.set(i, BatchSaveResult.failed(cause.getMessage()));
+                }
+            }
+        }
+
+        try {
+            List<Address> persisted = transactionTemplate.execute(status -> {
+                List<Address> saved = addressRepository.saveAll(geocoded);
+                saved.forEach(address -> addressChangeLog.record(address.getId(), AddressChangeType.CREATED));
+                return saved;
+            });
+            for (int i = 0; i < persisted.size(); i++) {
+                results.set(positions.get(i), BatchSaveResult.saved(indexed(persisted.get(i))));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Batch insert failed, retrying one address at a time", e);
+            for (int i = 0; i < geocoded.size(); i++) {
+                results.set(positions.get(i), saveOne(geocoded.get(i)));
+            }
+        }
+        return results;
     }
 
-    public Address update(Address address) {
-        log.debug("Updating {}", address);
-        addressRepository.findById(address.getId()).orElseThrow(AddressNotFoundException::new);
-        return addressRepository.save(handleLatitudeAndLongitude(address));
+    private void rejectDuplicate(Address address) {
+        addressRepository.findByFingerprint(AddressFingerprint.of(address)).ifPresent(existing -> {
+            throw new AddressAlreadyExistsException(existing.getId());
+        });
+    }
+
+    /**
+     * Inserts the address together with its change feed entry, turning a unique fingerprint violation from a
+     * concurrent insert into {@link AddressAlreadyExistsException}.
+     */
+    private Address insert(Address address) {
+        try {
+            return transactionTemplate.execute(status -> {
+                Address persisted = addressRepository.save(address);
+                addressChangeLog.record(persisted.getId(), AddressChangeType.CREATED);
+                return persisted;
+            });
+        } catch (DataIntegrityViolationException e) {
+            Optional<Address> existing = addressRepository.findByFingerprint(AddressFingerprint.of(address));
+            if (existing.isPresent()) {
+                throw new AddressAlreadyExistsException(existing.get().getId());
+            }
+            throw e;
+        }
+    }
+
+    private BatchSaveResult saveOne(Address address) {
+        try {
+            return BatchSaveResult.saved(indexed(insert(address)));
+        } catch (AddressAlreadyExistsException e) {
+            return BatchSaveResult.duplicate(e);
+        } catch (DataAccessException e) {
+            return BatchSaveResult.failed(e.getMostSpecificCause().getMessage());
+        }
+    }
+
+    /**
+     * Geocodes outside any transaction, so neither a database connection nor a row lock is held during the Google
+     * call or while waiting for a rate limit token. The requested address is only geocoded when it has no
+     * coordinates and a field sent to the geocoder actually changed; the result is then applied by
+     * {@link #applyUpdate}.
+     * <p>
+     * A non-null {@code expectedVersion} must match the stored version before anything is geocoded, and again when
+     * the result is applied.
+     */
+    public Address update(UUID id, Long expectedVersion, UnaryOperator<Address> changes, GeocodePrecision precision) {
+        Address requested = requestedUpdate(id, expectedVersion, changes);
+        Address geocoded = requested == null ? null : handleLatitudeAndLongitude(requested, precision, GeocodingPriority.INTERACTIVE);
+        return applyUpdate(id, expectedVersion, changes, geocoded);
+    }
+
+    /**
+     * Non-blocking counterpart of {@link #update}: no thread waits for the geocode, and the result is applied on the
+     * geocoded write pool.
+     */
+    public CompletableFuture<Address> updateAsync(UUID id, Long expectedVersion, UnaryOperator<Address> changes, GeocodePrecision precision) {
+        Address requested = requestedUpdate(id, expectedVersion, changes);
+        if (requested == null) {
+            return CompletableFuture.completedFuture(applyUpdate(id, expectedVersion, changes, null));
+        }
+        return geocodeAsync(requested, precision, GeocodingPriority.INTERACTIVE).thenApplyAsync(geocoded -> applyUpdate(id, expectedVersion, changes, geocoded),
+                geocodedAddressWriteExecutor);
+    }
+
+    /**
+     * The requested address when it has to be geocoded, read from a snapshot outside any transaction; null when it
+     * brings its own coordinates or keeps the stored ones.
+     */
+    private Address requestedUpdate(UUID id, Long expectedVersion, UnaryOperator<Address> changes) {
+        Address snapshot = findById(id);
+        if (expectedVersion != null && !expectedVersion.equals(snapshot.getVersion())) {
+            throw new AddressVersionMismatchException();
+        }
+        Address requested = changes.apply(snapshot.toBuilder().build());
+        if (requested.hasLatitudeAndLongitude() || keepsStoredCoordinates(snapshot, requested)) {
+            return null;
+        }
+        log.debug("Geocoding {} before updating it", requested);
+        return requested;
+    }
+
+    /**
+     * Short read-modify-write: {@code changes} receives a copy of the stored address and returns the desired one,
+     * which takes the coordinates of {@code geocoded} and is copied onto the managed entity, flushed through dirty
+     * checking at commit. Should the fields sent to the geocoder have changed since {@code geocoded} was resolved,
+     * the update fails like any other concurrent modification instead of geocoding inside the transaction.
+     */
+    private Address applyUpdate(UUID id, Long expectedVersion, UnaryOperator<Address> changes, Address geocoded) {
+        return transactionTemplate.execute(status -> {
+            Address stored = addressRepository.findById(id).orElseThrow(AddressNotFoundException::new);
+            if (expectedVersion != null && !expectedVersion.equals(stored.getVersion())) {
+                throw new AddressVersionMismatchException();
+            }
+            Address requested = changes.apply(stored.toBuilder().build());
+            log.debug("Updating {}", requested);
+            if (!requested.hasLatitudeAndLongitude()) {
+                if (keepsStoredCoordinates(stored, requested)) {
+                    requested = withCoordinatesOf(stored, requested);
+                } else if (geocoded != null && geocoded.hasSameGeocodingFieldsAs(requested)) {
+                    requested = withCoordinatesOf(geocoded, requested);
+                } else {
+                    throw new OptimisticLockingFailureException("Address " + id + " changed while it was geocoded");
+                }
+            }
+            stored.updateFrom(requested);
+            addressChangeLog.record(id, AddressChangeType.UPDATED);
+            evict(id);
+            return indexed(stored);
+        });
+    }
+
+    private static boolean keepsStoredCoordinates(Address stored, Address requested) {
+        return stored.hasLatitudeAndLongitude() && stored.hasSameGeocodingFieldsAs(requested);
+    }
+
+    private static Address withCoordinatesOf(Address source, Address requested) {
+        return requested.toBuilder()
+                .latitude(source.getLatitude())
+                .longitude(source.getLongitude())
+                .geocodingStatus(source.getGeocodingStatus())
+                .geocodedAt(source.getGeocodedAt())
+                .geocodeSource(source.getGeocodeSource())
+                .build();
     }
 
     public void delete(UUID id) {
-        addressRepository.deleteById(id);
+        transactionTemplate.executeWithoutResult(status -> {
+            addressRepository.deleteById(id);
+            addressChangeLog.record(id, AddressChangeType.DELETED);
+        });
+        evict(id);
+        spatialIndex.remove(id);
+        trigramIndex.remove(id);
+    }
+
+    /**
+     * Drops the cached address right away and again once the transaction commits, so a read that loaded the
+     * old row in between cannot stay cached.
+     */
+    private void evict(UUID id) {
+        addressCache.invalidate(id);
+        afterCommit(() -> addressCache.invalidate(id));
+    }
+
+    private Address indexed(Address address) {
+        UUID id = address.getId();
+        String searchableText = address.searchableText();
+        afterCommit(() -> trigramIndex.put(id, searchableText));
+        if (address.hasLatitudeAndLongitude()) {
+            double latitude = address.getLatitude().doubleValue();
+            double longitude = address.getLongitude().doubleValue();
+            afterCommit(() -> spatialIndex.put(id, latitude, longitude));
+        } else {
+            afterCommit(() -> spatialIndex.remove(id));
+        }
+        return address;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronizationAdapter() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
     }
 
-    private Address handleLatitudeAndLongitude(Address address) {
+    private List<Address> findAllInOrder(List<UUID> ids) {
+        Map<UUID, Address> addresses = findAllById(ids);
+        return ids.stream()
+                .map(addresses::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+    }
+
+    private CompletableFuture<Address> geocodeAsync(Address address, GeocodePrecision precision, GeocodingPriority priority) {
+        return latitudeLongitudeService.findLatitudeAndLongitudeAsync(address, precision, priority)
+                .thenApply(geocoded -> geocoded.toBuilder().geocodingStatus(GeocodingStatus.RESOLVED).build());
+    }
+
+    private Address handleLatitudeAndLongitude(Address address, GeocodePrecision precision, GeocodingPriority priority) {
         log.info("Checking Latitude and Longitude.");
-        if (isEmpty(address.getLatitude()) || isEmpty(address.getLongitude())) {
-            return latitudeLongitudeService.findLatitudeAndLongitude(address);
+        if (!address.hasLatitudeAndLongitude()) {
+            return latitudeLongitudeService.findLatitudeAndLongitude(address, precision, priority)
+                    .toBuilder()
+                    .geocodingStatus(GeocodingStatus.RESOLVED)
+                    .build();
         }
         return address;
     }
+
+    /**
+     * Only rows that are still pending are touched, so a concurrent update or delete always wins over the enrichment.
+     */
+    void enrichLatitudeAndLongitude(UUID id) {
+        Address address = addressRepository.findById(id).orElse(null);
+        if (address == null || address.getGeocodingStatus() != GeocodingStatus.PENDING) {
+            return;
+        }
+        try {
+            Address geocoded = latitudeLongitudeService.findLatitudeAndLongitude(address, null, GeocodingPriority.BACKGROUND);
+            if (completePendingGeocoding(geocoded, GeocodingStatus.RESOLVED)) {
+                evict(id);
+                indexed(geocoded);
+            }
+        } catch (GoogleApiInvalidAddressInformationException e) {
+            log.info("Address {} could not be geocoded", id);
+            completePendingGeocoding(address.toBuilder().latitude(null).longitude(null).build(), GeocodingStatus.FAILED);
+            evict(id);
+        } catch (RuntimeException e) {
+            log.warn("Geocoding enrichment of address {} failed, it stays pending until the refresh sweeper reaches it", id, e);
+        }
+    }
+
+    private boolean completePendingGeocoding(Address geocoded, GeocodingStatus status) {
+        UUID id = geocoded.getId();
+        return Boolean.TRUE.equals(transactionTemplate.execute(transaction -> {
+            if (addressRepository.completePendingGeocoding(id, geocoded.getLatitude(), geocoded.getLongitude(), status,
+                    geocoded.getGeocodedAt(), geocoded.getGeocodeSource()) == 0) {
+                return false;
+            }
+            addressChangeLog.record(id, AddressChangeType.UPDATED);
+            return true;
+        }));
+    }
+
+    /**
+     * Up to {@code limit} addresses after {@code afterId}, or from the first one when it is null, that have no
+     * coordinates or coordinates geocoded before {@code geocodedBefore}, in id order, and are not backing off
+     * after a failed refresh.
+     */
+    public List<Address> findStaleGeocodes(UUID afterId, Instant geocodedBefore, Instant now, int limit) {
+        PageRequest page = PageRequest.of(0, limit);
+        return afterId == null
+                ? addressRepository.findStaleGeocodes(geocodedBefore, now, page)
+                : addressRepository.findStaleGeocodesAfter(afterId, geocodedBefore, now, page);
+    }
+
+    /**
+     * Counts one more failed refresh of each address and holds it back until the matching retry time. Joins the
+     * caller's transaction if there is one.
+     */
+    public void recordGeocodeFailures(List<Address> failed, Function<Integer, Instant> retryAt) {
+        if (failed.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> failed.forEach(address -> {
+            int failures = address.getGeocodeFailures() + 1;
+            addressRepository.recordGeocodeFailure(address.getId(), failures, retryAt.apply(failures));
+        }));
+    }
+
+    /**
+     * Writes refreshed coordinates back in one transaction, joining the caller's if there is one. Addresses updated
+     * or deleted since they were read are skipped, so a concurrent change always wins over the refresh. Returns how
+     * many addresses were written.
+     */
+    public int refreshGeocodes(List<Address> geocoded) {
+        if (geocoded.isEmpty()) {
+            return 0;
+        }
+        return transactionTemplate.execute(status -> {
+            Map<UUID, Address> stored = findAllById(geocoded.stream().map(Address::getId).collect(Collectors.toList()));
+            int refreshed = 0;
+            for (Address address : geocoded) {
+                Address current = stored.get(address.getId());
+                if (current == null || !Objects.equals(current.getVersion(), address.getVersion())) {
+                    continue;
+                }
+                current.setLatitude(address.getLatitude());
+                current.setLongitude(address.getLongitude());
+                current.setGeocodedAt(address.getGeocodedAt());
+                current.setGeocodeSource(address.getGeocodeSource());
+                current.setGeocodingStatus(GeocodingStatus.RESOLVED);
+                current.setGeocodeFailures(0);
+                current.setGeocodeRetryAt(null);
+                addressChangeLog.record(current.getId(), AddressChangeType.UPDATED);
+                evict(current.getId());
+                indexed(current);
+                refreshed++;
+            }
+            return refreshed;
+        });
+    }
+
+    /**
+     * Changes committed after {@code since}, oldest first, for consumers mirroring the address table.
+     */
+    public List<AddressChange> findChangesSince(long since, int limit) {
+        return addressChangeLog.findSince(since, limit);
+    }
+
+    /**
+     * The stored addresses among {@code ids}, by id; deleted ones are absent.
+     */
+    public Map<UUID, Address> findAllById(Collection<UUID> ids) {
+        return addressRepository.findAllById(ids)
+                .stream()
+                .collect(Collectors.toMap(Address::getId, Function.identity()));
+    }
 }
@@ -0,0 +1,35 @@
+package br.com.stoom.service;
+
+import br.com.stoom.entity.Address;
+import br.com.stoom.exception.AddressAlreadyExistsException;
+import lombok.Value;
+
+import java.util.UUID;
+
+@Value
+public class BatchSaveResult {
+
+    Address address;
+    String error;
+    UUID existingId;
+
+    public static BatchSaveResult saved(Address address) {
+        return new BatchSaveResult(address, null, null);
+    }
+
+    public static BatchSaveResult failed(String error) {
+        return new BatchSaveResult(null, error, null);
+    }
+
+    public static BatchSaveResult duplicate(AddressAlreadyExistsException e) {
+        return new BatchSaveResult(null, e.getMessage(), e.getExistingId());
+    }
+
+    public boolean isDuplicate() {
+        return existingId != null;
+    }
+
+    public boolean isSaved() {
+        return address != null;
+    }
+}
@@ -0,0 +1,78 @@
+package br.com.stoom.service;
+
+import br.com.stoom.configuration.GoogleGeocodeApiProperties;
+import br.com.stoom.entity.AddressNormalizer;
+import br.com.stoom.model.google.Location;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Bounded in-process cache of Google geocoding results keyed on the full address folded by
+ * {@link AddressNormalizer}.
+ * Successful lookups and failed lookups live in separate caches so that an invalid address is
+ * only remembered for a short time. Both caches publish their hit, miss and eviction metrics.
+ */
+@Component
+public class GeocodeCache implements MeterBinder {
+
+    private final Cache<String, Location> locations;
+    private final Cache<String, Boolean> failures;
+
+    @Autowired
+    public GeocodeCache(GoogleGeocodeApiProperties apiProperties) {
+        this(apiProperties, Ticker.systemTicker());
+    }
+
+    GeocodeCache(GoogleGeocodeApiProperties apiProperties, Ticker ticker) {
+        GoogleGeocodeApiProperties.Cache properties = apiProperties.getCache();
+        this.locations = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getTtl())
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        this.failures = Caffeine.newBuilder()
+                .maximumSize(properties.getNegativeMaximumSize())
+                .expireAfterWrite(properties.getNegativeTtl())
+                .ticker(ticker)
+                .recordStats()
+                .build();
+    }
+
+    public Location getLocation(String key) {
+        return locations.getIfPresent(key);
+    }
+
+    public boolean isKnownFailure(String key) {
+        return failures.getIfPresent(key) != null;
+    }
+
+    public void putLocation(String key, Location location) {
+        locations.put(key, location);
+    }
+
+    public void putFailure(String key) {
+        failures.put(key, Boolean.TRUE);
+    }
+
+    public CacheStats locationStats() {
+        return locations.stats();
+    }
+
+    public CacheStats failureStats() {
+        return failures.stats();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, locations, "geocode.locations");
+        CaffeineCacheMetrics.monitor(registry, failures, "geocode.failures");
+    }
+}
@@ -0,0 +1,220 @@
+package br.com.stoom.service;
+
+import br.com.stoom.configuration.GeocodingProperties;
+import br.com.stoom.entity.Address;
+import br.com.stoom.entity.GeocodeRefreshCheckpoint;
+import br.com.stoom.entity.GeocodeSource;
+import br.com.stoom.exception.GoogleApiInvalidAddressInformationException;
+import br.com.stoom.geocoder.GeocodePrecision;
+import br.com.stoom.repository.GeocodeRefreshCheckpointRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Collectors;
+
+/**
+ * Re-geocodes addresses whose coordinates are missing, of unknown age or older than {@code max-age}. A pass walks
+ * the address table once in id order with keyset pages; each scheduled run geocodes at most {@code max-per-run}
+ * stale addresses through the background lane of the rate limiter, and every page is written back in one
+ * transaction together with the checkpoint, so a restart continues right after the last page written.
+ * Lookups skip cached locations and never lower the precision of the stored coordinates.
+ * A completed pass is followed by the next one {@code pass-interval} after it started.
+ * <p>
+ * Addresses Google cannot geocode are skipped for {@code failure-backoff}, doubled on every further failure, so a
+ * permanently invalid address does not cost a call on every pass. Only the instance holding the lease on the
+ * checkpoint row runs; the lease is extended with every page and expires {@code lease} after the last one.
+ */
+@Component
+public class GeocodeRefreshSweeper {
+
+    private static final Logger log = LoggerFactory.getLogger(GeocodeRefreshSweeper.class);
+
+    private final AddressService addressService;
+    private final LatitudeLongitudeService latitudeLongitudeService;
+    private final GeocodeRefreshCheckpointRepository checkpointRepository;
+    private final GeocodingProperties.Refresh refresh;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    @Autowired
+    public GeocodeRefreshSweeper(AddressService addressService,
+                                 LatitudeLongitudeService latitudeLongitudeService,
+                                 GeocodeRefreshCheckpointRepository checkpointRepository,
+                                 GeocodingProperties geocodingProperties,
+                                 PlatformTransactionManager transactionManager,
+                                 MeterRegistry meterRegistry) {
+        this.addressService = addressService;
+        this.latitudeLongitudeService = latitudeLongitudeService;
+        this.checkpointRepository = checkpointRepository;
+        this.refresh = geocodingProperties.getRefresh();
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Scheduled(initialDelayString = "${stoom.geocoding.refresh.interval:PT1M}",
+            fixedDelayString = "${stoom.geocoding.refresh.interval:PT1M}")
+    public void scheduledSweep() {
+        if (!refresh.isEnabled()) {
+            return;
+        }
+        try {
+            sweep();
+        } catch (RuntimeException e) {
+            log.warn("Coordinate refresh run failed, the next run continues from the last checkpoint", e);
+        }
+    }
+
+    /**
+     * A single run, whatever {@code enabled} says. Returns the checkpoint it ended at.
+     */
+    public GeocodeRefreshCheckpoint sweep() {
+        Instant now = Instant.now();
+        if (!Boolean.TRUE.equals(transactionTemplate.execute(status ->
+                checkpointRepository.tryLock(owner, now, now.plus(refresh.getLease())) == 1))) {
+            log.debug("Coordinate refresh lease is held by another instance, skipping this run");
+            return checkpointRepository.get();
+        }
+        try {
+            return sweepHoldingLease();
+        } finally {
+            transactionTemplate.executeWithoutResult(status -> checkpointRepository.unlock(owner));
+        }
+    }
+
+    private GeocodeRefreshCheckpoint sweepHoldingLease() {
+        GeocodeRefreshCheckpoint checkpoint = checkpointRepository.get();
+        Instant now = Instant.now();
+        if (checkpoint.getPassCompletedAt() != null) {
+            if (checkpoint.getPassStartedAt().plus(refresh.getPassInterval()).isAfter(now)) {
+                return checkpoint;
+            }
+            checkpoint.setPassCompletedAt(null);
+            checkpoint.setPassStartedAt(null);
+            checkpoint.setLastAddressId(null);
+        }
+        if (checkpoint.getPassStartedAt() == null) {
+            log.info("Starting coordinate refresh pass");
+            checkpoint.setPassStartedAt(now);
+        }
+        Instant geocodedBefore = now.minus(refresh.getMaxAge());
+        int budget = refresh.getMaxPerRun();
+        while (budget > 0 && checkpoint.getPassCompletedAt() == null) {
+            int limit = Math.min(refresh.getBatchSize(), budget);
+            List<Address> page = addressService.findStaleGeocodes(checkpoint.getLastAddressId(), geocodedBefore, now, limit);
+            budget -= page.size();
+            checkpoint = refreshPage(checkpoint, page, page.size() < limit);
+        }
+        return checkpoint;
+    }
+
+    private GeocodeRefreshCheckpoint refreshPage(GeocodeRefreshCheckpoint checkpoint, List<Address> page, boolean last) {
+        List<Address> invalid = new ArrayList<>();
+        List<Address> geocoded = geocode(page, invalid);
+        if (!page.isEmpty()) {
+            checkpoint.setLastAddressId(page.get(page.size() - 1).getId());
+        }
+        if (last) {
+            checkpoint.setPassCompletedAt(Instant.now());
+            log.info("Coordinate refresh pass completed: {} refreshed, {} failed", checkpoint.getRefreshed(), checkpoint.getFailed());
+        }
+        checkpoint.setUpdatedAt(Instant.now());
+        long failed = page.size() - geocoded.size();
+        long refreshedBefore = checkpoint.getRefreshed();
+        long failedBefore = checkpoint.getFailed();
+        try {
+            int refreshed = transactionTemplate.execute(status -> {
+                holdLease(checkpoint);
+                int written = addressService.refreshGeocodes(geocoded);
+                addressService.recordGeocodeFailures(invalid, this::retryAt);
+                checkpoint.setRefreshed(refreshedBefore + written);
+                checkpoint.setFailed(failedBefore + failed);
+                checkpointRepository.save(checkpoint);
+                return written;
+            });
+            count("refreshed", refreshed);
+            count("failed", failed);
+            count("skipped", geocoded.size() - refreshed);
+        } catch (DataAccessException e) {
+            log.warn("Could not write {} refreshed coordinates back, moving past them", geocoded.size(), e);
+            count("failed", page.size());
+            checkpoint.setRefreshed(refreshedBefore);
+            checkpoint.setFailed(failedBefore + page.size());
+            transactionTemplate.executeWithoutResult(status -> {
+                holdLease(checkpoint);
+                checkpointRepository.save(checkpoint);
+            });
+        }
+        return checkpoint;
+    }
+
+    /**
+     * Extends the lease before a page is written, so an instance that lost it to another one cannot overwrite the
+     * checkpoint; the saved checkpoint carries the extended lease.
+     */
+    private void holdLease(GeocodeRefreshCheckpoint checkpoint) {
+        Instant now = Instant.now();
+        Instant lockedUntil = now.plus(refresh.getLease());
+        if (checkpointRepository.tryLock(owner, now, lockedUntil) == 0) {
+            throw new IllegalStateException("Coordinate refresh lease was taken over by another instance");
+        }
+        checkpoint.setLockedBy(owner);
+        checkpoint.setLockedUntil(lockedUntil);
+    }
+
+    private Instant retryAt(int failures) {
+        Duration backoff = refresh.getFailureBackoff().multipliedBy(1L << Math.min(failures - 1, 20));
+        return Instant.now().plus(backoff.compareTo(refresh.getMaxFailureBackoff()) > 0 ? refresh.getMaxFailureBackoff() : backoff);
+    }
+
+    /**
+     * The addresses that could be geocoded, with their new coordinates; all calls are in flight together. Addresses
+     * Google reports as invalid are added to {@code invalid}; other failures are transient and left for the next pass.
+     */
+    private List<Address> geocode(List<Address> page, List<Address> invalid) {
+        List<CompletableFuture<Address>> lookups = page.stream()
+                .map(address -> latitudeLongitudeService.refreshLatitudeAndLongitudeAsync(address, refreshPrecision(address),
+                        GeocodingPriority.BACKGROUND))
+                .collect(Collectors.toList());
+        List<Address> geocoded = new ArrayList<>(page.size());
+        for (int i = 0; i < lookups.size(); i++) {
+            try {
+                geocoded.add(lookups.get(i).join());
+            } catch (CompletionException e) {
+                log.debug("Could not refresh coordinates of address {}", page.get(i).getId(), e.getCause());
+                if (e.getCause() instanceof GoogleApiInvalidAddressInformationException) {
+                    invalid.add(page.get(i));
+                }
+            }
+        }
+        return geocoded;
+    }
+
+    /**
+     * Coordinates from Google or from the client are refreshed at rooftop precision, so an approximate default never
+     * swaps them for a zipcode or city centroid; local and missing ones use the configured default.
+     */
+    static GeocodePrecision refreshPrecision(Address address) {
+        GeocodeSource source = address.getGeocodeSource();
+        return source == GeocodeSource.GOOGLE || source == GeocodeSource.CLIENT ? GeocodePrecision.ROOFTOP : null;
+    }
+
+    private void count(String outcome, long amount) {
+        meterRegistry.counter("stoom.geocode.refresh", "outcome", outcome).increment(amount);
+    }
+}
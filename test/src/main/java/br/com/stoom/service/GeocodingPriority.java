@@ -0,0 +1,10 @@
+package br.com.stoom.service;
+
+/**
+ * Lane of an outbound geocoding call in the {@link GeocodingRateLimiter}: interactive calls always take the next
+ * free token before background ones.
+ */
+public enum GeocodingPriority {
+    INTERACTIVE,
+    BACKGROUND
+}
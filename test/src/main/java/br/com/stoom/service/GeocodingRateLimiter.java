@@ -0,0 +1,225 @@
+package br.com.stoom.service;
+
+import br.com.stoom.configuration.GoogleGeocodeApiProperties;
+import br.com.stoom.exception.GeocodingRateLimitExceededException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Token bucket in front of the Google Geocoding API, refilled at the configured QPS up to {@code burst} tokens.
+ * Calls that find no free token wait in the queue of their {@link GeocodingPriority}, and every new token goes to
+ * the oldest interactive call before any background one. A full queue rejects the call right away with
+ * {@link GeocodingRateLimitExceededException} instead of letting it wait behind work it can never catch up with.
+ * <p>
+ * Nothing blocks: waiting calls get a future that completes when their token is handed out, either by the call that
+ * finds tokens available or by a single timer scheduled for the next refill.
+ */
+@Component
+public class GeocodingRateLimiter {
+
+    private final GoogleGeocodeApiProperties.RateLimit rateLimit;
+    private final TaskScheduler scheduler;
+    private final MeterRegistry meterRegistry;
+    private final LongSupplier nanoTime;
+    private final Map<GeocodingPriority, Deque<Waiter>> lanes = new EnumMap<>(GeocodingPriority.class);
+    private final Map<GeocodingPriority, Counter> rejections = new EnumMap<>(GeocodingPriority.class);
+
+    private double tokens;
+    private long refilledAt;
+    private boolean drainScheduled;
+
+    @Autowired
+    public GeocodingRateLimiter(GoogleGeocodeApiProperties apiProperties,
+                                @Qualifier("geocodingRateLimitScheduler") TaskScheduler scheduler,
+                                MeterRegistry meterRegistry) {
+        this(apiProperties, scheduler, meterRegistry, System::nanoTime);
+    }
+
+    GeocodingRateLimiter(GoogleGeocodeApiProperties apiProperties, TaskScheduler scheduler, MeterRegistry meterRegistry,
+                         LongSupplier nanoTime) {
+        this.rateLimit = apiProperties.getRateLimit();
+        this.scheduler = scheduler;
+        this.meterRegistry = meterRegistry;
+        this.nanoTime = nanoTime;
+        this.tokens = rateLimit.getBurst();
+        this.refilledAt = nanoTime.getAsLong();
+        for (GeocodingPriority priority : GeocodingPriority.values()) {
+            lanes.put(priority, new ArrayDeque<>());
+            Gauge.builder("stoom.geocode.ratelimit.queue", this, limiter -> limiter.queued(priority))
+                    .description("Google Geocoding API calls waiting for a rate limit token")
+                    .tag("lane", lane(priority))
+                    .register(meterRegistry);
+            rejections.put(priority, Counter.builder("stoom.geocode.ratelimit.rejected")
+                    .description("Google Geocoding API calls rejected because their rate limit queue was full")
+                    .tag("lane", lane(priority))
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Completes once the call may be sent, or exceptionally with {@link GeocodingRateLimitExceededException} when
+     * the queue of its lane is full.
+     */
+    public CompletableFuture<Void> acquire(GeocodingPriority priority) {
+        if (!rateLimit.isEnabled()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        Waiter waiter = new Waiter(priority);
+        synchronized (this) {
+            Deque<Waiter> lane = lanes.get(priority);
+            if (lane.size() >= capacity(priority)) {
+                rejections.get(priority).increment();
+                CompletableFuture<Void> rejected = new CompletableFuture<>();
+                rejected.completeExceptionally(new GeocodingRateLimitExceededException(priority));
+                return rejected;
+            }
+            lane.addLast(waiter);
+        }
+        drain();
+        return waiter.permit;
+    }
+
+    /**
+     * Moves a call still waiting for its token to the back of the lane of {@code priority} when that lane comes
+     * first, so a lookup joined by a more urgent caller waits no longer than that caller would. Calls already
+     * released, and calls whose new lane is full, stay where they are.
+     */
+    public synchronized void promote(CompletableFuture<Void> permit, GeocodingPriority priority) {
+        for (GeocodingPriority lower : GeocodingPriority.values()) {
+            if (lower.compareTo(priority) <= 0) {
+                continue;
+            }
+            Iterator<Waiter> waiters = lanes.get(lower).iterator();
+            while (waiters.hasNext()) {
+                Waiter waiter = waiters.next();
+                if (waiter.permit == permit) {
+                    if (lanes.get(priority).size() < capacity(priority)) {
+                        waiters.remove();
+                        waiter.priority = priority;
+                        lanes.get(priority).addLast(waiter);
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Takes a token only if one is free and no call is waiting for it, for calls that are simply skipped otherwise.
+     */
+    public synchronized boolean tryAcquire() {
+        if (!rateLimit.isEnabled()) {
+            return true;
+        }
+        refill();
+        if (tokens < 1 || lanes.values().stream().anyMatch(lane -> !lane.isEmpty())) {
+            return false;
+        }
+        tokens--;
+        return true;
+    }
+
+    private void drain() {
+        List<Waiter> released = new ArrayList<>();
+        synchronized (this) {
+            refill();
+            Waiter next;
+            while (tokens >= 1 && (next = poll()) != null) {
+                tokens--;
+                released.add(next);
+            }
+            if (!drainScheduled && queued() > 0) {
+                long delayNanos = (long) Math.ceil((1 - tokens) / rateLimit.getQps() * TimeUnit.SECONDS.toNanos(1));
+                try {
+                    scheduler.schedule(this::scheduledDrain, Instant.now().plusNanos(delayNanos));
+                    drainScheduled = true;
+                } catch (TaskRejectedException e) {
+                    // shutting down: the waiting calls are abandoned with the application
+                }
+            }
+        }
+        // completing a permit runs the caller's next stage, which must not happen while holding the lock
+        released.forEach(Waiter::release);
+    }
+
+    private void scheduledDrain() {
+        synchronized (this) {
+            drainScheduled = false;
+        }
+        drain();
+    }
+
+    private void refill() {
+        long now = nanoTime.getAsLong();
+        tokens = Math.min(rateLimit.getBurst(), tokens + (now - refilledAt) * rateLimit.getQps() / TimeUnit.SECONDS.toNanos(1));
+        refilledAt = now;
+    }
+
+    private Waiter poll() {
+        for (GeocodingPriority priority : GeocodingPriority.values()) {
+            Waiter waiter = lanes.get(priority).pollFirst();
+            if (waiter != null) {
+                return waiter;
+            }
+        }
+        return null;
+    }
+
+    private synchronized int queued() {
+        return lanes.values().stream().mapToInt(Deque::size).sum();
+    }
+
+    private synchronized int queued(GeocodingPriority priority) {
+        return lanes.get(priority).size();
+    }
+
+    private int capacity(GeocodingPriority priority) {
+        return priority == GeocodingPriority.INTERACTIVE
+                ? rateLimit.getInteractiveQueueCapacity()
+                : rateLimit.getBackgroundQueueCapacity();
+    }
+
+    private static String lane(GeocodingPriority priority) {
+        return priority.name().toLowerCase(Locale.ROOT);
+    }
+
+    private class Waiter {
+
+        private GeocodingPriority priority;
+        private final long enqueuedAt = nanoTime.getAsLong();
+        private final CompletableFuture<Void> permit = new CompletableFuture<>();
+
+        private Waiter(GeocodingPriority priority) {
+            this.priority = priority;
+        }
+
+        private void release() {
+            Timer.builder("stoom.geocode.ratelimit.wait")
+                    .description("Time Google Geocoding API calls waited for a rate limit token")
+                    .tag("lane", lane(priority))
+                    .register(meterRegistry)
+                    .record(nanoTime.getAsLong() - enqueuedAt, TimeUnit.NANOSECONDS);
+            permit.complete(null);
+        }
+    }
+}
@@ -0,0 +1,191 @@
+package br.com.stoom.service;
+
+import br.com.stoom.configuration.GoogleGeocodeApiProperties;
+import br.com.stoom.exception.GoogleApiUnavailableException;
+import br.com.stoom.model.google.GeocodeResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpResponse;
+import org.apache.http.client.methods.HttpGet;
+import org.apache.http.concurrent.FutureCallback;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.URI;
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Non-blocking calls to the Google Geocoding API: the returned future completes on the HTTP client's I/O threads,
+ * so no thread waits for the response. Every call first takes a token from the {@link GeocodingRateLimiter}.
+ * When hedging is enabled a duplicate request is sent once the first one has been running longer than the
+ * configured latency percentile, and whichever response arrives first wins; the other request is aborted.
+ * Hedges only use spare tokens: with none free, or calls waiting for one, the hedge is skipped.
+ */
+@Component
+public class GoogleGeocodeClient {
+
+    private static final Logger log = LoggerFactory.getLogger(GoogleGeocodeClient.class);
+
+    private final CloseableHttpAsyncClient httpClient;
+    private final TaskScheduler hedgeScheduler;
+    private final GeocodingRateLimiter rateLimiter;
+    private final GoogleGeocodeApiProperties.Hedge hedge;
+    private final LatencyTracker latencyTracker;
+    private final ObjectReader responseReader;
+
+    @Autowired
+    public GoogleGeocodeClient(@Qualifier("geocodingHttpClient") CloseableHttpAsyncClient httpClient,
+                               @Qualifier("geocodingHedgeScheduler") TaskScheduler hedgeScheduler,
+                               GeocodingRateLimiter rateLimiter,
+                               GoogleGeocodeApiProperties apiProperties,
+                               ObjectMapper objectMapper) {
+        this.httpClient = httpClient;
+        this.hedgeScheduler = hedgeScheduler;
+        this.rateLimiter = rateLimiter;
+        this.hedge = apiProperties.getHedge();
+        this.latencyTracker = new LatencyTracker(hedge.getSampleSize(), hedge.getPercentile());
+        this.responseReader = objectMapper.readerFor(GeocodeResponse.class);
+    }
+
+    public CompletableFuture<ResponseEntity<GeocodeResponse>> get(String uri, GeocodingPriority priority) {
+        return get(uri, rateLimiter.acquire(priority));
+    }
+
+    /**
+     * Sends the request once {@code permit}, taken from the {@link GeocodingRateLimiter} by the caller, completes.
+     */
+    public CompletableFuture<ResponseEntity<GeocodeResponse>> get(String uri, CompletableFuture<Void> permit) {
+        return permit.thenCompose(granted -> hedgedGet(uri));
+    }
+
+    private CompletableFuture<ResponseEntity<GeocodeResponse>> hedgedGet(String uri) {
+        HttpGet primaryRequest = new HttpGet(URI.create(uri));
+        CompletableFuture<ResponseEntity<GeocodeResponse>> primary = timedGet(primaryRequest);
+        Long hedgeDelay = hedge.isEnabled() ? hedgeDelayMillis() : null;
+        if (hedgeDelay == null) {
+            return primary;
+        }
+        CompletableFuture<ResponseEntity<GeocodeResponse>> winner = new CompletableFuture<>();
+        List<HttpGet> requests = new CopyOnWriteArrayList<>(Collections.singletonList(primaryRequest));
+        AtomicReference<HttpGet> winningRequest = new AtomicReference<>();
+        AtomicInteger attempts = new AtomicInteger(1);
+        AtomicInteger failures = new AtomicInteger();
+        primary.whenComplete((result, error) -> complete(winner, winningRequest, primaryRequest, attempts, failures, result, error));
+        ScheduledFuture<?> hedgeTask = hedgeScheduler.schedule(() -> {
+            if (winner.isDone()) {
+                return;
+            }
+            if (!rateLimiter.tryAcquire()) {
+                log.debug("Skipping hedge of slow Google Geocoding API request, no spare rate limit token");
+                return;
+            }
+            log.debug("Hedging slow Google Geocoding API request");
+            HttpGet hedgeRequest = new HttpGet(URI.create(uri));
+            requests.add(hedgeRequest);
+            attempts.incrementAndGet();
+            timedGet(hedgeRequest).whenComplete((result, error) ->
+                    complete(winner, winningRequest, hedgeRequest, attempts, failures, result, error));
+            if (winner.isDone() && winningRequest.get() != hedgeRequest) {
+                hedgeRequest.abort();
+            }
+        }, Instant.now().plusMillis(hedgeDelay));
+        winner.whenComplete((result, error) -> {
+            hedgeTask.cancel(false);
+            // the losing request would otherwise keep its connection until the response arrives
+            requests.stream()
+                    .filter(request -> request != winningRequest.get())
+                    .forEach(HttpGet::abort);
+        });
+        return winner;
+    }
+
+    /**
+     * The configured percentile of the recent latencies, but never less than {@code minDelay}. Until the tracker
+     * has enough samples this is the fixed {@code warmupDelay}, or null, meaning no hedge, when there is none: a
+     * cold start is exactly when latencies are unknown and a duplicate request costs the most.
+     */
+    Long hedgeDelayMillis() {
+        long percentile = latencyTracker.percentile();
+        if (percentile < 0) {
+            return hedge.getWarmupDelay() == null ? null : hedge.getWarmupDelay().toMillis();
+        }
+        return Math.max(hedge.getMinDelay().toMillis(), percentile);
+    }
+
+    /**
+     * Error statuses come back as a response without body, like any other status; only I/O failures, timeouts
+     * included, complete the future exceptionally, with a {@link GoogleApiUnavailableException}.
+     */
+    private CompletableFuture<ResponseEntity<GeocodeResponse>> timedGet(HttpGet request) {
+        CompletableFuture<ResponseEntity<GeocodeResponse>> response = new CompletableFuture<>();
+        long start = System.nanoTime();
+        httpClient.execute(request, new FutureCallback<HttpResponse>() {
+
+            @Override
+            public void completed(HttpResponse result) {
+                latencyTracker.record(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+                try {
+                    response.complete(toResponseEntity(result));
+                } catch (IOException e) {
+                    response.completeExceptionally(new GoogleApiUnavailableException("unreadable response", e));
+                } catch (RuntimeException e) {
+                    // never let it escape into the I/O reactor, which would leave the future incomplete forever
+                    response.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void failed(Exception e) {
+                response.completeExceptionally(new GoogleApiUnavailableException(e.toString(), e));
+            }
+
+            @Override
+            public void cancelled() {
+                response.cancel(false);
+            }
+        });
+        return response;
+    }
+
+    /**
+     * Keeps the raw status code: proxies and CDNs answer with codes {@link HttpStatus} does not know, such as 520.
+     */
+    private ResponseEntity<GeocodeResponse> toResponseEntity(HttpResponse response) throws IOException {
+        int status = response.getStatusLine().getStatusCode();
+        HttpEntity entity = response.getEntity();
+        if (status >= 400 || entity == null) {
+            EntityUtils.consume(entity);
+            return ResponseEntity.status(status).build();
+        }
+        return ResponseEntity.status(status).body(responseReader.readValue(entity.getContent()));
+    }
+
+    private static <T> void complete(CompletableFuture<T> winner, AtomicReference<HttpGet> winningRequest, HttpGet request,
+                                     AtomicInteger attempts, AtomicInteger failures, T result, Throwable error) {
+        if (error == null) {
+            if (winningRequest.compareAndSet(null, request)) {
+                winner.complete(result);
+            }
+        } else if (failures.incrementAndGet() >= attempts.get()) {
+            winner.completeExceptionally(error);
+        }
+    }
+}
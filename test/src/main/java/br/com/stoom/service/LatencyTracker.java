@@ -0,0 +1,46 @@
+package br.com.stoom.service;
+
+import java.util.Arrays;
+
+/**
+ * Keeps the last {@code sampleSize} latencies in a ring buffer and answers percentile queries over them.
+ * The percentile is recomputed at most once every {@link #REFRESH_INTERVAL} samples.
+ */
+class LatencyTracker {
+
+    private static final int REFRESH_INTERVAL = 32;
+
+    private final long[] samples;
+    private final double percentile;
+    private int count;
+    private long cachedPercentile = -1;
+
+    LatencyTracker(int sampleSize, double percentile) {
+        this.samples = new long[sampleSize];
+        this.percentile = percentile;
+    }
+
+    synchronized void record(long latencyMillis) {
+        samples[count % samples.length] = latencyMillis;
+        count++;
+        if (count % REFRESH_INTERVAL == 0) {
+            cachedPercentile = -1;
+        }
+    }
+
+    /**
+     * @return the tracked percentile in milliseconds, or -1 until a full refresh interval has been recorded
+     */
+    synchronized long percentile() {
+        if (count < REFRESH_INTERVAL) {
+            return -1;
+        }
+        if (cachedPercentile < 0) {
+            long[] sorted = Arrays.copyOf(samples, Math.min(count, samples.length));
+            Arrays.sort(sorted);
+            int index = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+            cachedPercentile = sorted[Math.max(0, Math.min(index, sorted.length - 1))];
+        }
+        return cachedPercentile;
+    }
+}
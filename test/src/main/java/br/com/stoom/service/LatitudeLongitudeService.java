@@ -1,55 +1,267 @@
 package br.com.stoom.service;
 
+import br.com.stoom.configuration.GeocodingProperties;
 import br.com.stoom.configuration.GoogleGeocodeApiProperties;
 import br.com.stoom.entity.Address;
+import br.com.stoom.entity.AddressNormalizer;
+import br.com.stoom.entity.GeocodeSource;
 import br.com.stoom.exception.GoogleApiInvalidAddressInformationException;
+import br.com.stoom.exception.GoogleApiUnavailableException;
+import br.com.stoom.geocoder.GeocodePrecision;
+import br.com.stoom.geocoder.Geocoder;
 import br.com.stoom.model.google.GeocodeResponse;
 import br.com.stoom.model.google.Geometry;
+import br.com.stoom.model.google.Location;
 import br.com.stoom.model.google.Result;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.UriComponentsBuilder;
 
+import java.time.Instant;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.stream.Collectors;
+
+import static br.com.stoom.model.google.GeocodeResponse.STATUS_INVALID_REQUEST;
+import static br.com.stoom.model.google.GeocodeResponse.STATUS_OK;
+import static br.com.stoom.model.google.GeocodeResponse.STATUS_ZERO_RESULTS;
 
 @Service
 public class LatitudeLongitudeService {
 
+    private static final Logger log = LoggerFactory.getLogger(LatitudeLongitudeService.class);
+
     @Autowired
-    private RestTemplate restTemplate;
+    private GoogleGeocodeClient googleGeocodeClient;
 
     @Autowired
     private GoogleGeocodeApiProperties apiProperties;
 
-    public LatitudeLongitudeService(RestTemplate restTemplate, GoogleGeocodeApiProperties apiProperties) {
-        this.restTemplate = restTemplate;
+    @Autowired
+    private GeocodeCache geocodeCache;
+
+    @Autowired
+    private GeocodingProperties geocodingProperties;
+
+    private final GeocodingRateLimiter rateLimiter;
+
+    private final List<Geocoder> localGeocoders;
+
+    private final MeterRegistry meterRegistry;
+
+    private final ConcurrentMap<String, InFlightLookup> inFlightLookups = new ConcurrentHashMap<>();
+
+    public LatitudeLongitudeService(GoogleGeocodeClient googleGeocodeClient,
+                                    GoogleGeocodeApiProperties apiProperties,
+                                    GeocodeCache geocodeCache,
+                                    GeocodingProperties geocodingProperties,
+                                    GeocodingRateLimiter rateLimiter,
+                                    ObjectProvider<Geocoder> localGeocoders,
+                                    MeterRegistry meterRegistry) {
+        this.googleGeocodeClient = googleGeocodeClient;
         this.apiProperties = apiProperties;
+        this.geocodeCache = geocodeCache;
+        this.geocodingProperties = geocodingProperties;
+        this.rateLimiter = rateLimiter;
+        this.localGeocoders = localGeocoders.orderedStream().collect(Collectors.toList());
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("stoom.geocode.google.in.flight", inFlightLookups, ConcurrentMap::size)
+                .description("Distinct Google Geocoding API lookups currently in flight")
+                .register(meterRegistry);
+    }
+
+    public Address findLatitudeAndLongitude(Address address, GeocodePrecision precision, GeocodingPriority priority) {
+        return await(findLatitudeAndLongitudeAsync(address, precision, priority));
+    }
+
+    /**
+     * Approximate lookups are answered by the local geocoders when one of them knows the address; rooftop
+     * lookups and local misses go to the Google Geocoding API, in the rate limiter lane of {@code priority}.
+     * A null precision means the configured default.
+     * The future completes on the HTTP client's I/O threads when the Google API is called, so dependent stages
+     * must not block.
+     */
+    public CompletableFuture<Address> findLatitudeAndLongitudeAsync(Address address, GeocodePrecision precision,
+                                                                    GeocodingPriority priority) {
+        return lookup(address, precision, priority, true);
     }
 
-    public Address findLatitudeAndLongitude(Address address) {
-        GeocodeResponse geocodeResponseEntity = consumeGoogleApi(address);
-        return buildAddressLatitudeAndLongitude(Objects.requireNonNull(geocodeResponseEntity), address).build();
+    /**
+     * Like {@link #findLatitudeAndLongitudeAsync}, but a Google lookup skips the cached location, so the coordinates
+     * stamped as fresh really are; the result replaces the cached one. A recently cached failure still fails the
+     * lookup, since it stamps nothing.
+     */
+    public CompletableFuture<Address> refreshLatitudeAndLongitudeAsync(Address address, GeocodePrecision precision,
+                                                                       GeocodingPriority priority) {
+        return lookup(address, precision, priority, false);
     }
 
-    private GeocodeResponse consumeGoogleApi(Address address) {
-        ResponseEntity<GeocodeResponse> geocodingResponseEntity =
-                restTemplate.getForEntity(buildUri(address), GeocodeResponse.class);
-        if (geocodingResponseEntity.getStatusCode().isError()) {
+    private CompletableFuture<Address> lookup(Address address, GeocodePrecision precision, GeocodingPriority priority,
+                                              boolean useCachedLocation) {
+        GeocodePrecision effectivePrecision = precision == null ? geocodingProperties.getDefaultPrecision() : precision;
+        if (effectivePrecision == GeocodePrecision.APPROXIMATE) {
+            for (Geocoder geocoder : localGeocoders) {
+                Timer.Sample sample = Timer.start(meterRegistry);
+                Optional<Location> location = geocoder.geocode(address);
+                sample.stop(meterRegistry.timer("stoom.geocode.local",
+                        "geocoder", geocoder.getClass().getSimpleName(),
+                        "outcome", location.isPresent() ? "hit" : "miss"));
+                if (location.isPresent()) {
+                    return CompletableFuture.completedFuture(withLocation(address, location.get(), GeocodeSource.LOCAL));
+                }
+            }
+        }
+        return findGoogleLocation(address, priority, useCachedLocation).thenApply(location -> withLocation(address, location, GeocodeSource.GOOGLE));
+    }
+
+    private CompletableFuture<Location> findGoogleLocation(Address address, GeocodingPriority priority, boolean useCachedLocation) {
+        String fullAddress = getFullAddress(address);
+        String cacheKey = AddressNormalizer.normalize(fullAddress);
+        Location location = useCachedLocation ? geocodeCache.getLocation(cacheKey) : null;
+        if (location != null) {
+            return CompletableFuture.completedFuture(location);
+        }
+        if (geocodeCache.isKnownFailure(cacheKey)) {
+            log.debug("Skipping Google Geocoding API for recently failed address {}", cacheKey);
+            CompletableFuture<Location> failure = new CompletableFuture<>();
+            failure.completeExceptionally(new GoogleApiInvalidAddressInformationException());
+            return failure;
+        }
+        return resolveLocation(address, cacheKey, priority);
+    }
+
+    private static Address withLocation(Address address, Location location, GeocodeSource source) {
+        return address.toBuilder()
+                .latitude(location.getLatitude())
+                .longitude(location.getLongitude())
+                .geocodedAt(Instant.now())
+                .geocodeSource(source)
+                .build();
+    }
+
+    private CompletableFuture<Location> resolveLocation(Address address, String cacheKey, GeocodingPriority priority) {
+        return consumeGoogleApi(address, priority)
+                .thenApply(response -> {
+                    Location location = extractLocation(Objects.requireNonNull(response));
+                    geocodeCache.putLocation(cacheKey, location);
+                    return location;
+                })
+                .whenComplete((location, error) -> {
+                    if (unwrap(error) instanceof GoogleApiInvalidAddressInformationException) {
+                        geocodeCache.putFailure(cacheKey);
+                    }
+                });
+    }
+
+    /**
+     * Identical concurrent lookups, keyed on the request URI without the API key, share a single
+     * outbound call: the first caller sends it and every other caller gets its result or failure.
+     * A caller joining with a more urgent priority moves the call to its lane while it waits for a token.
+     * Both are timed, tagged by whether the caller led or joined the lookup and by its outcome.
+     */
+    private CompletableFuture<GeocodeResponse> consumeGoogleApi(Address address, GeocodingPriority priority) {
+        UriComponentsBuilder uriBuilder = buildUri(apiProperties.getBaseUrl(), address);
+        String lookupKey = uriBuilder.toUriString();
+        InFlightLookup lookup = new InFlightLookup(priority);
+        InFlightLookup inFlightLookup = inFlightLookups.putIfAbsent(lookupKey, lookup);
+        Timer.Sample sample = Timer.start(meterRegistry);
+        if (inFlightLookup != null) {
+            log.debug("Joining in-flight Google Geocoding API lookup for {}", lookupKey);
+            inFlightLookup.join(priority);
+        } else {
+            try {
+                googleGeocodeClient.get(uriBuilder.queryParam("key", apiProperties.getApiKey()).toUriString(), lookup.acquire())
+                        .thenApply(LatitudeLongitudeService::checkResponse)
+                        .whenComplete((response, error) -> {
+                            inFlightLookups.remove(lookupKey, lookup);
+                            if (error == null) {
+                                lookup.response.complete(response);
+                            } else {
+                                lookup.response.completeExceptionally(unwrap(error));
+                            }
+                        });
+            } catch (RuntimeException e) {
+                inFlightLookups.remove(lookupKey, lookup);
+                lookup.response.completeExceptionally(e);
+            }
+        }
+        return (inFlightLookup != null ? inFlightLookup : lookup).response.whenComplete((response, error) ->
+                sample.stop(meterRegistry.timer("stoom.geocode.google",
+                        "lookup", inFlightLookup == null ? "leader" : "joined",
+                        "outcome", outcome(unwrap(error)))));
+    }
+
+    private static String outcome(Throwable error) {
+        if (error == null) {
+            return "success";
+        }
+        if (error instanceof GoogleApiInvalidAddressInformationException) {
+            return "invalid_address";
+        }
+        if (error instanceof GoogleApiUnavailableException) {
+            return "unavailable";
+        }
+        return "error";
+    }
+
+    /**
+     * Works on the raw status code, so unknown 5xx codes from a proxy or CDN are treated as unavailability too.
+     */
+    static GeocodeResponse checkResponse(ResponseEntity<GeocodeResponse> geocodingResponseEntity) {
+        int statusCode = geocodingResponseEntity.getStatusCodeValue();
+        if (statusCode >= 500) {
+            throw new GoogleApiUnavailableException("HTTP " + statusCode);
+        }
+        if (statusCode >= 400) {
             throw new GoogleApiInvalidAddressInformationException();
         }
-        return geocodingResponseEntity.getBody();
+        GeocodeResponse geocodeResponse = geocodingResponseEntity.getBody();
+        String status = geocodeResponse == null ? null : geocodeResponse.getStatus();
+        if (STATUS_ZERO_RESULTS.equals(status) || STATUS_INVALID_REQUEST.equals(status)) {
+            throw new GoogleApiInvalidAddressInformationException();
+        }
+        if (status != null && !STATUS_OK.equals(status)) {
+            throw new GoogleApiUnavailableException(status);
+        }
+        return geocodeResponse;
+    }
+
+    static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
     }
 
-    private String buildUri(Address address) {
-        return UriComponentsBuilder.fromHttpUrl(apiProperties.getBaseUrl())
-                .queryParam("address", getFullAddress(address))
-                .queryParam("key", apiProperties.getApiKey())
-                .toUriString();
+    static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
     }
 
-    private String getFullAddress(Address address) {
+    static UriComponentsBuilder buildUri(String baseUrl, Address address) {
+        return UriComponentsBuilder.fromHttpUrl(baseUrl)
+                .queryParam("address", getFullAddress(address));
+    }
+
+    /**
+     * The one-line address sent to Google; its normalized form keys the geocode cache.
+     */
+    public static String getFullAddress(Address address) {
         StringBuilder fullAddress = new StringBuilder();
         fullAddress.append(address.getStreetName());
         fullAddress.append(", ");
@@ -65,17 +277,44 @@ public class LatitudeLongitudeService {
         return fullAddress.toString().replaceAll(" ", "+");
     }
 
-    private Address.AddressBuilder buildAddressLatitudeAndLongitude(GeocodeResponse geocodeResponse, Address address) {
+    private Location extractLocation(GeocodeResponse geocodeResponse) {
+        if (geocodeResponse.getResults() == null) {
+            throw new GoogleApiInvalidAddressInformationException();
+        }
         return geocodeResponse.getResults()
                 .stream()
                 .findFirst()
                 .map(Result::getGeometry)
                 .map(Geometry::getLocation)
-                .map(location ->
-                        address.toBuilder()
-                                .latitude(location.getLatitude())
-                                .longitude(location.getLongitude())
-                )
-                .orElseThrow(() -> new IllegalArgumentException("Failed to get data from Google Geocoding API"));
+                .orElseThrow(GoogleApiInvalidAddressInformationException::new);
+    }
+
+    /**
+     * An outbound lookup shared by identical concurrent callers, in the rate limiter lane of the most urgent one.
+     */
+    private final class InFlightLookup {
+
+        private final CompletableFuture<GeocodeResponse> response = new CompletableFuture<>();
+        private GeocodingPriority priority;
+        private CompletableFuture<Void> permit;
+
+        private InFlightLookup(GeocodingPriority priority) {
+            this.priority = priority;
+        }
+
+        private synchronized CompletableFuture<Void> acquire() {
+            permit = rateLimiter.acquire(priority);
+            return permit;
+        }
+
+        private synchronized void join(GeocodingPriority joiningPriority) {
+            if (joiningPriority.compareTo(priority) >= 0) {
+                return;
+            }
+            priority = joiningPriority;
+            if (permit != null) {
+                rateLimiter.promote(permit, joiningPriority);
+            }
+        }
     }
 }
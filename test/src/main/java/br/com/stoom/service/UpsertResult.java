@@ -0,0 +1,19 @@
+package br.com.stoom.service;
+
+import br.com.stoom.entity.Address;
+import lombok.Value;
+
+@Value
+public class UpsertResult {
+
+    Address address;
+    boolean created;
+
+    public static UpsertResult created(Address address) {
+        return new UpsertResult(address, true);
+    }
+
+    public static UpsertResult existing(Address address) {
+        return new UpsertResult(address, false);
+    }
+}
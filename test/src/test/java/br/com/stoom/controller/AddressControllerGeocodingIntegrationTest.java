@@ -0,0 +1,307 @@
+package br.com.stoom.controller;
+
+import br.com.stoom.configuration.ImportProperties;
+import br.com.stoom.entity.Address;
+import br.com.stoom.entity.GeocodingStatus;
+import br.com.stoom.entity.ImportJob;
+import br.com.stoom.entity.ImportJobStatus;
+import br.com.stoom.model.api.AddressApi;
+import br.com.stoom.model.api.AddressBatchItemApi;
+import br.com.stoom.model.api.ImportJobApi;
+import br.com.stoom.repository.AddressRepository;
+import br.com.stoom.repository.ImportJobRepository;
+import br.com.stoom.service.GeocodeStubServer;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Address writes against a local stand-in for the Google Geocoding API, so the non-blocking paths and the
+ * handling of its error statuses are exercised without the network.
+ */
+@ExtendWith(SpringExtension.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+@DisplayName("Integration Testing for Address API with a stubbed geocoder")
+class AddressControllerGeocodingIntegrationTest {
+
+    private static final int BATCH_MAX_SIZE = 20;
+    private static final GeocodeStubServer stub = startStub();
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private AddressRepository repository;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private ImportProperties importProperties;
+
+    @DynamicPropertySource
+    static void geocoderUrl(DynamicPropertyRegistry registry) {
+        registry.add("stoom.google.api.base-url", stub::url);
+        registry.add("stoom.geocoding.default-precision", () -> "rooftop");
+        registry.add("stoom.google.api.read-timeout", () -> "500ms");
+        registry.add("stoom.geocoding.batch.max-size", () -> BATCH_MAX_SIZE);
+        registry.add("stoom.geocoding.batch.concurrency", () -> 4);
+        registry.add("stoom.google.api.rate-limit.background-queue-capacity", () -> BATCH_MAX_SIZE);
+        registry.add("stoom.google.api.rate-limit.burst", () -> 1);
+        registry.add("stoom.google.api.rate-limit.qps", () -> 200);
+    }
+
+    @AfterAll
+    static void stopStub() {
+        stub.close();
+    }
+
+    @BeforeEach
+    public void setUp() {
+        repository.deleteAll();
+        stub.respond(200, GeocodeStubServer.OK_BODY);
+    }
+
+    @Test
+    @DisplayName("[Async] The request thread is released while the address is geocoded, and the response follows")
+    public void test_create_without_lat_lon_should_complete_asynchronously() throws Exception {
+        stub.delayNext(200);
+
+        MvcResult started = mockMvc.perform(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(addressWithoutCoordinates("Rua Assincrona"))))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isCreated())
+                .andExpect(header().exists("Location"));
+
+        assertThat(repository.findAll()).extracting(Address::getLatitude).containsExactly(new BigDecimal("-22.8354045"));
+    }
+
+    @Test
+    @DisplayName("[Async] Upsert geocodes without blocking and returns the stored address the second time")
+    public void test_upsert_without_lat_lon_should_complete_asynchronously() throws Exception {
+        String content = objectMapper.writeValueAsString(addressWithoutCoordinates("Rua do Upsert"));
+
+        MvcResult started = mockMvc.perform(post("/api/address?upsert=true").contentType(MediaType.APPLICATION_JSON).content(content))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(started)).andExpect(status().isCreated());
+        performAsync(post("/api/address?upsert=true").contentType(MediaType.APPLICATION_JSON).content(content))
+                .andExpect(status().isOk());
+
+        assertThat(stub.requests()).isPositive();
+        assertThat(repository.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("[Async] A batch is geocoded without blocking and reports each item")
+    public void test_batch_should_complete_asynchronously() throws Exception {
+        List<AddressApi> batch = Arrays.asList(addressWithoutCoordinates("Rua do Lote"),
+                addressWithoutCoordinates("Rua do Lote").toBuilder().number(2).latitude("-23.1").longitude("-46.1").build());
+
+        MvcResult started = mockMvc.perform(post("/api/address/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        List<AddressBatchItemApi> items = objectMapper.readValue(mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<List<AddressBatchItemApi>>() {
+        });
+
+        assertThat(items).extracting(AddressBatchItemApi::getIndex, AddressBatchItemApi::isCreated)
+                .containsExactly(tuple(0, true), tuple(1, true));
+        assertThat(items.get(0).getAddress().getLatitude()).isEqualTo("-22.8354045");
+    }
+
+    @Test
+    @DisplayName("[Batch] Two concurrent full-size batches share the background lane without being rejected")
+    public void test_concurrent_full_size_batches_should_geocode_every_address() throws Exception {
+        MvcResult first = startBatch("Rua do Primeiro Lote");
+        MvcResult second = startBatch("Rua do Segundo Lote");
+
+        for (MvcResult started : Arrays.asList(first, second)) {
+            List<AddressBatchItemApi> items = objectMapper.readValue(mockMvc.perform(asyncDispatch(started))
+                    .andExpect(status().isOk())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString(), new TypeReference<List<AddressBatchItemApi>>() {
+            });
+            assertThat(items).hasSize(BATCH_MAX_SIZE).allMatch(AddressBatchItemApi::isCreated);
+        }
+        assertThat(repository.count()).isEqualTo(2 * BATCH_MAX_SIZE);
+    }
+
+    @Test
+    @DisplayName("[Unavailable] A 5xx from the geocoder answers 503, including codes unknown to HttpStatus")
+    public void test_geocoder_5xx_should_return_503() throws Exception {
+        for (int status : new int[]{500, 503, 520}) {
+            stub.respond(status, "");
+
+            performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(addressWithoutCoordinates("Rua Indisponivel " + status))))
+                    .andExpect(status().isServiceUnavailable());
+            performAsync(post("/api/address?upsert=true").contentType(MediaType.APPLICATION_JSON)
+                    .content(objectMapper.writeValueAsString(addressWithoutCoordinates("Rua Indisponivel " + status))))
+                    .andExpect(status().isServiceUnavailable());
+        }
+
+        assertThat(repository.count()).isZero();
+    }
+
+    @Test
+    @DisplayName("[Unavailable] A 5xx from the geocoder fails only the batch items that needed it")
+    public void test_geocoder_5xx_should_fail_only_batch_items_without_coordinates() throws Exception {
+        stub.respond(503, "");
+        List<AddressApi> batch = Arrays.asList(addressWithoutCoordinates("Rua Sem Coordenadas"),
+                addressWithoutCoordinates("Rua Com Coordenadas").toBuilder().latitude("-23.1").longitude("-46.1").build());
+
+        List<AddressBatchItemApi> items = objectMapper.readValue(performAsync(post("/api/address/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<List<AddressBatchItemApi>>() {
+        });
+
+        assertThat(items).extracting(AddressBatchItemApi::getIndex, AddressBatchItemApi::isCreated)
+                .containsExactly(tuple(0, false), tuple(1, true));
+        assertThat(items.get(0).getError()).contains("503");
+    }
+
+    @Test
+    @DisplayName("[Unavailable] An import stores rows whose geocode failed for a transient reason as PENDING instead of failing them")
+    public void test_import_during_geocoder_outage_should_defer_geocoding() throws Exception {
+        stub.respond(503, "");
+        Path directory = Files.createDirectories(Paths.get(importProperties.getDirectory()));
+        Path file = directory.resolve("outage-" + UUID.randomUUID() + ".csv");
+        Files.write(file, Arrays.asList(
+                "streetName,number,complement,neighbourhood,city,state,country,zipcode,latitude,longitude",
+                "Rua Durante A Queda,43,,Barao Geraldo,Campinas,SP,BR,13084-780,,",
+                "Rua Com Coordenadas,43,,Barao Geraldo,Campinas,SP,BR,13084-780,-23.1,-46.1"));
+        try {
+            ImportJobApi job = objectMapper.readValue(mockMvc.perform(post("/api/import").contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"path\":\"" + file.getFileName() + "\"}"))
+                    .andExpect(status().isAccepted())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString(), ImportJobApi.class);
+            ImportJob finished = importJobRepository.findById(job.getId()).get();
+            for (int attempt = 0; attempt < 100 && finished.getStatus() == ImportJobStatus.RUNNING; attempt++) {
+                Thread.sleep(50);
+                finished = importJobRepository.findById(job.getId()).get();
+            }
+
+            assertThat(finished).extracting(ImportJob::getStatus, ImportJob::getImported, ImportJob::getFailed)
+                    .containsExactly(ImportJobStatus.COMPLETED, 2L, 0L);
+            assertThat(repository.findAll()).extracting(Address::getStreetName, Address::getGeocodingStatus)
+                    .containsExactlyInAnyOrder(tuple("Rua Durante A Queda", GeocodingStatus.PENDING),
+                            tuple("Rua Com Coordenadas", GeocodingStatus.RESOLVED));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private MvcResult startBatch(String streetName) throws Exception {
+        List<AddressApi> batch = new ArrayList<>();
+        for (int number = 1; number <= BATCH_MAX_SIZE; number++) {
+            batch.add(addressWithoutCoordinates(streetName).toBuilder().number(number).build());
+        }
+        return mockMvc.perform(post("/api/address/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+
+    @Test
+    @DisplayName("[Unavailable] A geocoder that never answers times out with 503, and fails only the batch items that needed it")
+    public void test_geocoder_timeout_should_return_503_and_fail_batch_items() throws Exception {
+        stub.delayNext(30_000, 30_000);
+
+        performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(addressWithoutCoordinates("Rua Sem Resposta"))))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"));
+        List<AddressBatchItemApi> items = objectMapper.readValue(performAsync(post("/api/address/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(Arrays.asList(addressWithoutCoordinates("Rua Sem Resposta No Lote"),
+                        addressWithoutCoordinates("Rua Com Coordenadas").toBuilder().latitude("-23.1").longitude("-46.1").build()))))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString(), new TypeReference<List<AddressBatchItemApi>>() {
+        });
+
+        assertThat(items).extracting(AddressBatchItemApi::getIndex, AddressBatchItemApi::isCreated)
+                .containsExactly(tuple(0, false), tuple(1, true));
+        assertThat(items.get(0).getError()).contains("Google Geocoding API could not process the request");
+        assertThat(repository.findAll()).extracting(Address::getStreetName).containsExactly("Rua Com Coordenadas");
+    }
+
+    private ResultActions performAsync(MockHttpServletRequestBuilder request) throws Exception {
+        ResultActions resultActions = mockMvc.perform(request);
+        MvcResult mvcResult = resultActions.andReturn();
+        return mvcResult.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(mvcResult)) : resultActions;
+    }
+
+    private static AddressApi addressWithoutCoordinates(String streetName) {
+        return AddressApi.builder()
+                .streetName(streetName)
+                .number(43)
+                .neighbourhood("Jardim Santa Genebra II (Barao Geraldo)")
+                .city("Campinas")
+                .state("SP")
+                .country("BR")
+                .zipcode("13084-780")
+                .build();
+    }
+
+    private static GeocodeStubServer startStub() {
+        try {
+            return new GeocodeStubServer();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -1,10 +1,39 @@
 package br.com.stoom.controller;
 
+import br.com.stoom.configuration.ImportProperties;
 import br.com.stoom.entity.Address;
+import br.com.stoom.entity.AddressChangeType;
+import br.com.stoom.entity.AddressNormalizer;
+import br.com.stoom.entity.GeocodeRefreshCheckpoint;
+import br.com.stoom.entity.GeocodeSource;
+import br.com.stoom.entity.GeocodingStatus;
+import br.com.stoom.entity.ImportFormat;
+import br.com.stoom.entity.ImportJob;
+import br.com.stoom.entity.ImportJobStatus;
+import br.com.stoom.geocoder.Geocoder;
+import br.com.stoom.importer.AddressImportService;
+import br.com.stoom.index.SpatialIndex;
+import br.com.stoom.index.TrigramIndex;
 import br.com.stoom.model.api.AddressApi;
+import br.com.stoom.model.api.AddressBatchItemApi;
+import br.com.stoom.model.api.AddressChangeApi;
+import br.com.stoom.model.api.AddressChangePageApi;
+import br.com.stoom.model.api.AddressPageApi;
+import br.com.stoom.model.api.ImportJobApi;
+import br.com.stoom.model.google.Location;
 import br.com.stoom.repository.AddressRepository;
+import br.com.stoom.repository.GeocodeRefreshCheckpointRepository;
+import br.com.stoom.repository.ImportJobRepository;
+import br.com.stoom.service.AddressCache;
+import br.com.stoom.service.GeocodeCache;
+import br.com.stoom.service.GeocodeRefreshSweeper;
+import br.com.stoom.service.GeocodingPriority;
+import br.com.stoom.service.GeocodingRateLimiter;
+import br.com.stoom.service.LatitudeLongitudeService;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.apache.commons.lang3.StringUtils;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
@@ -12,12 +41,38 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
 import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPInputStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.tuple;
@@ -31,25 +86,73 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 @DisplayName("Integration Testing for Address API")
 class AddressControllerIntegrationTest {
 
+    private static final MediaType SMILE = MediaType.valueOf("application/x-jackson-smile");
+
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ThreadPoolTaskExecutor mvcAsyncExecutor;
+
     @Autowired
     private ObjectMapper objectMapper;
 
     @Autowired
     private AddressRepository repository;
 
+    @Autowired
+    private SpatialIndex spatialIndex;
+
+    @Autowired
+    private TrigramIndex trigramIndex;
+
+    @Autowired
+    private AddressCache addressCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Autowired
+    private ImportProperties importProperties;
+
+    @Autowired
+    private ImportJobRepository importJobRepository;
+
+    @Autowired
+    private AddressImportService addressImportService;
+
+    @Autowired
+    private GeocodingRateLimiter geocodingRateLimiter;
+
+    @Autowired
+    private GeocodeRefreshSweeper geocodeRefreshSweeper;
+
+    @Autowired
+    private LocalTestGeocoder localTestGeocoder;
+
+    @Autowired
+    private GeocodeRefreshCheckpointRepository checkpointRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private GeocodeCache geocodeCache;
+
     @BeforeEach
     public void setUp() {
         repository.deleteAll();
+        spatialIndex.clear();
+        trigramIndex.clear();
+        addressCache.clear();
+        localTestGeocoder.calledInTransaction.clear();
     }
 
     @Test
     @DisplayName("[Create] Create address with all data")
     public void test_create_should_return_201() throws Exception {
         AddressApi addressApi = realAddressApi();
-        mockMvc.perform(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+        performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(addressApi)))
                 .andExpect(status().isCreated())
                 .andExpect(header().exists("Location"));
@@ -61,20 +164,20 @@ class AddressControllerIntegrationTest {
     @DisplayName("[Create] Create address without Latitude and Longitude")
     public void test_create_without_lat_lon_should_call_google_geocode_and_return_201() throws Exception {
         AddressApi addressApi = realAddressApi();
-        mockMvc.perform(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+        performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(realAddressApiWithoutLatitudeLongitude())))
                 .andExpect(status().isCreated())
                 .andExpect(header().exists("Location"));
         Address address = repository.findAll().stream().findFirst().orElse(null);
         assertThat(address).extracting(Address::getLatitude, Address::getLongitude)
-                .contains(addressApi.getLatitude(), addressApi.getLongitude());
+                .contains(new BigDecimal(addressApi.getLatitude()), new BigDecimal(addressApi.getLongitude()));
     }
 
     @Test
     @DisplayName("[Create] Create address with invalid address data and without latitude and longitude")
     public void test_create_with_invalid_data_and_without_lat_lon_should_return_400() throws Exception {
         AddressApi addressApi = anAddress().toModel();
-        mockMvc.perform(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+        performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(addressApi.toBuilder()
                         .streetName("invalidStreetName")
                         .latitude(null)
@@ -82,14 +185,114 @@ class AddressControllerIntegrationTest {
                         .build()))).andExpect(status().isBadRequest());
     }
 
+    @Test
+    @DisplayName("[Create] Create address with deferred geocoding")
+    public void test_create_with_deferred_geocoding_should_return_201_with_pending_status() throws Exception {
+        String responseBody = performAsync(post("/api/address?deferGeocoding=true").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(realAddressApiWithoutLatitudeLongitude())))
+                .andExpect(status().isCreated())
+                .andExpect(header().exists("Location"))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        AddressApi addressApi = objectMapper.readValue(responseBody, AddressApi.class);
+
+        assertThat(addressApi).extracting(AddressApi::getGeocodingStatus).isEqualTo(GeocodingStatus.PENDING);
+        assertThat(repository.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("[Create] Create an address that already exists")
+    public void test_create_duplicate_should_return_409_and_upsert_should_return_existing() throws Exception {
+        Address existing = repository.save(aRealAddress());
+        AddressApi duplicate = realAddressApiWithoutLatitudeLongitude().toBuilder()
+                .streetName("r. zuneide  aparecida marin")
+                .zipcode("13084780")
+                .build();
+
+        performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(duplicate)))
+                .andExpect(status().isConflict())
+                .andExpect(header().string("Location", "/api/address/" + existing.getId()));
+        String responseBody = performAsync(post("/api/address?upsert=true").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(duplicate)))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertThat(objectMapper.readValue(responseBody, AddressApi.class).getId()).isEqualTo(existing.getId());
+        assertThat(repository.count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("[Create] Fields longer than their columns are rejected with 400, not mistaken for duplicates")
+    public void test_create_with_field_longer_than_column_should_return_400() throws Exception {
+        AddressApi tooLong = realAddressApi().toBuilder().city(StringUtils.repeat('c', 101)).build();
+
+        performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(tooLong)))
+                .andExpect(status().isBadRequest());
+        performAsync(put("/api/address/" + repository.save(aRealAddress()).getId()).contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(tooLong)))
+                .andExpect(status().isBadRequest());
+
+        assertThat(repository.findAll()).extracting(Address::getCity).containsExactly(aRealAddress().getCity());
+    }
+
+    @Test
+    @DisplayName("[Create] Create address from a CBOR body and read it back as Smile")
+    public void test_create_with_cbor_and_get_with_smile_should_round_trip() throws Exception {
+        AddressApi addressApi = realAddressApi();
+        String location = performAsync(post("/api/address").contentType(MediaType.APPLICATION_CBOR)
+                .accept(MediaType.APPLICATION_CBOR)
+                .content(Jackson2ObjectMapperBuilder.cbor().build().writeValueAsBytes(addressApi)))
+                .andExpect(status().isCreated())
+                .andExpect(header().string("Content-Type", MediaType.APPLICATION_CBOR_VALUE))
+                .andReturn()
+                .getResponse()
+                .getHeader("Location");
+        byte[] responseBody = mockMvc.perform(get(location).accept(SMILE))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", SMILE.toString()))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        assertThat(Jackson2ObjectMapperBuilder.smile().build().readValue(responseBody, AddressApi.class))
+                .extracting(AddressApi::getStreetName, AddressApi::getLatitude, AddressApi::getLongitude)
+                .containsExactly(addressApi.getStreetName(), addressApi.getLatitude(), addressApi.getLongitude());
+    }
+
     @Test
     @DisplayName("[Create] Create address with empty mandatory field")
     public void test_create_with_empty_mandatory_field_should_return_400() throws Exception {
         AddressApi addressApi = realAddressApi().toBuilder().streetName(null).build();
-        mockMvc.perform(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+        performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(addressApi))).andExpect(status().isBadRequest());
     }
 
+    @Test
+    @DisplayName("[Create] Create a batch of addresses reporting each item")
+    public void test_create_batch_should_return_result_per_item() throws Exception {
+        List<AddressApi> batch = Arrays.asList(realAddressApi(), realAddressApi().toBuilder().streetName(null).build());
+        String responseBody = performAsync(post("/api/address/batch").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(batch)))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        List<AddressBatchItemApi> items = objectMapper.readValue(responseBody, new TypeReference<List<AddressBatchItemApi>>() {
+        });
+
+        assertThat(items).extracting(AddressBatchItemApi::getIndex, AddressBatchItemApi::isCreated)
+                .containsExactly(tuple(0, true), tuple(1, false));
+        assertThat(items.get(1).getError()).contains("streetName");
+        assertThat(repository.count()).isEqualTo(1);
+    }
+
     @Test
     @DisplayName("[Read] Get all saved addresses")
     public void test_find_all_saved_addresses_should_return_list() throws Exception {
@@ -123,6 +326,238 @@ class AddressControllerIntegrationTest {
         assertThat(addressApi).hasSize(0);
     }
 
+    @Test
+    @DisplayName("[Read] Get addresses filtered by field, sorted and paged")
+    public void test_find_all_with_filters_should_return_matching_addresses_and_next_page_link() throws Exception {
+        repository.save(anAddress().toBuilder().number(1).build());
+        repository.save(anAddress().toBuilder().number(2).build());
+        repository.save(aRealAddress());
+
+        MvcResult firstPage = mockMvc.perform(get("/api/address?city=City&sort=number,desc&size=1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Link", "<http://localhost/api/address?city=City&sort=number,desc&size=1&page=1>; rel=\"next\""))
+                .andReturn();
+        MvcResult lastPage = mockMvc.perform(get("/api/address?city=City&sort=number,desc&size=1&page=1"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Link"))
+                .andReturn();
+
+        assertThat(objectMapper.readValue(firstPage.getResponse().getContentAsString(), new TypeReference<List<AddressApi>>() {
+        })).extracting(AddressApi::getNumber).containsExactly(2);
+        assertThat(objectMapper.readValue(lastPage.getResponse().getContentAsString(), new TypeReference<List<AddressApi>>() {
+        })).extracting(AddressApi::getNumber).containsExactly(1);
+    }
+
+    @Test
+    @DisplayName("[Read] Get every matching address when no page is asked for")
+    public void test_find_all_without_page_params_should_return_every_match_without_link() throws Exception {
+        for (int number = 1; number <= 3; number++) {
+            repository.save(anAddress().toBuilder().number(number).build());
+        }
+
+        MvcResult mvcResult = mockMvc.perform(get("/api/address?sort=number,desc"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Link"))
+                .andReturn();
+
+        assertThat(objectMapper.readValue(mvcResult.getResponse().getContentAsString(), new TypeReference<List<AddressApi>>() {
+        })).extracting(AddressApi::getNumber).containsExactly(3, 2, 1);
+    }
+
+    @Test
+    @DisplayName("[Read] Get addresses sorted by an unknown field and receive 400")
+    public void test_find_all_with_unknown_sort_field_should_return_400() throws Exception {
+        mockMvc.perform(get("/api/address?sort=version,desc&size=10"))
+                .andExpect(status().isBadRequest());
+        mockMvc.perform(get("/api/address?sort=nope"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("[Read] Get addresses page by page")
+    public void test_get_page_should_follow_cursor_until_last_page() throws Exception {
+        repository.save(anAddress().toBuilder().number(1).build());
+        repository.save(anAddress().toBuilder().number(2).build());
+        repository.save(anAddress().toBuilder().number(3).build());
+
+        AddressPageApi firstPage = readPage(get("/api/address/page").param("size", "2"));
+        AddressPageApi lastPage = readPage(get("/api/address/page").param("size", "2").param("after", firstPage.getNextCursor()));
+
+        assertThat(firstPage.getItems()).hasSize(2);
+        assertThat(lastPage.getItems()).hasSize(1);
+        assertThat(lastPage.getNextCursor()).isNull();
+        assertThat(lastPage.getItems().get(0).getId()).isNotIn(firstPage.getItems().get(0).getId(), firstPage.getItems().get(1).getId());
+    }
+
+    @Test
+    @DisplayName("[Read] Stream all addresses as newline-delimited JSON")
+    public void test_stream_should_return_one_address_per_line() throws Exception {
+        repository.save(anAddress().toBuilder().number(1).build());
+        repository.save(anAddress().toBuilder().number(2).build());
+        MvcResult mvcResult = mockMvc.perform(get("/api/address/stream")).andReturn();
+
+        String responseBody = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        String[] lines = responseBody.split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(objectMapper.readValue(lines[0], AddressApi.class)).extracting(AddressApi::getCity).isEqualTo("City");
+    }
+
+    @Test
+    @DisplayName("[Read] Export all addresses as gzip-compressed CSV")
+    public void test_export_csv_should_return_gzipped_header_and_one_row_per_address() throws Exception {
+        repository.save(anAddress().toBuilder().number(1).complement("Bloco A, Apto 2").build());
+        repository.save(anAddress().toBuilder().number(2).build());
+        MvcResult mvcResult = mockMvc.perform(get("/api/address/export?format=CSV")).andReturn();
+
+        byte[] responseBody = mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Disposition", "attachment; filename=\"addresses.csv.gz\""))
+                .andReturn()
+                .getResponse()
+                .getContentAsByteArray();
+
+        List<String> lines = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(new ByteArrayInputStream(responseBody)), StandardCharsets.UTF_8))
+                .lines()
+                .collect(Collectors.toList());
+        assertThat(lines).hasSize(3);
+        assertThat(lines.get(0)).startsWith("id,streetName,number,complement");
+        assertThat(lines).anyMatch(line -> line.contains(",1,\"Bloco A, Apto 2\",Neighbourhood,"));
+    }
+
+    @Test
+    @DisplayName("[Read] Only the whole-table responses get the long async timeout, on a bounded executor")
+    public void test_export_should_use_export_timeout_and_bounded_mvc_executor() throws Exception {
+        MvcResult export = mockMvc.perform(get("/api/address/export")).andReturn();
+        MvcResult upsert = mockMvc.perform(post("/api/address?upsert=true").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(realAddressApi()))).andReturn();
+        mockMvc.perform(asyncDispatch(export)).andExpect(status().isOk());
+        mockMvc.perform(asyncDispatch(upsert)).andExpect(status().isCreated());
+
+        assertThat(export.getRequest().getAsyncContext().getTimeout()).isEqualTo(Duration.ofHours(1).toMillis());
+        assertThat(upsert.getRequest().getAsyncContext().getTimeout()).isEqualTo(Duration.ofSeconds(30).toMillis());
+        assertThat(mvcAsyncExecutor.getThreadPoolExecutor().getQueue().remainingCapacity()).isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("[Read] Read the address change feed from a cursor")
+    public void test_changes_should_return_creates_updates_and_delete_tombstones_after_cursor() throws Exception {
+        String since = readChanges("/api/address/changes?since=0&limit=1000").getNextCursor();
+        String location = performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(anAddress().toModel().toBuilder().state("SP").build())))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getHeader("Location");
+        performAsync(put(location).contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(realAddressApi())))
+                .andExpect(status().isOk());
+        String deletedLocation = performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(anAddress().toModel().toBuilder().state("SP").number(7).build())))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getHeader("Location");
+        mockMvc.perform(delete(deletedLocation)).andExpect(status().isNoContent());
+
+        AddressChangePageApi first = readChanges("/api/address/changes?since=" + since + "&limit=3");
+        AddressChangePageApi second = readChanges("/api/address/changes?since=" + first.getNextCursor() + "&limit=3");
+
+        assertThat(first.getItems()).extracting(AddressChangeApi::getType)
+                .containsExactly(AddressChangeType.CREATED, AddressChangeType.UPDATED, AddressChangeType.CREATED);
+        assertThat(first.getItems().get(0).getAddress()).extracting(AddressApi::getCity).isEqualTo("Campinas");
+        assertThat(first.isHasMore()).isTrue();
+        assertThat(second.getItems()).extracting(AddressChangeApi::getType, change -> change.getAddressId().toString(), AddressChangeApi::getAddress)
+                .containsExactly(tuple(AddressChangeType.DELETED, deletedLocation.substring(deletedLocation.lastIndexOf('/') + 1), null));
+        assertThat(second.isHasMore()).isFalse();
+        assertThat(readChanges("/api/address/changes?since=" + second.getNextCursor()).getItems()).isEmpty();
+    }
+
+    @Test
+    @DisplayName("[Read] Get addresses around a point")
+    public void test_near_and_nearest_should_return_addresses_closest_first() throws Exception {
+        performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(anAddress().toModel().toBuilder().state("SP").build())))
+                .andExpect(status().isCreated());
+        performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(realAddressApi())))
+                .andExpect(status().isCreated());
+
+        String near = mockMvc.perform(get("/api/address/near")
+                .param("latitude", "-22.83").param("longitude", "-47.07").param("radiusKm", "10"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        String nearest = mockMvc.perform(get("/api/address/nearest")
+                .param("latitude", "-22.83").param("longitude", "-47.07").param("k", "2"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertThat(objectMapper.readValue(near, new TypeReference<List<AddressApi>>() {
+        })).extracting(AddressApi::getCity).containsExactly("Campinas");
+        assertThat(objectMapper.readValue(nearest, new TypeReference<List<AddressApi>>() {
+        })).extracting(AddressApi::getCity).containsExactly("Campinas", "City");
+    }
+
+    @Test
+    @DisplayName("[Create] Coordinates with more than 7 decimal places are rounded half up to the stored scale")
+    public void test_create_with_more_than_7_decimals_should_round_coordinates() throws Exception {
+        String created = performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(anAddress().toModel().toBuilder()
+                        .state("SP").latitude("-22.83540455").longitude("-47.078776249").build())))
+                .andExpect(status().isCreated())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        AddressApi createdApi = objectMapper.readValue(created, AddressApi.class);
+        String stored = mockMvc.perform(get("/api/address/" + createdApi.getId()))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        String near = mockMvc.perform(get("/api/address/near")
+                .param("latitude", "-22.8354046").param("longitude", "-47.0787762").param("radiusKm", "0.000001"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertThat(createdApi).extracting(AddressApi::getLatitude, AddressApi::getLongitude)
+                .containsExactly("-22.8354046", "-47.0787762");
+        assertThat(objectMapper.readValue(stored, AddressApi.class)).extracting(AddressApi::getLatitude, AddressApi::getLongitude)
+                .containsExactly("-22.8354046", "-47.0787762");
+        assertThat(objectMapper.readValue(near, new TypeReference<List<AddressApi>>() {
+        })).extracting(AddressApi::getId).containsExactly(createdApi.getId());
+    }
+
+    @Test
+    @DisplayName("[Read] Suggest addresses for a misspelled, partially typed query")
+    public void test_suggest_should_return_best_matching_addresses() throws Exception {
+        performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(anAddress().toModel().toBuilder().state("SP").build())))
+                .andExpect(status().isCreated());
+        performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(realAddressApi())))
+                .andExpect(status().isCreated());
+
+        String responseBody = mockMvc.perform(get("/api/address/suggest").param("q", "zunide aparec"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertThat(objectMapper.readValue(responseBody, new TypeReference<List<AddressApi>>() {
+        })).extracting(AddressApi::getStreetName).containsExactly("R. Zuneide Aparecida Marin");
+    }
+
     @Test
     @DisplayName("[Read] Get an address by id")
     public void test_findById_should_return_requested_address() throws Exception {
@@ -141,6 +576,51 @@ class AddressControllerIntegrationTest {
                 .contains("City", "-22.123456", "-44.123456");
     }
 
+    @Test
+    @DisplayName("[Read] Get an address by id after it was updated and deleted")
+    public void test_findById_should_not_return_cached_address_after_update_or_delete() throws Exception {
+        Address address = createSimpleData(repository);
+        String uri = "/api/address/" + address.getId().toString();
+        mockMvc.perform(get(uri)).andExpect(status().isOk());
+
+        performAsync(put(uri).contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(realAddressApi())))
+                .andExpect(status().isOk());
+        String responseBody = mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertThat(objectMapper.readValue(responseBody, AddressApi.class))
+                .extracting(AddressApi::getCity).isEqualTo("Campinas");
+
+        mockMvc.perform(delete(uri)).andExpect(status().isNoContent());
+        mockMvc.perform(get(uri)).andExpect(status().isNotFound());
+    }
+
+    @Test
+    @DisplayName("[Read] Get an address by id with a matching If-None-Match")
+    public void test_findById_with_current_etag_should_return_304_without_body() throws Exception {
+        Address address = createSimpleData(repository);
+        String uri = "/api/address/" + address.getId().toString();
+        String eTag = mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getHeader("ETag");
+
+        String responseBody = mockMvc.perform(get(uri).header("If-None-Match", eTag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", eTag))
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        assertThat(eTag).isEqualTo("\"0\"");
+        assertThat(responseBody).isEmpty();
+    }
+
     @Test
     @DisplayName("[Read] Get a nonexistent address id")
     public void test_findById_with_nonexistent_id_should_return_not_found_with_message() throws Exception {
@@ -185,25 +665,43 @@ class AddressControllerIntegrationTest {
     public void test_update_should_return_200() throws Exception {
         Address address = repository.save(anAddress());
         AddressApi addressApi = realAddressApi();
-        mockMvc.perform(put("/api/address/" + address.getId().toString()).contentType(MediaType.APPLICATION_JSON)
+        performAsync(put("/api/address/" + address.getId().toString()).contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(addressApi)))
                 .andExpect(status().isOk());
     }
 
+    @Test
+    @DisplayName("[Update] A duplicate that predates the fingerprint column can still be edited")
+    public void test_update_of_legacy_duplicate_should_return_200() throws Exception {
+        Address original = repository.save(aRealAddress());
+        Address legacyCopy = repository.save(aRealAddress().toBuilder().streetName("Legacy Copy").build());
+        jdbcTemplate.update("update address set street_name = ?, fingerprint = null where id = ?",
+                original.getStreetName(), legacyCopy.getId());
+
+        AddressApi edit = realAddressApi().toBuilder().neighbourhood("Another Neighbourhood").build();
+        performAsync(put("/api/address/" + legacyCopy.getId()).contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(edit)))
+                .andExpect(status().isOk());
+
+        Address edited = repository.findById(legacyCopy.getId()).orElseThrow(AssertionError::new);
+        assertThat(edited.getNeighbourhood()).isEqualTo("Another Neighbourhood");
+        assertThat(edited.getFingerprint()).isNull();
+    }
+
     @Test
     @DisplayName("[Update] Update address without Latitude and Longitude")
     public void test_update_without_lat_lon_should_call_google_geocode_and_return_200() throws Exception {
         Address savedAddress = repository.save(anAddress());
 
         AddressApi addressApi = realAddressApi();
-        mockMvc.perform(put("/api/address/" + savedAddress.getId().toString()).contentType(MediaType.APPLICATION_JSON)
+        performAsync(put("/api/address/" + savedAddress.getId().toString()).contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(realAddressApiWithoutLatitudeLongitude())))
                 .andExpect(status().isOk());
 
         Address updatedAddress = repository.findAll().stream().findFirst().orElse(null);
 
         assertThat(updatedAddress).extracting(Address::getLatitude, Address::getLongitude)
-                .contains(addressApi.getLatitude(), addressApi.getLongitude());
+                .contains(new BigDecimal(addressApi.getLatitude()), new BigDecimal(addressApi.getLongitude()));
     }
 
     @Test
@@ -211,11 +709,11 @@ class AddressControllerIntegrationTest {
     public void test_update_with_invalid_data_and_without_lat_lon_should_return_400() throws Exception {
         Address address = repository.save(anAddress());
         AddressApi addressApi = realAddressApi();
-        mockMvc.perform(put("/api/address/" + address.getId().toString()).contentType(MediaType.APPLICATION_JSON)
+        performAsync(put("/api/address/" + address.getId().toString()).contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(addressApi.toBuilder().latitude(null).build())))
                 .andExpect(status().isOk());
 
-        String latitude = repository.findAll().stream().findFirst().map(Address::getLatitude).orElse(null);
+        BigDecimal latitude = repository.findAll().stream().findFirst().map(Address::getLatitude).orElse(null);
 
         assertThat(latitude).isNotNull();
     }
@@ -225,17 +723,134 @@ class AddressControllerIntegrationTest {
     public void test_update_with_empty_mandatory_field_should_return_400() throws Exception {
         Address address = repository.save(anAddress());
         AddressApi addressApi = realAddressApi();
-        mockMvc.perform(put("/api/address/" + address.getId().toString()).contentType(MediaType.APPLICATION_JSON)
+        performAsync(put("/api/address/" + address.getId().toString()).contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(addressApi.toBuilder().zipcode(null).build())))
                 .andExpect(status().isBadRequest());
     }
 
+    @Test
+    @DisplayName("[Update] Update address without Latitude and Longitude keeps them when the location is unchanged")
+    public void test_update_without_lat_lon_and_same_location_should_keep_coordinates() throws Exception {
+        Address savedAddress = repository.save(aRealAddress());
+        performAsync(put("/api/address/" + savedAddress.getId().toString()).contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(realAddressApiWithoutLatitudeLongitude().toBuilder()
+                        .complement("Apto 12")
+                        .build())))
+                .andExpect(status().isOk());
+
+        Address updatedAddress = repository.findById(savedAddress.getId()).orElse(null);
+
+        assertThat(updatedAddress).extracting(Address::getComplement, Address::getLatitude, Address::getLongitude)
+                .containsExactly("Apto 12", savedAddress.getLatitude(), savedAddress.getLongitude());
+    }
+
+    @Test
+    @DisplayName("[Update] Update address geocodes the new location before opening the transaction")
+    public void test_update_with_new_location_should_geocode_outside_the_transaction() throws Exception {
+        Address savedAddress = repository.save(aRealAddress());
+        performAsync(put("/api/address/" + savedAddress.getId().toString()).contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(realAddressApiWithoutLatitudeLongitude().toBuilder()
+                        .streetName(LocalTestGeocoder.STREET_NAME)
+                        .build())))
+                .andExpect(status().isOk());
+
+        assertThat(localTestGeocoder.calledInTransaction).containsExactly(false);
+        assertThat(repository.findById(savedAddress.getId())).get()
+                .extracting(Address::getLatitude, Address::getGeocodeSource)
+                .containsExactly(LocalTestGeocoder.LATITUDE, GeocodeSource.LOCAL);
+    }
+
+    @Test
+    @DisplayName("[Patch] Patch only the complement")
+    public void test_patch_complement_should_return_200_and_keep_other_fields() throws Exception {
+        Address savedAddress = repository.save(aRealAddress());
+        String responseBody = performAsync(patch("/api/address/" + savedAddress.getId().toString()).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"complement\": \"Casa 2\"}"))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+
+        AddressApi addressApi = objectMapper.readValue(responseBody, AddressApi.class);
+
+        assertThat(addressApi)
+                .extracting(AddressApi::getComplement, AddressApi::getStreetName, AddressApi::getLatitude)
+                .containsExactly("Casa 2", "R. Zuneide Aparecida Marin", "-22.8354045");
+    }
+
+    @Test
+    @DisplayName("[Patch] Patch with invalid field value")
+    public void test_patch_with_invalid_state_should_return_400() throws Exception {
+        Address savedAddress = repository.save(aRealAddress());
+        performAsync(patch("/api/address/" + savedAddress.getId().toString()).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"state\": \"Sao Paulo\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    @Test
+    @DisplayName("[Patch] Patch with an explicit null clears the field")
+    public void test_patch_with_null_complement_should_clear_it() throws Exception {
+        Address savedAddress = repository.save(aRealAddress().toBuilder().complement("Casa 2").build());
+        performAsync(patch("/api/address/" + savedAddress.getId().toString()).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"complement\": null}"))
+                .andExpect(status().isOk());
+
+        assertThat(repository.findById(savedAddress.getId())).get()
+                .extracting(Address::getComplement, Address::getStreetName)
+                .containsExactly(null, "R. Zuneide Aparecida Marin");
+    }
+
+    @Test
+    @DisplayName("[Patch] Patch only the coordinates")
+    public void test_patch_coordinates_should_replace_them() throws Exception {
+        Address savedAddress = repository.save(aRealAddress());
+        performAsync(patch("/api/address/" + savedAddress.getId().toString()).contentType(MediaType.APPLICATION_JSON)
+                .content("{\"latitude\": \"-22.9\", \"longitude\": \"-47.1\"}"))
+                .andExpect(status().isOk());
+
+        assertThat(repository.findById(savedAddress.getId())).get()
+                .extracting(address -> address.getLatitude().doubleValue(), Address::getGeocodeSource)
+                .containsExactly(-22.9, GeocodeSource.CLIENT);
+    }
+
+    @Test
+    @DisplayName("[Patch] Patch with a field that cannot be patched or half of the coordinates")
+    public void test_patch_with_unsupported_fields_should_return_400() throws Exception {
+        Address savedAddress = repository.save(aRealAddress());
+        String uri = "/api/address/" + savedAddress.getId().toString();
+        performAsync(patch(uri).contentType(MediaType.APPLICATION_JSON).content("{\"geocodingStatus\": \"FAILED\"}"))
+                .andExpect(status().isBadRequest());
+        performAsync(patch(uri).contentType(MediaType.APPLICATION_JSON).content("{\"latitude\": \"-22.9\"}"))
+                .andExpect(status().isBadRequest());
+        performAsync(patch(uri).contentType(MediaType.APPLICATION_JSON).content("{\"streetName\": null}"))
+                .andExpect(status().isBadRequest());
+        assertThat(repository.findById(savedAddress.getId())).get()
+                .extracting(Address::getVersion)
+                .isEqualTo(savedAddress.getVersion());
+    }
+
+    @Test
+    @DisplayName("[Update] Update address with If-Match")
+    public void test_update_with_stale_if_match_should_return_412_and_with_current_should_return_200() throws Exception {
+        Address address = repository.save(anAddress());
+        String uri = "/api/address/" + address.getId().toString();
+        String content = objectMapper.writeValueAsString(realAddressApi());
+
+        performAsync(put(uri).contentType(MediaType.APPLICATION_JSON).header("If-Match", "\"0\"").content(content))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"1\""));
+        performAsync(put(uri).contentType(MediaType.APPLICATION_JSON).header("If-Match", "\"0\"").content(content))
+                .andExpect(status().isPreconditionFailed());
+
+        assertThat(repository.findById(address.getId())).get().extracting(Address::getVersion).isEqualTo(1L);
+    }
+
     @Test
     @DisplayName("[Update] Update address for a nonexistent id")
     public void test_update_with_nonexistent_id_should_return_not_found_with_message() throws Exception {
         AddressApi addressApi = realAddressApi();
 
-        String responseBody = mockMvc.perform(put("/api/address/" + UUID.randomUUID().toString()).contentType(MediaType.APPLICATION_JSON)
+        String responseBody = performAsync(put("/api/address/" + UUID.randomUUID().toString()).contentType(MediaType.APPLICATION_JSON)
                 .content(objectMapper.writeValueAsString(addressApi)))
                 .andExpect(status().isNotFound())
                 .andReturn()
@@ -245,6 +860,374 @@ class AddressControllerIntegrationTest {
         assertThat(responseBody).isEqualTo("Address not found");
     }
 
+    @Test
+    @DisplayName("[Metrics] Create address records endpoint and repository timings")
+    public void test_create_should_record_endpoint_and_repository_timers() throws Exception {
+        performAsync(post("/api/address").contentType(MediaType.APPLICATION_JSON)
+                .content(objectMapper.writeValueAsString(realAddressApi())))
+                .andExpect(status().isCreated());
+
+        assertThat(meterRegistry.find("http.server.requests").tags("uri", "/api/address", "method", "POST").timer())
+                .isNotNull()
+                .satisfies(timer -> assertThat(timer.count()).isPositive());
+        assertThat(meterRegistry.find("spring.data.repository.invocations")
+                .tags("repository", "AddressRepository", "method", "save").timer())
+                .isNotNull()
+                .satisfies(timer -> assertThat(timer.count()).isPositive());
+    }
+
+    @Test
+    @DisplayName("[Metrics] Geocoding rate limiter publishes its wait time and queue depth per lane")
+    public void test_rate_limiter_should_publish_wait_time_and_queue_depth() throws Exception {
+        geocodingRateLimiter.acquire(GeocodingPriority.INTERACTIVE).get(5, TimeUnit.SECONDS);
+
+        assertThat(meterRegistry.find("stoom.geocode.ratelimit.wait").tags("lane", "interactive").timer())
+                .isNotNull()
+                .satisfies(timer -> assertThat(timer.count()).isPositive());
+        assertThat(meterRegistry.find("stoom.geocode.ratelimit.queue").tags("lane", "interactive").gauge()).isNotNull();
+        assertThat(meterRegistry.find("stoom.geocode.ratelimit.queue").tags("lane", "background").gauge()).isNotNull();
+    }
+
+    @Test
+    @DisplayName("[Refresh] Sweep addresses with missing or stale coordinates from the checkpoint")
+    public void test_refresh_sweep_should_visit_only_stale_addresses_and_checkpoint() throws Exception {
+        resetRefreshCheckpoint();
+        Address fresh = repository.save(anAddress());
+        Address stale = repository.save(anAddress().toBuilder()
+                .number(2)
+                .geocodedAt(Instant.now().minus(Duration.ofDays(40)))
+                .geocodeSource(GeocodeSource.GOOGLE)
+                .build());
+        Address missing = repository.save(anAddress().toBuilder().number(3).latitude(null).longitude(null).build());
+
+        assertThat(fresh).extracting(Address::getGeocodeSource).isEqualTo(GeocodeSource.CLIENT);
+        assertThat(fresh.getGeocodedAt()).isNotNull();
+        assertThat(missing.getGeocodedAt()).isNull();
+
+        GeocodeRefreshCheckpoint checkpoint = geocodeRefreshSweeper.sweep();
+
+        assertThat(checkpoint.getRefreshed() + checkpoint.getFailed()).isEqualTo(2);
+        assertThat(checkpoint.getLastAddressId()).isEqualTo(missing.getId());
+        assertThat(checkpoint.getPassCompletedAt()).isNotNull();
+        assertThat(repository.findById(fresh.getId())).get()
+                .extracting(Address::getVersion, Address::getGeocodedAt)
+                .containsExactly(fresh.getVersion(), fresh.getGeocodedAt());
+        assertThat(geocodeRefreshSweeper.sweep().getUpdatedAt()).isEqualTo(checkpoint.getUpdatedAt());
+        assertThat(checkpointRepository.get().getLastAddressId()).isEqualTo(missing.getId());
+    }
+
+    @Test
+    @DisplayName("[Refresh] Stale Google coordinates are refreshed at rooftop precision, never replaced by a local centroid")
+    public void test_refresh_sweep_should_not_downgrade_google_coordinates() throws Exception {
+        resetRefreshCheckpoint();
+        Instant geocodedAt = Instant.now().minus(Duration.ofDays(40));
+        Address google = repository.save(anAddress().toBuilder()
+                .streetName(LocalTestGeocoder.STREET_NAME)
+                .geocodedAt(geocodedAt)
+                .geocodeSource(GeocodeSource.GOOGLE)
+                .build());
+        Address local = repository.save(anAddress().toBuilder()
+                .streetName(LocalTestGeocoder.STREET_NAME)
+                .number(2)
+                .geocodedAt(geocodedAt)
+                .geocodeSource(GeocodeSource.LOCAL)
+                .build());
+
+        geocodeRefreshSweeper.sweep();
+
+        assertThat(repository.findById(google.getId())).get()
+                .satisfies(address -> assertThat(address.getGeocodeSource()).isEqualTo(GeocodeSource.GOOGLE))
+                .satisfies(address -> assertThat(address.getLatitude()).isEqualByComparingTo(google.getLatitude()));
+        assertThat(repository.findById(local.getId())).get()
+                .extracting(Address::getGeocodeSource, Address::getLatitude)
+                .containsExactly(GeocodeSource.LOCAL, LocalTestGeocoder.LATITUDE);
+    }
+
+    @Test
+    @DisplayName("[Refresh] A deferred address left pending by a full queue or a failed lookup is resolved by the sweeper")
+    public void test_refresh_sweep_should_resolve_pending_deferred_addresses() throws Exception {
+        resetRefreshCheckpoint();
+        Address pending = repository.save(anAddress().toBuilder()
+                .streetName(LocalTestGeocoder.STREET_NAME)
+                .latitude(null)
+                .longitude(null)
+                .geocodingStatus(GeocodingStatus.PENDING)
+                .build());
+
+        GeocodeRefreshCheckpoint checkpoint = geocodeRefreshSweeper.sweep();
+
+        assertThat(checkpoint.getRefreshed()).isEqualTo(1);
+        assertThat(repository.findById(pending.getId())).get()
+                .extracting(Address::getGeocodingStatus, Address::getLatitude, Address::getGeocodeSource)
+                .containsExactly(GeocodingStatus.RESOLVED, LocalTestGeocoder.LATITUDE, GeocodeSource.LOCAL);
+    }
+
+    @Test
+    @DisplayName("[Refresh] An address Google cannot geocode is held back with a growing backoff")
+    public void test_refresh_sweep_should_back_off_invalid_addresses() throws Exception {
+        resetRefreshCheckpoint();
+        Address invalid = repository.save(anAddress().toBuilder().streetName("Rua Que Nao Existe").latitude(null).longitude(null).build());
+        geocodeCache.putFailure(AddressNormalizer.normalize(LatitudeLongitudeService.getFullAddress(invalid)));
+
+        GeocodeRefreshCheckpoint checkpoint = geocodeRefreshSweeper.sweep();
+
+        Address backingOff = repository.findById(invalid.getId()).orElseThrow(AssertionError::new);
+        assertThat(checkpoint.getFailed()).isEqualTo(1);
+        assertThat(backingOff.getGeocodeFailures()).isEqualTo(1);
+        assertThat(backingOff.getGeocodeRetryAt()).isBetween(Instant.now().plus(Duration.ofHours(23)), Instant.now().plus(Duration.ofDays(1)));
+        assertThat(backingOff.getVersion()).isEqualTo(invalid.getVersion());
+
+        resetRefreshCheckpoint();
+        assertThat(geocodeRefreshSweeper.sweep().getFailed()).isZero();
+        assertThat(repository.findById(invalid.getId())).get().extracting(Address::getGeocodeFailures).isEqualTo(1);
+
+        jdbcTemplate.update("update address set geocode_retry_at = ? where id = ?",
+                Timestamp.from(Instant.now().minusSeconds(1)), invalid.getId());
+        resetRefreshCheckpoint();
+        geocodeRefreshSweeper.sweep();
+        assertThat(repository.findById(invalid.getId())).get()
+                .satisfies(address -> assertThat(address.getGeocodeFailures()).isEqualTo(2))
+                .satisfies(address -> assertThat(address.getGeocodeRetryAt()).isAfter(Instant.now().plus(Duration.ofDays(1))));
+    }
+
+    @Test
+    @DisplayName("[Refresh] A run is skipped while another instance holds the lease, and runs once it expired")
+    public void test_refresh_sweep_should_respect_the_lease_of_another_instance() throws Exception {
+        resetRefreshCheckpoint();
+        Address missing = repository.save(anAddress().toBuilder().latitude(null).longitude(null).build());
+        GeocodeRefreshCheckpoint held = checkpointRepository.get();
+        held.setLockedBy("other-instance");
+        held.setLockedUntil(Instant.now().plus(Duration.ofMinutes(5)));
+        checkpointRepository.save(held);
+
+        GeocodeRefreshCheckpoint skipped = geocodeRefreshSweeper.sweep();
+
+        assertThat(skipped.getPassStartedAt()).isNull();
+        assertThat(skipped.getLockedBy()).isEqualTo("other-instance");
+
+        held = checkpointRepository.get();
+        held.setLockedUntil(Instant.now().minusSeconds(1));
+        checkpointRepository.save(held);
+
+        GeocodeRefreshCheckpoint completed = geocodeRefreshSweeper.sweep();
+
+        assertThat(completed.getLastAddressId()).isEqualTo(missing.getId());
+        assertThat(checkpointRepository.get())
+                .extracting(GeocodeRefreshCheckpoint::getLockedBy, GeocodeRefreshCheckpoint::getLockedUntil)
+                .containsExactly(null, null);
+    }
+
+    @Test
+    @DisplayName("[Import] Import a CSV file in chunks")
+    public void test_import_csv_should_save_valid_rows_and_count_duplicates_and_failures() throws Exception {
+        Path directory = Files.createDirectories(Paths.get(importProperties.getDirectory()));
+        Path file = directory.resolve("addresses-" + UUID.randomUUID() + ".csv");
+        Files.write(file, Arrays.asList(
+                "streetName,number,complement,neighbourhood,city,state,country,zipcode,latitude,longitude",
+                "R. Zuneide Aparecida Marin,43,,Jardim Santa Genebra II,Campinas,SP,BR,13084-780,-22.8354045,-47.0787762",
+                "Av. Paulista,1000,\"Andar 5, Sala 2\",Bela Vista,Sao Paulo,SP,BR,01310-100,-23.5649,-46.6519",
+                "Av. Paulista,1000,\"Andar 5, Sala 2\",Bela Vista,Sao Paulo,SP,BR,01310-100,-23.5649,-46.6519",
+                "Av. Paulista,not-a-number,,Bela Vista,Sao Paulo,SP,BR,01310-100,-23.5649,-46.6519"));
+        try {
+            String responseBody = mockMvc.perform(post("/api/import").contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"path\":\"" + file.getFileName() + "\"}"))
+                    .andExpect(status().isAccepted())
+                    .andExpect(header().exists("Location"))
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString();
+            UUID id = objectMapper.readValue(responseBody, ImportJobApi.class).getId();
+
+            ImportJobApi job = null;
+            for (int attempt = 0; attempt < 100 && (job == null || job.getStatus() == ImportJobStatus.RUNNING); attempt++) {
+                Thread.sleep(50);
+                job = objectMapper.readValue(mockMvc.perform(get("/api/import/" + id))
+                        .andExpect(status().isOk())
+                        .andReturn()
+                        .getResponse()
+                        .getContentAsString(), ImportJobApi.class);
+            }
+
+            assertThat(job).extracting(ImportJobApi::getStatus, ImportJobApi::getImported, ImportJobApi::getDuplicates,
+                    ImportJobApi::getFailed, ImportJobApi::getByteOffset)
+                    .containsExactly(ImportJobStatus.COMPLETED, 2L, 1L, 1L, Files.size(file));
+            assertThat(repository.findAll()).extracting(Address::getComplement).contains("Andar 5, Sala 2");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    @DisplayName("[Import] A running job leased by another instance is left to it until the lease expires")
+    public void test_import_leased_elsewhere_should_run_only_after_the_lease_expired() throws Exception {
+        Path directory = Files.createDirectories(Paths.get(importProperties.getDirectory()));
+        Path file = directory.resolve("leased-" + UUID.randomUUID() + ".csv");
+        Files.write(file, Arrays.asList(
+                "streetName,number,complement,neighbourhood,city,state,country,zipcode,latitude,longitude",
+                "R. Zuneide Aparecida Marin,43,,Jardim Santa Genebra II,Campinas,SP,BR,13084-780,-22.8354045,-47.0787762"));
+        try {
+            ImportJob job = importJobRepository.save(ImportJob.builder()
+                    .path(file.toAbsolutePath().toString())
+                    .format(ImportFormat.CSV)
+                    .status(ImportJobStatus.RUNNING)
+                    .fileSize(Files.size(file))
+                    .createdAt(Instant.now())
+                    .updatedAt(Instant.now())
+                    .lockedBy("other-instance")
+                    .lockedUntil(Instant.now().plusSeconds(60))
+                    .build());
+
+            addressImportService.resumeInterrupted();
+            mockMvc.perform(post("/api/import/" + job.getId() + "/resume")).andExpect(status().isAccepted());
+            Thread.sleep(200);
+
+            assertThat(importJobRepository.findById(job.getId()).get())
+                    .extracting(ImportJob::getStatus, ImportJob::getByteOffset, ImportJob::getLockedBy)
+                    .containsExactly(ImportJobStatus.RUNNING, 0L, "other-instance");
+            assertThat(repository.count()).isZero();
+
+            importJobRepository.save(importJobRepository.findById(job.getId()).get().toBuilder()
+                    .lockedUntil(Instant.now().minusSeconds(1))
+                    .build());
+            addressImportService.resumeInterrupted();
+
+            assertThat(awaitImport(job.getId()))
+                    .extracting(ImportJob::getStatus, ImportJob::getImported, ImportJob::getLockedBy, ImportJob::getLockedUntil)
+                    .containsExactly(ImportJobStatus.COMPLETED, 1L, null, null);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    @DisplayName("[Import] Resuming a job reads only the lines after its checkpoint, in chunks, with the CSV header read again")
+    public void test_import_resume_should_continue_after_the_checkpoint() throws Exception {
+        Path directory = Files.createDirectories(Paths.get(importProperties.getDirectory()));
+        Path file = directory.resolve("resumed-" + UUID.randomUUID() + ".csv");
+        List<String> lines = new ArrayList<>();
+        lines.add("number,latitude,longitude,streetName,neighbourhood,city,state,country,zipcode");
+        for (int number = 1; number <= 7; number++) {
+            lines.add(number + ",-22.8354045,-47.0787762,R. Zuneide Aparecida Marin,Jardim Santa Genebra II,Campinas,SP,BR,13084-780");
+        }
+        Files.write(file, lines);
+        long checkpoint = String.join("\n", lines.subList(0, 3)).length() + 1;
+        int chunkSize = importProperties.getChunkSize();
+        importProperties.setChunkSize(2);
+        try {
+            ImportJob job = importJobRepository.save(ImportJob.builder()
+                    .path(file.toAbsolutePath().toString())
+                    .format(ImportFormat.CSV)
+                    .status(ImportJobStatus.FAILED)
+                    .fileSize(Files.size(file))
+                    .byteOffset(checkpoint)
+                    .imported(2)
+                    .createdAt(Instant.now())
+                    .updatedAt(Instant.now())
+                    .finishedAt(Instant.now())
+                    .error("Interrupted")
+                    .build());
+
+            mockMvc.perform(post("/api/import/" + job.getId() + "/resume")).andExpect(status().isAccepted());
+
+            assertThat(awaitImport(job.getId()))
+                    .extracting(ImportJob::getStatus, ImportJob::getImported, ImportJob::getFailed, ImportJob::getByteOffset,
+                            ImportJob::getError)
+                    .containsExactly(ImportJobStatus.COMPLETED, 7L, 0L, Files.size(file), null);
+            assertThat(repository.findAll()).extracting(Address::getNumber).containsExactlyInAnyOrder(3, 4, 5, 6, 7);
+        } finally {
+            importProperties.setChunkSize(chunkSize);
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    @DisplayName("[Import] Import an NDJSON file")
+    public void test_import_ndjson_should_save_valid_lines_and_count_failures() throws Exception {
+        Path directory = Files.createDirectories(Paths.get(importProperties.getDirectory()));
+        Path file = directory.resolve("addresses-" + UUID.randomUUID() + ".ndjson");
+        Files.write(file, Arrays.asList(
+                objectMapper.writeValueAsString(realAddressApi()),
+                "",
+                objectMapper.writeValueAsString(realAddressApi().toBuilder().number(44).complement("Casa 2").build()),
+                objectMapper.writeValueAsString(realAddressApi().toBuilder().streetName(null).build()),
+                "{\"streetName\": \"truncated"));
+        try {
+            UUID id = objectMapper.readValue(mockMvc.perform(post("/api/import").contentType(MediaType.APPLICATION_JSON)
+                    .content("{\"path\":\"" + file.getFileName() + "\"}"))
+                    .andExpect(status().isAccepted())
+                    .andReturn()
+                    .getResponse()
+                    .getContentAsString(), ImportJobApi.class).getId();
+
+            assertThat(awaitImport(id))
+                    .extracting(ImportJob::getFormat, ImportJob::getStatus, ImportJob::getImported, ImportJob::getFailed,
+                            ImportJob::getByteOffset)
+                    .containsExactly(ImportFormat.NDJSON, ImportJobStatus.COMPLETED, 2L, 2L, Files.size(file));
+            assertThat(repository.findAll()).extracting(Address::getNumber, Address::getComplement)
+                    .containsExactlyInAnyOrder(tuple(realAddressApi().getNumber(), realAddressApi().getComplement()),
+                            tuple(44, "Casa 2"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private ImportJob awaitImport(UUID id) throws InterruptedException {
+        ImportJob job = importJobRepository.findById(id).get();
+        for (int attempt = 0; attempt < 100 && job.getStatus() == ImportJobStatus.RUNNING; attempt++) {
+            Thread.sleep(50);
+            job = importJobRepository.findById(id).get();
+        }
+        return job;
+    }
+
+    @Test
+    @DisplayName("[Import] Import a file outside the import directory")
+    public void test_import_outside_directory_should_return_400() throws Exception {
+        mockMvc.perform(post("/api/import").contentType(MediaType.APPLICATION_JSON)
+                .content("{\"path\":\"../../pom.xml\"}"))
+                .andExpect(status().isBadRequest());
+    }
+
+    /**
+     * Write endpoints answer with a future; when the handler started async processing the dispatch that writes the
+     * response is performed too.
+     */
+    private ResultActions performAsync(MockHttpServletRequestBuilder request) throws Exception {
+        ResultActions resultActions = mockMvc.perform(request);
+        MvcResult mvcResult = resultActions.andReturn();
+        return mvcResult.getRequest().isAsyncStarted() ? mockMvc.perform(asyncDispatch(mvcResult)) : resultActions;
+    }
+
+    private void resetRefreshCheckpoint() {
+        GeocodeRefreshCheckpoint reset = checkpointRepository.get();
+        reset.setLastAddressId(null);
+        reset.setPassStartedAt(null);
+        reset.setPassCompletedAt(null);
+        reset.setRefreshed(0);
+        reset.setFailed(0);
+        reset.setLockedBy(null);
+        reset.setLockedUntil(null);
+        checkpointRepository.save(reset);
+    }
+
+    private AddressChangePageApi readChanges(String uri) throws Exception {
+        String responseBody = mockMvc.perform(get(uri))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return objectMapper.readValue(responseBody, AddressChangePageApi.class);
+    }
+
+    private AddressPageApi readPage(MockHttpServletRequestBuilder request) throws Exception {
+        String responseBody = mockMvc.perform(request)
+                .andExpect(status().isOk())
+                .andReturn()
+                .getResponse()
+                .getContentAsString();
+        return objectMapper.readValue(responseBody, AddressPageApi.class);
+    }
+
     private Address createSimpleData(AddressRepository addressRepository) {
         return addressRepository.save(anAddress());
     }
@@ -267,8 +1250,8 @@ class AddressControllerIntegrationTest {
                 .state("State")
                 .country("BR")
                 .zipcode("13000-000")
-                .latitude("-22.123456")
-                .longitude("-44.123456")
+                .latitude(new BigDecimal("-22.123456"))
+                .longitude(new BigDecimal("-44.123456"))
                 .build();
     }
 
@@ -277,12 +1260,33 @@ class AddressControllerIntegrationTest {
                 .streetName("R. Zuneide Aparecida Marin")
                 .city("Campinas")
                 .country("BR")
-                .latitude("-22.8354045")
-                .longitude("-47.0787762")
+                .latitude(new BigDecimal("-22.8354045"))
+                .longitude(new BigDecimal("-47.0787762"))
                 .neighbourhood("Jardim Santa Genebra II (Barao Geraldo)")
                 .number(43)
                 .state("SP")
                 .zipcode("13084-780")
                 .build();
     }
-}
\ No newline at end of file
+
+    /**
+     * Answers only for {@link #STREET_NAME}, recording whether a transaction was open when it was called.
+     */
+    @TestConfiguration
+    static class LocalTestGeocoder implements Geocoder {
+
+        static final String STREET_NAME = "Rua Geocodificada Localmente";
+        static final BigDecimal LATITUDE = new BigDecimal("-23.5505200");
+
+        final List<Boolean> calledInTransaction = new CopyOnWriteArrayList<>();
+
+        @Override
+        public Optional<Location> geocode(Address address) {
+            if (!STREET_NAME.equals(address.getStreetName())) {
+                return Optional.empty();
+            }
+            calledInTransaction.add(TransactionSynchronizationManager.isActualTransactionActive());
+            return Optional.of(Location.builder().latitude(LATITUDE).longitude(new BigDecimal("-46.6333090")).build());
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package br.com.stoom.entity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Address normalizer")
+class AddressNormalizerTest {
+
+    @Test
+    @DisplayName("[Folding] Accents, case, punctuation and repeated whitespace are folded away")
+    public void test_normalize_should_fold_accents_case_punctuation_and_whitespace() {
+        assertThat(AddressNormalizer.normalize("  Rua  São-Paulo, 43 - Barão Geraldo\tCAMPINAS+SP ")).isEqualTo("rua sao paulo 43 barao geraldo campinas sp");
+    }
+
+    @Test
+    @DisplayName("[Folding] Composed and decomposed accents give the same text")
+    public void test_normalize_should_treat_composed_and_decomposed_accents_alike() {
+        assertThat(AddressNormalizer.normalize("Jos\u00e9")).isEqualTo(AddressNormalizer.normalize("Jose\u0301")).isEqualTo("jose");
+    }
+
+    @Test
+    @DisplayName("[Folding] Letters and digits outside ASCII are kept")
+    public void test_normalize_should_keep_non_ascii_letters_and_digits() {
+        assertThat(AddressNormalizer.normalize("Straße Nº 2½")).isEqualTo("straße nº 2½");
+    }
+
+    @Test
+    @DisplayName("[Folding] Null and blank text fold to an empty string")
+    public void test_normalize_should_return_empty_for_null_and_blank() {
+        assertThat(AddressNormalizer.normalize(null)).isEmpty();
+        assertThat(AddressNormalizer.normalize(" ,- ")).isEmpty();
+    }
+}
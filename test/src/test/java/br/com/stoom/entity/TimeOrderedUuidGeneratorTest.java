@@ -0,0 +1,84 @@
+package br.com.stoom.entity;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Time-ordered UUID generator")
+class TimeOrderedUuidGeneratorTest {
+
+    @Test
+    @DisplayName("[Order] Ids generated in the same millisecond increase through the sequence, and past it")
+    public void test_ids_in_the_same_millisecond_should_increase() {
+        long now = System.currentTimeMillis();
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            ids.add(TimeOrderedUuidGenerator.next(now));
+        }
+
+        assertThat(ids).isSorted().doesNotHaveDuplicates();
+        assertThat(ids).allSatisfy(id -> {
+            assertThat(id.version()).isEqualTo(7);
+            assertThat(id.variant()).isEqualTo(2);
+        });
+        assertThat(timestamp(ids.get(0))).isGreaterThanOrEqualTo(now);
+        assertThat(timestamp(ids.get(ids.size() - 1))).isGreaterThan(timestamp(ids.get(0)));
+    }
+
+    @Test
+    @DisplayName("[Order] Ids keep increasing when the clock goes back")
+    public void test_ids_should_increase_when_the_clock_goes_back() {
+        long now = System.currentTimeMillis();
+        UUID before = TimeOrderedUuidGenerator.next(now);
+
+        UUID after = TimeOrderedUuidGenerator.next(now - TimeUnit.SECONDS.toMillis(1));
+
+        assertThat(after).isGreaterThan(before);
+        assertThat(timestamp(after)).isGreaterThanOrEqualTo(timestamp(before));
+    }
+
+    @Test
+    @DisplayName("[Concurrency] Ids generated by concurrent threads are unique and increase within each thread")
+    public void test_ids_from_concurrent_threads_should_be_unique_and_increase_per_thread() throws Exception {
+        int threads = 8;
+        int idsPerThread = 10_000;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try {
+            List<Future<List<UUID>>> results = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                results.add(executor.submit((Callable<List<UUID>>) () -> {
+                    List<UUID> ids = new ArrayList<>(idsPerThread);
+                    for (int i = 0; i < idsPerThread; i++) {
+                        ids.add(TimeOrderedUuidGenerator.next());
+                    }
+                    return ids;
+                }));
+            }
+            Set<UUID> all = new HashSet<>();
+            for (Future<List<UUID>> result : results) {
+                List<UUID> ids = result.get(30, TimeUnit.SECONDS);
+                assertThat(ids).isSorted();
+                all.addAll(ids);
+            }
+            assertThat(all).hasSize(threads * idsPerThread);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long timestamp(UUID id) {
+        return id.getMostSignificantBits() >>> 16;
+    }
+}
@@ -0,0 +1,78 @@
+package br.com.stoom.geocoder;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataOutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Gazetteer file")
+class GazetteerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    @DisplayName("[Round trip] Zipcode and city centroids written by GazetteerWriter are found by Gazetteer")
+    public void test_written_gazetteer_should_be_read_back() throws Exception {
+        GazetteerWriter writer = new GazetteerWriter();
+        writer.add("13084-780", "Campinas", "SP", "BR", -22.8354045, -47.0787762);
+        writer.add("13084-780", "Campinas", "SP", "BR", -22.8354055, -47.0787772);
+        writer.add("01310-100", "São Paulo", "SP", "BR", -23.5613496, -46.6563680);
+        Path file = directory.resolve("gazetteer.bin");
+        writer.write(file);
+
+        Gazetteer gazetteer = Gazetteer.open(file);
+
+        assertThat(gazetteer.getZipcodeCount()).isEqualTo(2);
+        assertThat(gazetteer.getCityCount()).isEqualTo(2);
+        int zipcode = gazetteer.findZipcode("BR", "13084780");
+        assertThat(gazetteer.latitudeE7(zipcode)).isEqualTo(-228354050);
+        assertThat(gazetteer.longitudeE7(zipcode)).isEqualTo(-470787767);
+        int city = gazetteer.findCity("br", "sp", "  SAO   paulo ");
+        assertThat(gazetteer.latitudeE7(city)).isEqualTo(-235613496);
+        assertThat(gazetteer.longitudeE7(city)).isEqualTo(-466563680);
+    }
+
+    @Test
+    @DisplayName("[Round trip] Unknown zipcodes and cities are not found")
+    public void test_unknown_keys_should_not_be_found() throws Exception {
+        GazetteerWriter writer = new GazetteerWriter();
+        writer.add("13084-780", "Campinas", "SP", "BR", -22.8354045, -47.0787762);
+        Path file = directory.resolve("gazetteer.bin");
+        writer.write(file);
+
+        Gazetteer gazetteer = Gazetteer.open(file);
+
+        assertThat(gazetteer.findZipcode("BR", "13084-781")).isEqualTo(-1);
+        assertThat(gazetteer.findZipcode("PT", "13084-780")).isEqualTo(-1);
+        assertThat(gazetteer.findCity("BR", "RJ", "Campinas")).isEqualTo(-1);
+    }
+
+    @Test
+    @DisplayName("[Format] A file with another magic number or version is rejected")
+    public void test_other_format_should_be_rejected() throws Exception {
+        Path file = directory.resolve("other.bin");
+        try (DataOutputStream output = new DataOutputStream(Files.newOutputStream(file))) {
+            output.writeInt(Gazetteer.MAGIC);
+            output.writeInt(Gazetteer.VERSION + 1);
+            output.writeInt(0);
+            output.writeInt(0);
+        }
+
+        assertThatThrownBy(() -> Gazetteer.open(file)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    @DisplayName("[Writer] The command line reports its usage instead of exiting the JVM")
+    public void test_main_without_arguments_should_throw() {
+        assertThatThrownBy(() -> GazetteerWriter.main(new String[0]))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("Usage");
+    }
+}
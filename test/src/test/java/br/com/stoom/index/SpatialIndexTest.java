@@ -0,0 +1,140 @@
+package br.com.stoom.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Spatial index")
+class SpatialIndexTest {
+
+    private final SpatialIndex index = new SpatialIndex(0.05);
+
+    @Test
+    @DisplayName("[Radius] Only addresses inside the circle are returned, closest first, at most limit of them")
+    public void test_within_radius_should_return_points_inside_the_circle_closest_first() {
+        UUID center = put(-22.8354, -47.0788);
+        UUID oneKm = put(-22.8264, -47.0788);
+        UUID twoKm = put(-22.8354, -47.0983);
+        UUID farAway = put(-23.5505, -46.6333);
+
+        assertThat(index.withinRadius(-22.8354, -47.0788, 3, 10)).containsExactly(center, oneKm, twoKm);
+        assertThat(index.withinRadius(-22.8354, -47.0788, 3, 2)).containsExactly(center, oneKm);
+        assertThat(index.withinRadius(-22.8354, -47.0788, 200, 10)).endsWith(farAway);
+    }
+
+    @Test
+    @DisplayName("[Radius] A point in a corner of the bounding box but outside the circle is left out")
+    public void test_within_radius_should_drop_bounding_box_corners() {
+        UUID inside = put(0, 0.08);
+        put(0.08, 0.08);
+
+        assertThat(index.withinRadius(0, 0, 10, 10)).containsExactly(inside);
+    }
+
+    @Test
+    @DisplayName("[Radius] A point on the edge of a cell is found from the neighbouring cell")
+    public void test_within_radius_should_find_points_on_cell_edges() {
+        UUID onEdge = put(0.05, 0.05);
+
+        assertThat(index.withinRadius(0.049, 0.049, 1, 10)).containsExactly(onEdge);
+        assertThat(index.withinRadius(0.051, 0.051, 1, 10)).containsExactly(onEdge);
+    }
+
+    @Test
+    @DisplayName("[Antimeridian] Radius and nearest queries wrap around longitude 180")
+    public void test_queries_should_wrap_around_the_antimeridian() {
+        UUID east = put(0, 179.99);
+        UUID west = put(0, -179.99);
+        UUID onAntimeridian = put(0, 180);
+        put(0, 179);
+
+        assertThat(index.withinRadius(0, -179.995, 5, 10)).containsExactlyInAnyOrder(east, west, onAntimeridian);
+        assertThat(index.withinRadius(0, -180, 0.1, 10)).containsExactly(onAntimeridian);
+        assertThat(index.nearest(0, 179.995, 3)).containsExactlyInAnyOrder(east, west, onAntimeridian);
+    }
+
+    @Test
+    @DisplayName("[Poles] Points at and around a pole are found whatever their longitude")
+    public void test_queries_should_handle_the_poles() {
+        UUID northPole = put(90, 0);
+        UUID nearNorthPole = put(89.99, 135);
+        UUID otherSide = put(89.985, -45);
+        UUID southPole = put(-90, 180);
+        UUID nearSouthPole = put(-89.99, -90);
+
+        assertThat(index.withinRadius(90, 0, 2, 10)).containsExactly(northPole, nearNorthPole, otherSide);
+        assertThat(index.withinRadius(89.99, 135, 3, 10)).containsExactly(nearNorthPole, northPole, otherSide);
+        assertThat(index.withinRadius(-90, 0, 2, 10)).containsExactly(southPole, nearSouthPole);
+        assertThat(index.nearest(-89.99, 90, 2)).containsExactly(southPole, nearSouthPole);
+    }
+
+    @Test
+    @DisplayName("[Brute force] Radius and nearest queries match a scan of every point")
+    public void test_queries_should_match_brute_force() {
+        Random random = new Random(42);
+        Map<UUID, double[]> points = new HashMap<>();
+        for (int i = 0; i < 5_000; i++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            points.put(put(latitude, longitude), new double[]{latitude, longitude});
+        }
+        for (int i = 0; i < 50; i++) {
+            double latitude = random.nextDouble() * 180 - 90;
+            double longitude = random.nextDouble() * 360 - 180;
+            double radiusKm = random.nextDouble() * 1_000;
+
+            assertThat(index.withinRadius(latitude, longitude, radiusKm, Integer.MAX_VALUE))
+                    .isEqualTo(bruteForce(points, latitude, longitude, radiusKm, Integer.MAX_VALUE));
+            assertThat(index.nearest(latitude, longitude, 5))
+                    .isEqualTo(bruteForce(points, latitude, longitude, Double.MAX_VALUE, 5));
+        }
+    }
+
+    @Test
+    @DisplayName("[Write] Putting an address again moves it, removing it drops it")
+    public void test_put_should_move_and_remove_should_drop_the_point() {
+        UUID id = put(0, 0);
+        index.put(id, 10, 10);
+
+        assertThat(index.withinRadius(0, 0, 1, 10)).isEmpty();
+        assertThat(index.withinRadius(10, 10, 1, 10)).containsExactly(id);
+        assertThat(index.size()).isEqualTo(1);
+
+        index.remove(id);
+
+        assertThat(index.nearest(10, 10, 1)).isEmpty();
+        assertThat(index.size()).isZero();
+    }
+
+    private UUID put(double latitude, double longitude) {
+        UUID id = UUID.randomUUID();
+        index.put(id, latitude, longitude);
+        return id;
+    }
+
+    private static List<UUID> bruteForce(Map<UUID, double[]> points, double latitude, double longitude,
+                                         double radiusKm, int limit) {
+        List<Map.Entry<UUID, Double>> distances = new ArrayList<>();
+        points.forEach((id, point) -> {
+            double distance = SpatialIndex.haversineKm(latitude, longitude, point[0], point[1]);
+            if (distance <= radiusKm) {
+                distances.add(new HashMap.SimpleEntry<>(id, distance));
+            }
+        });
+        return distances.stream()
+                .sorted(Map.Entry.comparingByValue(Comparator.naturalOrder()))
+                .limit(limit)
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,123 @@
+package br.com.stoom.index;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Trigram index")
+class TrigramIndexTest {
+
+    private final TrigramIndex index = new TrigramIndex();
+
+    @Test
+    @DisplayName("[Ranking] Addresses sharing more of the query come first, then the closer, shorter text")
+    public void test_suggest_should_rank_by_coverage_then_similarity() {
+        UUID exact = UUID.randomUUID();
+        UUID longer = UUID.randomUUID();
+        UUID partial = UUID.randomUUID();
+        index.put(longer, "Avenida Paulista 1578 Bela Vista Sao Paulo SP");
+        index.put(partial, "Avenida Brasil 100");
+        index.put(exact, "Avenida Paulista");
+
+        List<UUID> suggestions = index.suggest("avenida paulista", 10);
+
+        assertThat(suggestions).containsExactly(exact, longer, partial);
+    }
+
+    @Test
+    @DisplayName("[Ranking] Addresses sharing less than the minimum coverage are dropped")
+    public void test_suggest_should_drop_low_coverage_matches() {
+        UUID unrelated = UUID.randomUUID();
+        index.put(unrelated, "Rua das Flores");
+
+        assertThat(index.suggest("avenida paulista", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("[Ranking] At most limit suggestions are returned, the best ones")
+    public void test_suggest_should_keep_the_best_up_to_limit() {
+        UUID best = UUID.randomUUID();
+        index.put(best, "Rua Augusta");
+        for (int i = 0; i < 1_000; i++) {
+            index.put(UUID.randomUUID(), "Rua Augusta " + i + " Consolacao Sao Paulo");
+        }
+
+        List<UUID> suggestions = index.suggest("rua augusta", 5);
+
+        assertThat(suggestions).hasSize(5).startsWith(best);
+    }
+
+    @Test
+    @DisplayName("[Prefix] The last word of the query matches as a prefix, earlier words as whole words")
+    public void test_suggest_should_treat_last_word_as_prefix() {
+        UUID paulista = UUID.randomUUID();
+        index.put(paulista, "Avenida Paulista");
+
+        assertThat(index.suggest("avenida paul", 10)).containsExactly(paulista);
+        assertThat(TrigramIndex.trigrams("paul", true)).hasSize(4);
+        assertThat(TrigramIndex.trigrams("paul", false)).hasSize(5);
+    }
+
+    @Test
+    @DisplayName("[Prefix] Accents, case and punctuation are ignored")
+    public void test_suggest_should_ignore_accents_case_and_punctuation() {
+        UUID id = UUID.randomUUID();
+        index.put(id, "Praça da Sé, São Paulo");
+
+        assertThat(index.suggest("PRACA DA SE - SAO PAUL", 10)).containsExactly(id);
+        assertThat(index.suggest("  ,.;  ", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("[Writes] Updated and removed addresses stop matching their old text, and ordinals are reused")
+    public void test_put_and_remove_should_replace_postings() {
+        UUID id = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        index.put(id, "Rua Augusta");
+        index.put(id, "Rua Oscar Freire");
+        index.put(other, "Rua Haddock Lobo");
+
+        assertThat(index.suggest("augusta", 10)).isEmpty();
+        assertThat(index.suggest("oscar freire", 10)).containsExactly(id);
+
+        index.remove(id);
+        index.put(UUID.randomUUID(), "Alameda Santos");
+
+        assertThat(index.suggest("oscar freire", 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("[Load] A put during the full load is not overwritten by the older row the load read")
+    public void test_load_should_not_overwrite_put_made_during_load() {
+        UUID id = UUID.randomUUID();
+        index.beginLoad();
+        index.put(id, "Rua Oscar Freire");
+        index.load(id, "Rua Augusta");
+        index.endLoad();
+
+        assertThat(index.suggest("oscar freire", 10)).containsExactly(id);
+        assertThat(index.suggest("augusta", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("[Load] A remove during the full load is not undone by the row the load read")
+    public void test_load_should_not_resurrect_address_removed_during_load() {
+        UUID id = UUID.randomUUID();
+        UUID untouched = UUID.randomUUID();
+        index.put(UUID.randomUUID(), "Travessa Antiga");
+        index.beginLoad();
+        index.remove(id);
+        index.load(id, "Rua Augusta");
+        index.load(untouched, "Rua Augusta 10");
+        index.endLoad();
+
+        assertThat(index.suggest("rua augusta", 10)).containsExactly(untouched);
+        assertThat(index.suggest("travessa antiga", 10)).isEmpty();
+        assertThat(index.size()).isEqualTo(1);
+    }
+}
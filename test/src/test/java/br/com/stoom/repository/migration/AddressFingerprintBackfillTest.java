@@ -0,0 +1,89 @@
+package br.com.stoom.repository.migration;
+
+import liquibase.database.core.H2Database;
+import liquibase.database.jvm.JdbcConnection;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Address fingerprint backfill")
+class AddressFingerprintBackfillTest {
+
+    private Connection connection;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        connection = DriverManager.getConnection("jdbc:h2:mem:" + UUID.randomUUID());
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create table address (id uuid primary key, street_name varchar(255), number int, "
+                    + "complement varchar(255), city varchar(255), state varchar(255), country varchar(255), "
+                    + "zipcode varchar(255), fingerprint varchar(64))");
+        }
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        connection.close();
+    }
+
+    @Test
+    @DisplayName("[Backfill] Every address gets a fingerprint, except the later copies of a duplicate")
+    public void test_backfill_should_leave_only_the_first_duplicate_fingerprinted() throws Exception {
+        UUID first = new UUID(1, 1);
+        UUID copy = new UUID(1, 2);
+        UUID otherCopy = new UUID(1, 3);
+        UUID distinct = new UUID(1, 4);
+        insert(otherCopy, "Avenida Paulista", "01310-100");
+        insert(first, "Avenida Paulista", "01310-100");
+        insert(copy, "AVENIDA PAULISTA", "01310100");
+        insert(distinct, "Rua Augusta", "01305-000");
+
+        AddressFingerprintBackfill backfill = new AddressFingerprintBackfill();
+        backfill.execute(database());
+
+        assertThat(fingerprinted()).containsExactly(first, distinct);
+        assertThat(backfill.getConfirmationMessage()).isEqualTo("Fingerprinted 2 addresses, left 2 duplicates without one");
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("create unique index uk_address_fingerprint on address (fingerprint)");
+        }
+    }
+
+    private void insert(UUID id, String streetName, String zipcode) throws Exception {
+        try (PreparedStatement insert = connection.prepareStatement("insert into address values (?, ?, 1578, null, "
+                + "'Sao Paulo', 'SP', 'Brasil', ?, null)")) {
+            insert.setObject(1, id);
+            insert.setString(2, streetName);
+            insert.setString(3, zipcode);
+            insert.executeUpdate();
+        }
+    }
+
+    private List<UUID> fingerprinted() throws Exception {
+        List<UUID> ids = new ArrayList<>();
+        try (Statement statement = connection.createStatement();
+             ResultSet rows = statement.executeQuery("select id from address where fingerprint is not null order by id")) {
+            while (rows.next()) {
+                ids.add(rows.getObject("id", UUID.class));
+            }
+        }
+        return ids;
+    }
+
+    private H2Database database() {
+        H2Database database = new H2Database();
+        database.setConnection(new JdbcConnection(connection));
+        return database;
+    }
+}
@@ -0,0 +1,39 @@
+package br.com.stoom.service;
+
+import br.com.stoom.configuration.GeocodingProperties;
+import br.com.stoom.configuration.GoogleGeocodeApiProperties;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Address service")
+class AddressServiceTest {
+
+    @Test
+    @DisplayName("[Batch] A batch larger than the background lane of the rate limiter fails at startup")
+    public void test_batch_larger_than_background_queue_should_fail_at_startup() {
+        GeocodingProperties.Batch batch = new GeocodingProperties.Batch();
+        batch.setMaxSize(1_001);
+        GoogleGeocodeApiProperties.RateLimit rateLimit = new GoogleGeocodeApiProperties.RateLimit();
+
+        assertThatThrownBy(() -> AddressService.checkBatchFitsRateLimit(batch, rateLimit))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("background-queue-capacity");
+
+        rateLimit.setEnabled(false);
+        assertThatCode(() -> AddressService.checkBatchFitsRateLimit(batch, rateLimit)).doesNotThrowAnyException();
+    }
+
+    @Test
+    @DisplayName("[Batch] A batch concurrency below 1 fails at startup")
+    public void test_batch_concurrency_below_one_should_fail_at_startup() {
+        GeocodingProperties.Batch batch = new GeocodingProperties.Batch();
+        batch.setConcurrency(0);
+
+        assertThatThrownBy(() -> AddressService.checkBatchFitsRateLimit(batch, new GoogleGeocodeApiProperties.RateLimit()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("concurrency");
+    }
+}
@@ -0,0 +1,72 @@
+package br.com.stoom.service;
+
+import br.com.stoom.configuration.GoogleGeocodeApiProperties;
+import br.com.stoom.entity.AddressNormalizer;
+import br.com.stoom.model.google.Location;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Geocode cache")
+class GeocodeCacheTest {
+
+    private static final Location LOCATION = Location.builder()
+            .latitude(new BigDecimal("-22.8354045"))
+            .longitude(new BigDecimal("-47.0787762"))
+            .build();
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final GeocodeCache cache = new GeocodeCache(new GoogleGeocodeApiProperties(), nanos::get);
+
+    @Test
+    @DisplayName("[Hit] A stored location is found and counted as a hit, an unknown address as a miss")
+    public void test_get_location_should_count_hits_and_misses() {
+        cache.putLocation("rua a 1", LOCATION);
+
+        assertThat(cache.getLocation("rua a 1")).isEqualTo(LOCATION);
+        assertThat(cache.getLocation("rua b 2")).isNull();
+        assertThat(cache.locationStats().hitCount()).isEqualTo(1);
+        assertThat(cache.locationStats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("[Key] Spellings of the same address that only differ in accents, case and punctuation share an entry")
+    public void test_normalized_keys_should_share_an_entry() {
+        cache.putLocation(AddressNormalizer.normalize("Rua São Paulo, 43, Campinas, SP, 13084-780, BR"), LOCATION);
+
+        assertThat(cache.getLocation(AddressNormalizer.normalize("rua sao paulo 43  campinas sp 13084 780 br"))).isEqualTo(LOCATION);
+        assertThat(cache.getLocation(AddressNormalizer.normalize("Rua São Paulo, 44, Campinas, SP, 13084-780, BR"))).isNull();
+    }
+
+    @Test
+    @DisplayName("[Negative] Failed lookups are remembered apart from the locations")
+    public void test_put_failure_should_not_store_a_location() {
+        cache.putFailure("rua que nao existe");
+
+        assertThat(cache.isKnownFailure("rua que nao existe")).isTrue();
+        assertThat(cache.getLocation("rua que nao existe")).isNull();
+        assertThat(cache.isKnownFailure("rua a 1")).isFalse();
+    }
+
+    @Test
+    @DisplayName("[Negative] A failed lookup is forgotten after the negative TTL while locations are kept longer")
+    public void test_failure_should_expire_after_negative_ttl() {
+        cache.putFailure("rua que nao existe");
+        cache.putLocation("rua a 1", LOCATION);
+
+        nanos.addAndGet(Duration.ofMinutes(5).toNanos() - 1);
+        assertThat(cache.isKnownFailure("rua que nao existe")).isTrue();
+
+        nanos.addAndGet(1);
+        assertThat(cache.isKnownFailure("rua que nao existe")).isFalse();
+        assertThat(cache.getLocation("rua a 1")).isEqualTo(LOCATION);
+
+        nanos.addAndGet(Duration.ofHours(24).toNanos());
+        assertThat(cache.getLocation("rua a 1")).isNull();
+    }
+}
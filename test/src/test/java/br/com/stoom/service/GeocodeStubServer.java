@@ -0,0 +1,85 @@
+package br.com.stoom.service;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for the Google Geocoding API: answers every request with the configured status and body, after the
+ * next queued delay if there is one.
+ */
+public class GeocodeStubServer implements Closeable {
+
+    public static final String OK_BODY = "{\"results\":[{\"geometry\":{\"location\":{\"lat\":-22.8354045,\"lng\":-47.0787762}}}],"
+            + "\"status\":\"OK\"}";
+
+    private final HttpServer server;
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+    private final AtomicInteger requests = new AtomicInteger();
+    private final Queue<Long> delaysMillis = new ConcurrentLinkedQueue<>();
+    private volatile int status = 200;
+    private volatile String body = OK_BODY;
+
+    public GeocodeStubServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.setExecutor(executor);
+        server.createContext("/", exchange -> {
+            requests.incrementAndGet();
+            Long delay = delaysMillis.poll();
+            try {
+                if (delay != null) {
+                    TimeUnit.MILLISECONDS.sleep(delay);
+                }
+                byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                exchange.sendResponseHeaders(status, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                }
+            } catch (InterruptedException | IOException e) {
+                // the client gave up on this request
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    public String url() {
+        return "http://127.0.0.1:" + server.getAddress().getPort() + "/maps/api/geocode/json";
+    }
+
+    public GeocodeStubServer respond(int status, String body) {
+        this.status = status;
+        this.body = body;
+        return this;
+    }
+
+    public GeocodeStubServer delayNext(long... delays) {
+        for (long delay : delays) {
+            delaysMillis.add(delay);
+        }
+        return this;
+    }
+
+    public int requests() {
+        return requests.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        // wakes up the handlers still sleeping on a delay
+        executor.shutdownNow();
+    }
+}
@@ -0,0 +1,159 @@
+package br.com.stoom.service;
+
+import br.com.stoom.configuration.GoogleGeocodeApiProperties;
+import br.com.stoom.exception.GeocodingRateLimitExceededException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Geocoding rate limiter")
+class GeocodingRateLimiterTest {
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final List<Runnable> scheduledDrains = new ArrayList<>();
+    private final ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler() {
+        @Override
+        public ScheduledFuture<?> schedule(Runnable task, Date startTime) {
+            scheduledDrains.add(task);
+            return null;
+        }
+    };
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private GoogleGeocodeApiProperties apiProperties;
+
+    @BeforeEach
+    public void setUp() {
+        apiProperties = new GoogleGeocodeApiProperties();
+        apiProperties.getRateLimit().setQps(10);
+        apiProperties.getRateLimit().setBurst(2);
+    }
+
+    @Test
+    @DisplayName("[Burst] Calls within the burst are released right away, the next ones wait for the refill")
+    public void test_acquire_should_release_burst_and_queue_the_rest() {
+        GeocodingRateLimiter limiter = limiter();
+
+        assertThat(limiter.acquire(GeocodingPriority.BACKGROUND)).isCompleted();
+        assertThat(limiter.acquire(GeocodingPriority.BACKGROUND)).isCompleted();
+        CompletableFuture<Void> waiting = limiter.acquire(GeocodingPriority.BACKGROUND);
+        assertThat(waiting).isNotDone();
+
+        advance(Duration.ofMillis(99));
+        assertThat(waiting).isNotDone();
+        advance(Duration.ofMillis(1));
+        assertThat(waiting).isCompleted();
+        assertThat(meterRegistry.get("stoom.geocode.ratelimit.wait").tag("lane", "background").timer().max(TimeUnit.MILLISECONDS))
+                .isEqualTo(100);
+    }
+
+    @Test
+    @DisplayName("[Priority] Each new token goes to the waiting interactive call before the next queued background one")
+    public void test_interactive_call_should_be_released_before_the_next_queued_background_call() {
+        GeocodingRateLimiter limiter = limiter();
+        limiter.acquire(GeocodingPriority.BACKGROUND);
+        limiter.acquire(GeocodingPriority.BACKGROUND);
+        CompletableFuture<Void> firstBackground = limiter.acquire(GeocodingPriority.BACKGROUND);
+        CompletableFuture<Void> secondBackground = limiter.acquire(GeocodingPriority.BACKGROUND);
+        CompletableFuture<Void> interactive = limiter.acquire(GeocodingPriority.INTERACTIVE);
+
+        advance(Duration.ofMillis(100));
+        assertThat(interactive).isCompleted();
+        assertThat(firstBackground).isNotDone();
+
+        advance(Duration.ofMillis(100));
+        assertThat(firstBackground).isCompleted();
+        assertThat(secondBackground).isNotDone();
+
+        advance(Duration.ofMillis(100));
+        assertThat(secondBackground).isCompleted();
+    }
+
+    @Test
+    @DisplayName("[Priority] A promoted background call moves ahead of the other background calls")
+    public void test_promote_should_move_waiting_call_to_the_interactive_lane() {
+        GeocodingRateLimiter limiter = limiter();
+        limiter.acquire(GeocodingPriority.BACKGROUND);
+        limiter.acquire(GeocodingPriority.BACKGROUND);
+        CompletableFuture<Void> firstBackground = limiter.acquire(GeocodingPriority.BACKGROUND);
+        CompletableFuture<Void> promoted = limiter.acquire(GeocodingPriority.BACKGROUND);
+
+        limiter.promote(promoted, GeocodingPriority.INTERACTIVE);
+        advance(Duration.ofMillis(100));
+
+        assertThat(promoted).isCompleted();
+        assertThat(firstBackground).isNotDone();
+    }
+
+    @Test
+    @DisplayName("[Queue] A full lane rejects new calls right away without affecting the other lane")
+    public void test_full_lane_should_reject_calls() {
+        apiProperties.getRateLimit().setBackgroundQueueCapacity(1);
+        GeocodingRateLimiter limiter = limiter();
+        limiter.acquire(GeocodingPriority.BACKGROUND);
+        limiter.acquire(GeocodingPriority.BACKGROUND);
+        limiter.acquire(GeocodingPriority.BACKGROUND);
+
+        CompletableFuture<Void> rejected = limiter.acquire(GeocodingPriority.BACKGROUND);
+
+        assertThat(rejected).isCompletedExceptionally();
+        assertThatThrownBy(rejected::join).hasCauseInstanceOf(GeocodingRateLimitExceededException.class);
+        assertThat(limiter.acquire(GeocodingPriority.INTERACTIVE)).isNotDone();
+        assertThat(meterRegistry.get("stoom.geocode.ratelimit.rejected").tag("lane", "background").counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("[Hedge] tryAcquire only takes a spare token nobody is waiting for")
+    public void test_try_acquire_should_not_jump_the_queue() {
+        GeocodingRateLimiter limiter = limiter();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+
+        CompletableFuture<Void> waiting = limiter.acquire(GeocodingPriority.BACKGROUND);
+        nanos.addAndGet(Duration.ofMillis(100).toNanos());
+
+        assertThat(limiter.tryAcquire()).isFalse();
+        runScheduledDrains();
+        assertThat(waiting).isCompleted();
+    }
+
+    @Test
+    @DisplayName("[Burst] An idle limiter saves up no more than the burst")
+    public void test_refill_should_be_capped_at_burst() {
+        GeocodingRateLimiter limiter = limiter();
+        nanos.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isTrue();
+        assertThat(limiter.tryAcquire()).isFalse();
+    }
+
+    private GeocodingRateLimiter limiter() {
+        return new GeocodingRateLimiter(apiProperties, scheduler, meterRegistry, nanos::get);
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+        runScheduledDrains();
+    }
+
+    private void runScheduledDrains() {
+        List<Runnable> drains = new ArrayList<>(scheduledDrains);
+        scheduledDrains.clear();
+        drains.forEach(Runnable::run);
+    }
+}
@@ -0,0 +1,152 @@
+package br.com.stoom.service;
+
+import br.com.stoom.configuration.GoogleGeocodeApiProperties;
+import br.com.stoom.exception.GoogleApiUnavailableException;
+import br.com.stoom.model.google.GeocodeResponse;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Google Geocoding API client")
+class GoogleGeocodeClientTest {
+
+    private GeocodeStubServer stub;
+    private CloseableHttpAsyncClient httpClient;
+    private ThreadPoolTaskScheduler scheduler;
+    private GoogleGeocodeApiProperties apiProperties;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        stub = new GeocodeStubServer();
+        httpClient = HttpAsyncClients.createDefault();
+        httpClient.start();
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        apiProperties = new GoogleGeocodeApiProperties();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        scheduler.shutdown();
+        httpClient.close();
+        stub.close();
+    }
+
+    @Test
+    @DisplayName("[Status] A status code unknown to HttpStatus completes the call and maps to unavailable")
+    public void test_non_standard_5xx_should_complete_and_map_to_unavailable() throws Exception {
+        stub.respond(520, "");
+
+        ResponseEntity<GeocodeResponse> response = client().get(stub.url(), GeocodingPriority.INTERACTIVE).get(5, TimeUnit.SECONDS);
+
+        assertThat(response.getStatusCodeValue()).isEqualTo(520);
+        assertThatThrownBy(() -> LatitudeLongitudeService.checkResponse(response))
+                .isInstanceOf(GoogleApiUnavailableException.class)
+                .hasMessageContaining("520");
+    }
+
+    @Test
+    @DisplayName("[Status] A successful response is read into the Google model")
+    public void test_ok_should_read_body() throws Exception {
+        ResponseEntity<GeocodeResponse> response = client().get(stub.url(), GeocodingPriority.INTERACTIVE).get(5, TimeUnit.SECONDS);
+
+        assertThat(LatitudeLongitudeService.checkResponse(response).getResults()).hasSize(1);
+    }
+
+    @Test
+    @DisplayName("[Hedge] No hedge while the latency tracker is warming up and no warm-up delay is configured")
+    public void test_slow_call_during_warm_up_should_not_be_hedged() throws Exception {
+        apiProperties.getHedge().setEnabled(true);
+        stub.delayNext(300);
+
+        client().get(stub.url(), GeocodingPriority.INTERACTIVE).get(5, TimeUnit.SECONDS);
+
+        assertThat(stub.requests()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("[Hedge] The warm-up delay hedges slow calls before the latency tracker has samples")
+    public void test_slow_call_during_warm_up_should_be_hedged_after_warm_up_delay() throws Exception {
+        apiProperties.getHedge().setEnabled(true);
+        apiProperties.getHedge().setWarmupDelay(Duration.ofMillis(50));
+        stub.delayNext(2_000);
+
+        long elapsed = timed(client());
+
+        assertThat(stub.requests()).isEqualTo(2);
+        assertThat(elapsed).isLessThan(1_500);
+    }
+
+    @Test
+    @DisplayName("[Hedge] Once warmed up, a call slower than the tracked percentile is hedged and the hedge wins")
+    public void test_slow_call_after_warm_up_should_be_hedged() throws Exception {
+        apiProperties.getHedge().setEnabled(true);
+        GoogleGeocodeClient client = warmedUp(client());
+        stub.delayNext(2_000);
+
+        long elapsed = timed(client);
+
+        assertThat(stub.requests()).isEqualTo(34);
+        assertThat(elapsed).isLessThan(1_500);
+    }
+
+    @Test
+    @DisplayName("[Hedge] A fast call is not hedged")
+    public void test_fast_call_after_warm_up_should_not_be_hedged() throws Exception {
+        apiProperties.getHedge().setEnabled(true);
+        apiProperties.getHedge().setMinDelay(Duration.ofMillis(500));
+        GoogleGeocodeClient client = warmedUp(client());
+
+        client.get(stub.url(), GeocodingPriority.INTERACTIVE).get(5, TimeUnit.SECONDS);
+        TimeUnit.MILLISECONDS.sleep(700);
+
+        assertThat(stub.requests()).isEqualTo(33);
+    }
+
+    @Test
+    @DisplayName("[Hedge] The hedge is skipped when the rate limiter has no spare token")
+    public void test_slow_call_without_spare_token_should_not_be_hedged() throws Exception {
+        apiProperties.getHedge().setEnabled(true);
+        apiProperties.getRateLimit().setBurst(33);
+        apiProperties.getRateLimit().setQps(0.01);
+        GoogleGeocodeClient client = warmedUp(client());
+        stub.delayNext(500);
+
+        long elapsed = timed(client);
+
+        assertThat(stub.requests()).isEqualTo(33);
+        assertThat(elapsed).isGreaterThanOrEqualTo(500);
+    }
+
+    private GoogleGeocodeClient warmedUp(GoogleGeocodeClient client) throws Exception {
+        for (int i = 0; i < 32; i++) {
+            client.get(stub.url(), GeocodingPriority.BACKGROUND).get(5, TimeUnit.SECONDS);
+        }
+        return client;
+    }
+
+    private long timed(GoogleGeocodeClient client) throws Exception {
+        long start = System.nanoTime();
+        ResponseEntity<GeocodeResponse> response = client.get(stub.url(), GeocodingPriority.INTERACTIVE).get(5, TimeUnit.SECONDS);
+        assertThat(response.getStatusCodeValue()).isEqualTo(200);
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+    }
+
+    private GoogleGeocodeClient client() {
+        GeocodingRateLimiter rateLimiter = new GeocodingRateLimiter(apiProperties, scheduler, new SimpleMeterRegistry());
+        return new GoogleGeocodeClient(httpClient, scheduler, rateLimiter, apiProperties, new ObjectMapper());
+    }
+}
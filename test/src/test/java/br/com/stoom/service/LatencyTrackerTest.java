@@ -0,0 +1,70 @@
+package br.com.stoom.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DisplayName("Latency tracker")
+class LatencyTrackerTest {
+
+    @Test
+    @DisplayName("[Warm-up] No percentile until a full refresh interval has been recorded")
+    public void test_percentile_before_refresh_interval_should_be_unknown() {
+        LatencyTracker tracker = new LatencyTracker(512, 95);
+        for (int i = 1; i < 32; i++) {
+            tracker.record(i);
+        }
+
+        assertThat(tracker.percentile()).isEqualTo(-1);
+
+        tracker.record(32);
+
+        assertThat(tracker.percentile()).isEqualTo(31);
+    }
+
+    @Test
+    @DisplayName("[Percentile] The nearest-rank percentile of the recorded latencies")
+    public void test_percentile_should_use_nearest_rank() {
+        LatencyTracker tracker = new LatencyTracker(512, 95);
+        for (int i = 100; i >= 1; i--) {
+            tracker.record(i);
+        }
+
+        assertThat(tracker.percentile()).isEqualTo(95);
+    }
+
+    @Test
+    @DisplayName("[Percentile] Only the last sampleSize latencies are kept")
+    public void test_percentile_should_forget_samples_older_than_the_ring_buffer() {
+        LatencyTracker tracker = new LatencyTracker(32, 50);
+        for (int i = 0; i < 32; i++) {
+            tracker.record(1_000);
+        }
+        assertThat(tracker.percentile()).isEqualTo(1_000);
+
+        for (int i = 0; i < 32; i++) {
+            tracker.record(10);
+        }
+
+        assertThat(tracker.percentile()).isEqualTo(10);
+    }
+
+    @Test
+    @DisplayName("[Percentile] The cached percentile is only recomputed every refresh interval")
+    public void test_percentile_should_be_cached_between_refreshes() {
+        LatencyTracker tracker = new LatencyTracker(512, 100);
+        for (int i = 0; i < 32; i++) {
+            tracker.record(10);
+        }
+        assertThat(tracker.percentile()).isEqualTo(10);
+
+        tracker.record(5_000);
+        assertThat(tracker.percentile()).isEqualTo(10);
+
+        for (int i = 0; i < 31; i++) {
+            tracker.record(10);
+        }
+        assertThat(tracker.percentile()).isEqualTo(5_000);
+    }
+}
@@ -0,0 +1,169 @@
+package br.com.stoom.service;
+
+import br.com.stoom.configuration.GeocodingProperties;
+import br.com.stoom.configuration.GoogleGeocodeApiProperties;
+import br.com.stoom.entity.Address;
+import br.com.stoom.exception.GoogleApiInvalidAddressInformationException;
+import br.com.stoom.exception.GoogleApiUnavailableException;
+import br.com.stoom.geocoder.GeocodePrecision;
+import br.com.stoom.geocoder.Geocoder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.http.impl.nio.client.CloseableHttpAsyncClient;
+import org.apache.http.impl.nio.client.HttpAsyncClients;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@DisplayName("Google lookups shared by concurrent callers")
+class LatitudeLongitudeServiceTest {
+
+    private GeocodeStubServer stub;
+    private CloseableHttpAsyncClient httpClient;
+    private ThreadPoolTaskScheduler scheduler;
+    private GoogleGeocodeApiProperties apiProperties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    public void setUp() throws Exception {
+        stub = new GeocodeStubServer();
+        httpClient = HttpAsyncClients.createDefault();
+        httpClient.start();
+        scheduler = new ThreadPoolTaskScheduler();
+        scheduler.initialize();
+        apiProperties = new GoogleGeocodeApiProperties();
+        apiProperties.setBaseUrl(stub.url());
+        meterRegistry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    public void tearDown() throws Exception {
+        scheduler.shutdown();
+        httpClient.close();
+        stub.close();
+    }
+
+    @Test
+    @DisplayName("[Single flight] Concurrent callers for the same address share one request and its location")
+    public void test_concurrent_callers_should_share_one_request() throws Exception {
+        LatitudeLongitudeService service = service();
+        stub.delayNext(300);
+
+        CompletableFuture<Address> leader = geocode(service, GeocodingPriority.BACKGROUND);
+        CompletableFuture<Address> joined = geocode(service, GeocodingPriority.INTERACTIVE);
+
+        assertThat(leader.get(5, TimeUnit.SECONDS).getLatitude()).isEqualByComparingTo("-22.8354045");
+        assertThat(joined.get(5, TimeUnit.SECONDS).getLatitude()).isEqualByComparingTo("-22.8354045");
+        assertThat(stub.requests()).isEqualTo(1);
+        assertThat(meterRegistry.get("stoom.geocode.google").tag("lookup", "joined").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("[Single flight] A failed lookup fails every caller and is removed, so the next caller sends a new request")
+    public void test_failed_lookup_should_be_removed_and_not_cached() throws Exception {
+        LatitudeLongitudeService service = service();
+        stub.respond(503, "").delayNext(300);
+
+        CompletableFuture<Address> leader = geocode(service, GeocodingPriority.INTERACTIVE);
+        CompletableFuture<Address> joined = geocode(service, GeocodingPriority.INTERACTIVE);
+
+        assertThatThrownBy(() -> leader.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(GoogleApiUnavailableException.class);
+        assertThatThrownBy(() -> joined.get(5, TimeUnit.SECONDS)).isInstanceOf(ExecutionException.class)
+                .hasCauseInstanceOf(GoogleApiUnavailableException.class);
+
+        stub.respond(200, GeocodeStubServer.OK_BODY);
+        assertThat(geocode(service, GeocodingPriority.INTERACTIVE).get(5, TimeUnit.SECONDS).getLatitude()).isEqualByComparingTo("-22.8354045");
+        assertThat(stub.requests()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("[Negative cache] An address Google cannot find is not sent again while its failure is cached")
+    public void test_invalid_address_should_be_answered_from_negative_cache() throws Exception {
+        LatitudeLongitudeService service = service();
+        stub.respond(200, "{\"results\":[],\"status\":\"ZERO_RESULTS\"}");
+
+        for (int i = 0; i < 2; i++) {
+            assertThatThrownBy(() -> geocode(service, GeocodingPriority.INTERACTIVE).get(5, TimeUnit.SECONDS))
+                    .hasCauseInstanceOf(GoogleApiInvalidAddressInformationException.class);
+        }
+        assertThat(stub.requests()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("[Refresh] A refresh skips the geocode cache and replaces the cached location with the fresh one")
+    public void test_refresh_should_bypass_and_update_the_cache() throws Exception {
+        LatitudeLongitudeService service = service();
+        geocode(service, GeocodingPriority.INTERACTIVE).get(5, TimeUnit.SECONDS);
+        geocode(service, GeocodingPriority.INTERACTIVE).get(5, TimeUnit.SECONDS);
+        assertThat(stub.requests()).isEqualTo(1);
+
+        stub.respond(200, GeocodeStubServer.OK_BODY.replace("-22.8354045", "-22.9000000"));
+        Address refreshed = service.refreshLatitudeAndLongitudeAsync(anAddress("Rua Compartilhada"), GeocodePrecision.ROOFTOP,
+                GeocodingPriority.BACKGROUND).get(5, TimeUnit.SECONDS);
+
+        assertThat(refreshed.getLatitude()).isEqualByComparingTo("-22.9000000");
+        assertThat(stub.requests()).isEqualTo(2);
+        assertThat(geocode(service, GeocodingPriority.INTERACTIVE).get(5, TimeUnit.SECONDS).getLatitude()).isEqualByComparingTo("-22.9000000");
+        assertThat(stub.requests()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("[Priority] An interactive caller joining a background lookup moves it to the interactive lane")
+    public void test_interactive_join_should_promote_waiting_background_lookup() {
+        apiProperties.getRateLimit().setBurst(1);
+        apiProperties.getRateLimit().setQps(0.01);
+        LatitudeLongitudeService service = service();
+        geocode(service, GeocodingPriority.BACKGROUND, "Rua da Frente");
+
+        geocode(service, GeocodingPriority.BACKGROUND, "Rua do Lider");
+        assertThat(queued("background")).isEqualTo(1);
+        assertThat(queued("interactive")).isZero();
+
+        geocode(service, GeocodingPriority.INTERACTIVE, "Rua do Lider");
+        assertThat(queued("background")).isZero();
+        assertThat(queued("interactive")).isEqualTo(1);
+    }
+
+    private double queued(String lane) {
+        return meterRegistry.get("stoom.geocode.ratelimit.queue").tag("lane", lane).gauge().value();
+    }
+
+    private LatitudeLongitudeService service() {
+        GeocodingRateLimiter rateLimiter = new GeocodingRateLimiter(apiProperties, scheduler, meterRegistry);
+        GoogleGeocodeClient client = new GoogleGeocodeClient(httpClient, scheduler, rateLimiter, apiProperties, new ObjectMapper());
+        return new LatitudeLongitudeService(client, apiProperties, new GeocodeCache(apiProperties), new GeocodingProperties(),
+                rateLimiter, new StaticListableBeanFactory().getBeanProvider(Geocoder.class), meterRegistry);
+    }
+
+    private static CompletableFuture<Address> geocode(LatitudeLongitudeService service, GeocodingPriority priority) {
+        return geocode(service, priority, "Rua Compartilhada");
+    }
+
+    private static CompletableFuture<Address> geocode(LatitudeLongitudeService service, GeocodingPriority priority, String streetName) {
+        return service.findLatitudeAndLongitudeAsync(anAddress(streetName), GeocodePrecision.ROOFTOP, priority);
+    }
+
+    private static Address anAddress(String streetName) {
+        return Address.builder()
+                .streetName(streetName)
+                .number(43)
+                .neighbourhood("Barao Geraldo")
+                .city("Campinas")
+                .state("SP")
+                .country("BR")
+                .zipcode("13084-780")
+                .build();
+    }
+}